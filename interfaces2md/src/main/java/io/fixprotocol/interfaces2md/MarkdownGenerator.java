@@ -3,7 +3,7 @@ package io.fixprotocol.interfaces2md;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.util.List;
 import java.util.Objects;
 import java.util.stream.Collectors;
@@ -55,7 +55,7 @@ public class MarkdownGenerator {
   private final Logger logger = LogManager.getLogger(getClass());
 
 
-  public void generate(InputStream inputStream, OutputStreamWriter outputWriter,
+  public void generate(InputStream inputStream, Writer outputWriter,
       EventListener eventLogger) throws Exception {
     this.eventLogger = eventLogger;
     try (eventLogger; final DocumentWriter documentWriter = new DocumentWriter(outputWriter)) {
@@ -85,7 +85,7 @@ public class MarkdownGenerator {
    * @param jsonOutputStream output stream for events
    * @throws Exception if an IO or fatal parsing error occurs
    */
-  public void generate(InputStream inputStream, OutputStreamWriter outputWriter,
+  public void generate(InputStream inputStream, Writer outputWriter,
       OutputStream jsonOutputStream) throws Exception {
     Objects.requireNonNull(inputStream, "Input stream is missing");
     Objects.requireNonNull(outputWriter, "Output writer is missing");
@@ -1,6 +1,65 @@
 /* Grammar for a subset of markdown */
 grammar Markdown;
 
+@lexer::members {
+/*
+ * A backtick that follows a backslash is escaped, so it cannot open a literal. Rules cannot see
+ * a character before the token that they match, so a token that starts with an escaped backtick
+ * is matched here. Every other token is matched by the cached DFA. LexerGoldenTest compares both
+ * paths with token streams of the former predicated lexer.
+ */
+@Override
+public Token nextToken() {
+	if (_input.LA(1) == '`' && _input.LA(-1) == '\\' && _mode == DEFAULT_MODE) {
+		return escapedBacktickToken();
+	}
+	return super.nextToken();
+}
+
+private Token escapedBacktickToken() {
+	_token = null;
+	_channel = DEFAULT_TOKEN_CHANNEL;
+	_tokenStartCharIndex = _input.index();
+	_tokenStartCharPositionInLine = getInterpreter().getCharPositionInLine();
+	_tokenStartLine = getInterpreter().getLine();
+	_text = null;
+	// longest PARAGRAPHLINE; the opening backtick is followed by LINEBODY
+	int length = 1;
+	int prev = '`';
+	for (int c = _input.LA(length + 1); c != EOF && c != '\n' && c != '\r'; c =
+		_input.LA(length + 1)) {
+		if (c != '`') {
+			length++;
+			prev = c;
+		} else if (prev == '\\') {
+			break;
+		} else {
+			// literal content is not empty and does not end with a backslash
+			int close = length + 2;
+			while (_input.LA(close) != EOF && _input.LA(close) != '`') {
+				close++;
+			}
+			if (_input.LA(close) == EOF || close == length + 2 || _input.LA(close - 1) == '\\') {
+				break;
+			}
+			length = close;
+			prev = '`';
+		}
+	}
+	// FENCE wins only if it is longer, since PARAGRAPHLINE is defined first
+	if (length < 3 && _input.LA(2) == '`' && _input.LA(3) == '`') {
+		_type = FENCE;
+		length = 3;
+	} else {
+		_type = PARAGRAPHLINE;
+	}
+	for (int i = 0; i < length; i++) {
+		getInterpreter().consume(_input);
+	}
+	return emit();
+}
+}
+
 document
 :
 	block+ EOF
@@ -108,17 +167,21 @@ tabledelimiterrow
 
 LITERAL
 :
-	BACKTICK ' '? LITERALCHAR+ ' '? BACKTICK
+	'`' LITERALBODY '`'
 ;
 
 HEADINGLINE
 :
-	HASH+ ' '? LINECHAR+
+	'#'+ ' '? LINECHAR+
 ;
 
 QUOTELINE
 :
-	GT ' '? ( LINECHAR+ | LITERAL)+
+	'>' ' '?
+	(
+		LINECHAR+
+		| LITERALRUN+ LINECHAR*
+	)
 ;
 
 LISTLINE
@@ -132,12 +195,16 @@ LISTLINE
 
 PARAGRAPHLINE
 :
-	INITIALPARACHAR (LINECHAR+ | LITERAL)*
+	INITIALPARACHAR LINEBODY
+	| '\\'+
+	(
+		LINECHARNB LINEBODY
+	)?
 ;
 
 TABLEDELIMINATORCELL
 :
-	PIPE? ' '? ':'? '-'+ ':'? ' '?
+	'|'? ' '? ':'? '-'+ ':'? ' '?
 ;
 
 FENCE
@@ -158,79 +225,104 @@ NEWLINE
 /* low priority since it can match empty string */
 CELLTEXT
 :
-	PIPE IGNORE_WS (CELLCHAR+ | LITERAL)*
+	'|' IGNORE_WS
+	(
+		CELLCHAR
+		| LITERAL
+		| ESCAPEDBACKSLASH+
+		(
+			'|'
+			| CELLCHAR
+		)
+	)* ESCAPEDBACKSLASH*
 ;
 
-/* Unescaped backtick character; not preceded by backslash */
+/* Unescaped backtick character */
 BACKTICK
 :
-	{_input.LA(-1) != 92}?
-
 	'`'
 ;
 
-/* Unescaped greater-than character; not preceded by backslash */
+/* Unescaped greater-than character */
 GT
 :
-	{_input.LA(-1) != 92}?
-
 	'>'
 ;
 
-/* Unescaped hash character; not preceded by backslash */
+/* Unescaped hash character */
 HASH
 :
-	{_input.LA(-1) != 92}?
-
 	'#'
 ;
 
-/* Unescaped pipe character; not preceded by backslash */
+/* Unescaped pipe character */
 PIPE
 :
-	{_input.LA(-1) != 92}?
-
 	'|'
 ;
 
-/* disallow unescaped pipe, newline, literal within a table cell */
+/*
+ * An escape is expressed by the characters that may precede a backtick or pipe rather than by
+ * semantic predicates, so that the lexer DFA is cached.
+ */
+
+/* literal content may not end with a backslash, which would escape the closing backtick */
+fragment
+LITERALBODY
+:
+	~[`]* ~[`\\]
+;
+
+/* a literal may not follow a backslash, which would escape its opening backtick */
+fragment
+LITERALRUN
+:
+	(
+		LINECHAR* LINECHARNB
+	)? LITERAL
+;
+
+fragment
+LINEBODY
+:
+	LITERALRUN* LINECHAR*
+;
+
+/* disallow unescaped pipe, newline, literal within a table cell; backslash pairs are separate */
 fragment
 CELLCHAR
 :
 	(
 		ESCAPEDCHAR
-		| ESCAPEDPIPE
 		| WS
 		| ALPHANUMERIC
 		| PUNCTUATION
 	)
 ;
 
-/* Escaped punctuation, includes escaped backslash */
+/* Escaped punctuation, excluding escaped backslash */
 fragment
 ESCAPEDCHAR
 :
-	'\\' [\\!"#$%&'()*+,\-./:;<=>?@[\]^_{|}~`]
+	'\\' [!"#$%&'()*+,\-./:;<=>?@[\]^_{|}~`]
 ;
 
 fragment
-ALPHANUMERIC
+ESCAPEDBACKSLASH
 :
-	[a-zA-Z0-9\u0080-\uFFFF]
+	'\\' '\\'
 ;
 
 fragment
-PUNCTUATION
+ALPHANUMERIC
 :
-	[!"#$%&'()*+,\-./:;<=>?@[\]^_{}]
+	[a-zA-Z0-9\u0080-\uFFFF]
 ;
 
 fragment
-ESCAPEDPIPE
+PUNCTUATION
 :
-	{_input.LA(-1) == 92}?
-
-	'|'
+	[!"#$%&'()*+,\-./:;<=>?@[\]^_{}]
 ;
 
 fragment
@@ -254,20 +346,17 @@ BULLET
 fragment
 INITIALPARACHAR
 :
-	~[#>|\n\r]
+	~[#>|\n\r\\]
 ;
 
 fragment
-LITERALCHAR
+LINECHAR
 :
-	~[`]
+	~[\n\r`]
 ;
 
 fragment
-LINECHAR
+LINECHARNB
 :
-	~[\n\r`]
+	~[\n\r`\\]
 ;
-
-
-
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2020 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.fixprotocol.md.antlr;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.IntStream;
+import org.antlr.v4.runtime.misc.Interval;
+
+/**
+ * A character stream that reads directly from a buffer of ASCII bytes, such as a memory-mapped
+ * file
+ *
+ * Each byte is a character, so no decoding or copy of the input is needed. It also serves as a
+ * {@code CharSequence} view of the same text.
+ *
+ * @author Don Mendelson
+ *
+ */
+public final class AsciiCharStream implements CharStream, CharSequence {
+
+  /**
+   * Tells whether all bytes remaining in a buffer are ASCII
+   *
+   * @param buffer a buffer. Its position is not changed.
+   * @return {@code true} if no byte has its high order bit set
+   */
+  public static boolean isAscii(ByteBuffer buffer) {
+    int i = buffer.position();
+    final int limit = buffer.limit();
+    // test eight bytes at a time
+    for (; i + Long.BYTES <= limit; i += Long.BYTES) {
+      if ((buffer.getLong(i) & 0x8080808080808080L) != 0) {
+        return false;
+      }
+    }
+    for (; i < limit; i++) {
+      if (buffer.get(i) < 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private final ByteBuffer buffer;
+  private int position = 0;
+  private final int size;
+  private final String sourceName;
+
+  /**
+   * Constructor
+   *
+   * @param buffer buffer of ASCII bytes. Bytes from its position to its limit are the input.
+   * @param sourceName name of the source, such as a file name. May be {@code null}.
+   */
+  public AsciiCharStream(ByteBuffer buffer, String sourceName) {
+    this.buffer = buffer.slice();
+    this.size = this.buffer.limit();
+    this.sourceName = sourceName;
+  }
+
+  @Override
+  public char charAt(int index) {
+    return (char) buffer.get(index);
+  }
+
+  @Override
+  public void consume() {
+    if (position >= size) {
+      throw new IllegalStateException("cannot consume EOF");
+    }
+    position++;
+  }
+
+  @Override
+  public String getSourceName() {
+    return sourceName != null ? sourceName : IntStream.UNKNOWN_SOURCE_NAME;
+  }
+
+  @Override
+  public String getText(Interval interval) {
+    final int start = Math.min(interval.a, size);
+    final int stop = Math.min(interval.b + 1, size);
+    if (stop <= start) {
+      return "";
+    }
+    return text(start, stop);
+  }
+
+  @Override
+  public int index() {
+    return position;
+  }
+
+  @Override
+  public int LA(int i) {
+    if (i == 0) {
+      return 0;
+    }
+    final int index = i < 0 ? position + i : position + i - 1;
+    if (index < 0 || index >= size) {
+      return IntStream.EOF;
+    }
+    return buffer.get(index);
+  }
+
+  @Override
+  public int length() {
+    return size;
+  }
+
+  @Override
+  public int mark() {
+    return -1;
+  }
+
+  @Override
+  public void release(int marker) {
+    // all input is retained
+  }
+
+  @Override
+  public void seek(int index) {
+    position = index;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public CharSequence subSequence(int start, int end) {
+    return text(start, end);
+  }
+
+  @Override
+  public String toString() {
+    return text(0, size);
+  }
+
+  private String text(int start, int end) {
+    final byte[] bytes = new byte[end - start];
+    buffer.duplicate().position(start).get(bytes);
+    return new String(bytes, StandardCharsets.US_ASCII);
+  }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2020 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package io.fixprotocol.md.antlr;
+
+import org.antlr.v4.runtime.DefaultErrorStrategy;
+import org.antlr.v4.runtime.InputMismatchException;
+import org.antlr.v4.runtime.Parser;
+import org.antlr.v4.runtime.RecognitionException;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.TokenStream;
+import org.antlr.v4.runtime.atn.ATNState;
+import org.antlr.v4.runtime.misc.IntervalSet;
+
+/**
+ * Error strategy that recovers from a syntax error by discarding input up to the next heading
+ *
+ * A heading always starts a block, so parsing resumes in a known state, and every section after
+ * the error is parsed as usual. Only the first error of a section is reported. A missing or extra
+ * token is not repaired in place, and follow sets are not computed, so recovery costs no more than
+ * reading the discarded tokens. At the entry or iteration of a loop, an unexpected token is detected
+ * from the tokens that may follow that state alone, and is recovered from like any other error.
+ *
+ * After the recovery limit is reached, the rest of the document is discarded, so that a document
+ * that is not markdown at all fails fast.
+ *
+ * @author Don Mendelson
+ *
+ */
+public class HeadingRecoveryStrategy extends DefaultErrorStrategy {
+
+  private boolean limitReported = false;
+  private final int recoveryLimit;
+  private int recoveries = 0;
+
+  /**
+   * Constructor
+   *
+   * @param recoveryLimit maximum number of errors to recover from in a document
+   */
+  public HeadingRecoveryStrategy(int recoveryLimit) {
+    this.recoveryLimit = recoveryLimit;
+  }
+
+  /**
+   * @return number of errors recovered from so far
+   */
+  public int getRecoveries() {
+    return recoveries;
+  }
+
+  @Override
+  public void recover(Parser recognizer, RecognitionException e) {
+    final TokenStream tokenStream = recognizer.getInputStream();
+    // If the same rule fails again without progress, consume a token so that recovery cannot loop
+    if (lastErrorIndex == tokenStream.index() && lastErrorStates != null
+        && lastErrorStates.contains(recognizer.getState())) {
+      recognizer.consume();
+    }
+    lastErrorIndex = tokenStream.index();
+    if (lastErrorStates == null) {
+      lastErrorStates = new IntervalSet();
+    }
+    lastErrorStates.add(recognizer.getState());
+    // If already at a heading, it is kept, since it starts the next block
+    skipToHeading(recognizer);
+  }
+
+  @Override
+  public Token recoverInline(Parser recognizer) throws RecognitionException {
+    throw new InputMismatchException(recognizer);
+  }
+
+  @Override
+  public void reset(Parser recognizer) {
+    super.reset(recognizer);
+    recoveries = 0;
+    limitReported = false;
+  }
+
+  @Override
+  public void sync(Parser recognizer) throws RecognitionException {
+    if (inErrorRecoveryMode(recognizer)) {
+      return;
+    }
+    final ATNState state = recognizer.getInterpreter().atn.states.get(recognizer.getState());
+    // cached by the ATN, unlike the follow set of the rule invocation stack
+    final IntervalSet nextTokens = recognizer.getATN().nextTokens(state);
+    if (nextTokens.contains(recognizer.getInputStream().LA(1))
+        || nextTokens.contains(Token.EPSILON)) {
+      return;
+    }
+    switch (state.getStateType()) {
+      case ATNState.BLOCK_START:
+      case ATNState.STAR_BLOCK_START:
+      case ATNState.PLUS_BLOCK_START:
+      case ATNState.STAR_LOOP_ENTRY:
+      case ATNState.PLUS_LOOP_BACK:
+      case ATNState.STAR_LOOP_BACK:
+        // detected but not repaired; the rule recovers by skipping to the next heading
+        throw new InputMismatchException(recognizer);
+      default:
+        break;
+    }
+  }
+
+  @Override
+  protected void beginErrorCondition(Parser recognizer) {
+    super.beginErrorCondition(recognizer);
+    recoveries++;
+  }
+
+  private void skipToHeading(Parser recognizer) {
+    final TokenStream tokenStream = recognizer.getInputStream();
+    if (recoveries > recoveryLimit) {
+      if (!limitReported) {
+        limitReported = true;
+        recognizer.notifyErrorListeners(tokenStream.LT(1),
+            "error recovery limit reached; rest of document ignored", null);
+      }
+      while (tokenStream.LA(1) != Token.EOF) {
+        recognizer.consume();
+      }
+    } else {
+      for (int type = tokenStream.LA(1); type != Token.EOF
+          && type != MarkdownParser.HEADINGLINE; type = tokenStream.LA(1)) {
+        recognizer.consume();
+      }
+    }
+  }
+}
@@ -13,17 +13,12 @@
  */
 package io.fixprotocol.md.antlr;
 
-import java.util.ArrayDeque;
-import java.util.ArrayList;
-import java.util.Deque;
-import java.util.List;
 import java.util.function.Consumer;
-import java.util.stream.Collectors;
+import org.antlr.v4.runtime.CharStream;
 import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.Token;
 import org.antlr.v4.runtime.tree.ErrorNode;
 import org.antlr.v4.runtime.tree.TerminalNode;
-import org.apache.logging.log4j.LogManager;
-import org.apache.logging.log4j.Logger;
 import io.fixprotocol.md.antlr.MarkdownParser.BlockContext;
 import io.fixprotocol.md.antlr.MarkdownParser.BlockquoteContext;
 import io.fixprotocol.md.antlr.MarkdownParser.CellContext;
@@ -41,13 +36,9 @@ import io.fixprotocol.md.antlr.MarkdownParser.TabledelimiterrowContext;
 import io.fixprotocol.md.antlr.MarkdownParser.TableheadingContext;
 import io.fixprotocol.md.antlr.MarkdownParser.TablerowContext;
 import io.fixprotocol.md.event.Contextual;
-import io.fixprotocol.md.event.MutableContext;
-import io.fixprotocol.md.event.MutableContextual;
-import io.fixprotocol.md.event.MutableDetailProperties;
-import io.fixprotocol.md.event.mutable.ContextImpl;
-import io.fixprotocol.md.event.mutable.DetailImpl;
-import io.fixprotocol.md.event.mutable.DetailTableImpl;
-import io.fixprotocol.md.event.mutable.DocumentationImpl;
+import io.fixprotocol.md.event.DocumentParser.TableEvents;
+import io.fixprotocol.md.event.KeywordVocabulary;
+import io.fixprotocol.md.event.mutable.EventAssembler;
 
 /**
  * Generates events for document consumers
@@ -57,43 +48,60 @@ import io.fixprotocol.md.event.mutable.DocumentationImpl;
  */
 public class MarkdownEventSource implements MarkdownListener {
 
-  private static final String CELL_NONTEXT = " |\t";
-  private static final String WHITESPACE_REGEX = "[ \t]";
-
-  static String normalizeList(List<? extends ListlineContext> textlines) {
-    return textlines.stream().map(p -> p.LISTLINE().getText()).collect(Collectors.joining("\n"));
-  }
-
-  static String normalizeParagraph(List<? extends ParagraphlineContext> textlines) {
-    return textlines.stream().map(p -> p.PARAGRAPHLINE().getText())
-        .collect(Collectors.joining(" "));
+  static String trimCell(String text) {
+    return EventAssembler.trimCell(text);
   }
 
-  static String normalizeQuote(List<? extends QuotelineContext> textlines) {
-    return textlines.stream().map(p -> p.QUOTELINE().getText()).collect(Collectors.joining("\n"));
-  }
-
-  static String trimCell(String text) {
-    int beginIndex = 0;
-    int endIndex = text.length();
-    for (; beginIndex < endIndex
-        && (CELL_NONTEXT.indexOf(text.charAt(beginIndex)) != -1); beginIndex++);
-    for (; endIndex > beginIndex
-        && (CELL_NONTEXT.indexOf(text.charAt(endIndex - 1)) != -1); endIndex--);
-    return text.substring(beginIndex, endIndex);
-  }
-
-  private final Consumer<? super Contextual> contextConsumer;
-  private final Deque<MutableContext> contexts = new ArrayDeque<>();
-  private boolean inTableHeading = false;
-  private final List<String> lastBlocks = new ArrayList<>();
-  private int lastColumnNo;
-  private final List<String> lastRowValues = new ArrayList<>();
-  private final List<String> lastTableHeadings = new ArrayList<>();
-  private final Logger logger = LogManager.getLogger(getClass());
+  private final EventAssembler assembler;
 
+  /**
+   * Constructor
+   *
+   * Events are generated from the contents of exited rules, so this listener may either walk a
+   * complete parse tree or listen to a parser that does not build a tree.
+   *
+   * @param contextConsumer consumer of document events
+   */
   public MarkdownEventSource(Consumer<? super Contextual> contextConsumer) {
-    this.contextConsumer = contextConsumer;
+    this(contextConsumer, false);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param contextConsumer consumer of document events
+   * @param lazyValues if {@code true}, table cell values refer to the character stream until they
+   *        are accessed, provided that it is a {@code CharSequence}
+   */
+  public MarkdownEventSource(Consumer<? super Contextual> contextConsumer, boolean lazyValues) {
+    this(contextConsumer, lazyValues, TableEvents.ROWS_AND_TABLE);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param contextConsumer consumer of document events
+   * @param lazyValues if {@code true}, table cell values refer to the character stream until they
+   *        are accessed, provided that it is a {@code CharSequence}
+   * @param tableEvents events supplied for a table
+   */
+  public MarkdownEventSource(Consumer<? super Contextual> contextConsumer, boolean lazyValues,
+      TableEvents tableEvents) {
+    this(contextConsumer, lazyValues, tableEvents, null);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param contextConsumer consumer of document events
+   * @param lazyValues if {@code true}, table cell values refer to the character stream until they
+   *        are accessed, provided that it is a {@code CharSequence}
+   * @param tableEvents events supplied for a table
+   * @param vocabulary classifies each heading. May be {@code null}.
+   */
+  public MarkdownEventSource(Consumer<? super Contextual> contextConsumer, boolean lazyValues,
+      TableEvents tableEvents, KeywordVocabulary vocabulary) {
+    this.assembler = new EventAssembler(contextConsumer, lazyValues, tableEvents, vocabulary);
   }
 
   @Override
@@ -104,8 +112,7 @@ public class MarkdownEventSource implements MarkdownListener {
 
   @Override
   public void enterBlockquote(BlockquoteContext ctx) {
-    // no action
-
+    assembler.beginLines();
   }
 
   @Override
@@ -134,8 +141,7 @@ public class MarkdownEventSource implements MarkdownListener {
 
   @Override
   public void enterHeading(HeadingContext ctx) {
-    supplyLastDocumentation();
-    lastBlocks.clear();
+    assembler.beginHeading();
   }
 
   @Override
@@ -146,8 +152,7 @@ public class MarkdownEventSource implements MarkdownListener {
 
   @Override
   public void enterList(ListContext ctx) {
-    // no action
-
+    assembler.beginLines();
   }
 
   @Override
@@ -158,7 +163,7 @@ public class MarkdownEventSource implements MarkdownListener {
 
   @Override
   public void enterParagraph(ParagraphContext ctx) {
-
+    assembler.beginLines();
   }
 
   @Override
@@ -175,8 +180,7 @@ public class MarkdownEventSource implements MarkdownListener {
 
   @Override
   public void enterTable(TableContext ctx) {
-    supplyLastDocumentation();
-    lastBlocks.clear();
+    assembler.beginTable();
   }
 
   @Override
@@ -187,14 +191,12 @@ public class MarkdownEventSource implements MarkdownListener {
 
   @Override
   public void enterTableheading(TableheadingContext ctx) {
-    lastTableHeadings.clear();
-    inTableHeading = true;
+    assembler.beginTableHeading();
   }
 
   @Override
   public void enterTablerow(TablerowContext ctx) {
-    lastColumnNo = 0;
-    lastRowValues.clear();
+    assembler.beginTableRow();
   }
 
   @Override
@@ -205,24 +207,27 @@ public class MarkdownEventSource implements MarkdownListener {
 
   @Override
   public void exitBlockquote(BlockquoteContext ctx) {
-    final List<QuotelineContext> textlines = ctx.quoteline();
-    lastBlocks.add(normalizeQuote(textlines));
+    assembler.endQuote();
   }
 
   @Override
   public void exitCell(CellContext ctx) {
-    final String cellText = trimCell(ctx.CELLTEXT().getText());
-    if (inTableHeading) {
-      lastTableHeadings.add(cellText);
-    } else {
-      lastRowValues.add(cellText);
+    // token is missing if the parser recovered from a syntax error by inserting it
+    final TerminalNode cellText = ctx.CELLTEXT();
+    if (cellText != null) {
+      final Token token = cellText.getSymbol();
+      final CharStream input = token.getInputStream();
+      if (input instanceof CharSequence && token.getStartIndex() >= 0) {
+        assembler.addCell((CharSequence) input, token.getStartIndex(), token.getStopIndex() + 1);
+      } else {
+        assembler.addCell(cellText.getText());
+      }
     }
-    lastColumnNo++;
   }
 
   @Override
   public void exitDocument(DocumentContext ctx) {
-    supplyLastDocumentation();
+    assembler.endDocument();
   }
 
   @Override
@@ -239,15 +244,11 @@ public class MarkdownEventSource implements MarkdownListener {
 
   @Override
   public void exitHeading(HeadingContext ctx) {
-    final String headingLine = ctx.HEADINGLINE().getText();
     // Only a new heading changes the context
-    // Heading level is length of first word formed with '#'
-    final int headingLevel = headingLine.indexOf(" ");
-    final String[] headingWords = headingLine.substring(headingLevel + 1).split(WHITESPACE_REGEX);
-    final ContextImpl context = new ContextImpl(headingWords, headingLevel);
-    updateParentContext(context);
-
-    contextConsumer.accept(context);
+    final TerminalNode headingLine = ctx.HEADINGLINE();
+    if (headingLine != null) {
+      assembler.endHeading(headingLine.getText());
+    }
   }
 
   @Override
@@ -258,57 +259,41 @@ public class MarkdownEventSource implements MarkdownListener {
 
   @Override
   public void exitList(ListContext ctx) {
-    final List<ListlineContext> textlines = ctx.listline();
-    lastBlocks.add(normalizeList(textlines));
+    assembler.endList();
   }
 
   @Override
   public void exitListline(ListlineContext ctx) {
-    // no action
-
+    final TerminalNode line = ctx.LISTLINE();
+    if (line != null) {
+      assembler.addLine(line.getText());
+    }
   }
 
   @Override
   public void exitParagraph(ParagraphContext ctx) {
-    final List<ParagraphlineContext> textlines = ctx.paragraphline();
-    lastBlocks.add(normalizeParagraph(textlines));
+    assembler.endParagraph();
   }
 
   @Override
   public void exitParagraphline(ParagraphlineContext ctx) {
-    // no action
-
+    final TerminalNode line = ctx.PARAGRAPHLINE();
+    if (line != null) {
+      assembler.addLine(line.getText());
+    }
   }
 
   @Override
   public void exitQuoteline(QuotelineContext ctx) {
-    // no action
-
+    final TerminalNode line = ctx.QUOTELINE();
+    if (line != null) {
+      assembler.addLine(line.getText());
+    }
   }
 
   @Override
   public void exitTable(TableContext ctx) {
-    if (!inTableHeading) {
-      final DetailTableImpl detailTable = new DetailTableImpl();
-      final List<TablerowContext> tablerows = ctx.tablerow();
-
-      for (final TablerowContext tablerow : tablerows) {
-        final MutableDetailProperties detail = detailTable.newRow();
-
-        for (int i = 0; i < tablerow.cell().size() && i < lastTableHeadings.size(); i++) {
-          final CellContext cell = tablerow.cell(i);
-          if (cell != null) {
-            detail.addProperty(lastTableHeadings.get(i), cell.getText());
-          } else {
-            logger.error("MarkdownEventSource table cell missing in column {}", i);
-          }
-        }
-      }
-      updateParentContext(detailTable);
-      if (contextConsumer != null) {
-        contextConsumer.accept(detailTable);
-      }
-    }
+    assembler.endTable();
   }
 
   @Override
@@ -319,24 +304,12 @@ public class MarkdownEventSource implements MarkdownListener {
 
   @Override
   public void exitTableheading(TableheadingContext ctx) {
-    inTableHeading = false;
+    assembler.endTableHeading();
   }
 
   @Override
   public void exitTablerow(TablerowContext ctx) {
-    if (!inTableHeading) {
-      final DetailImpl detail = new DetailImpl();
-      for (int i = 0; i < lastColumnNo && i < lastTableHeadings.size(); i++) {
-        final String value = lastRowValues.get(i);
-        if (!value.isBlank()) {
-          detail.addProperty(lastTableHeadings.get(i), value);
-        }
-      }
-      updateParentContext(detail);
-      if (contextConsumer != null) {
-        contextConsumer.accept(detail);
-      }
-    }
+    assembler.endTableRow();
   }
 
   @Override
@@ -351,36 +324,4 @@ public class MarkdownEventSource implements MarkdownListener {
 
   }
 
-  void updateParentContext(final MutableContext context) {
-    // Remove previous contexts at same or lower level
-    contexts.removeIf(c -> context.getLevel() <= c.getLevel());
-    final MutableContext lastContext = contexts.peekLast();
-
-    // Add top level context or lower level than parent
-    if (lastContext == null) {
-      contexts.add(context);
-    } else if (context.getLevel() > lastContext.getLevel()) {
-      context.setParent(lastContext);
-      contexts.add(context);
-    }
-  }
-
-  void updateParentContext(final MutableContextual contextual) {
-    final MutableContext lastContext = contexts.peekLast();
-    contextual.setParent(lastContext);
-  }
-
-  private String normalizeBlocks() {
-    return String.join("\n\n", lastBlocks);
-  }
-
-  private void supplyLastDocumentation() {
-    if (!lastBlocks.isEmpty()) {
-      final String paragraphs = normalizeBlocks();
-      final DocumentationImpl documentation = new DocumentationImpl(paragraphs);
-      updateParentContext(documentation);
-      contextConsumer.accept(documentation);
-    }
-  }
-
 }
@@ -0,0 +1,285 @@
+/*
+ * Copyright 2020 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package io.fixprotocol.md.event;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Writer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Writes text to another writer on its own thread
+ *
+ * Text is formatted into chunks on the calling thread, and a full chunk is handed to an I/O thread
+ * that writes it to the delegate writer. Chunks are reused from a fixed pool, so the caller blocks
+ * when every chunk is waiting to be written, and a slow disk slows but does not stall generation
+ * until the pool is exhausted.
+ *
+ * {@link #flush()} waits until all text written so far has been written and flushed by the
+ * delegate. {@link #close()} waits for all text to be written, then closes the delegate. A failure of
+ * the delegate is reported by the next write, flush or close. All calls to the delegate are made on
+ * the I/O thread.
+ *
+ * An instance is not synchronized, so it must have a single producer thread.
+ *
+ * <pre>
+ * try (DocumentWriter documentWriter =
+ *     new DocumentWriter(new AsyncWriter(new ChannelWriter(path)))) {
+ *   documentWriter.write(context);
+ * }
+ * </pre>
+ *
+ * @author Don Mendelson
+ *
+ */
+public final class AsyncWriter extends Writer {
+
+  private static final class Chunk {
+    final char[] chars;
+    Control control = Control.NONE;
+    int length = 0;
+
+    Chunk(int size) {
+      this.chars = new char[size];
+    }
+  }
+
+  private enum Control {
+    CLOSE, FLUSH, NONE
+  }
+
+  /**
+   * Number of chunks that may be in flight by default
+   */
+  public static final int DEFAULT_CAPACITY = 16;
+
+  /**
+   * Number of characters in a chunk
+   */
+  public static final int CHUNK_SIZE = 8 * 1024;
+
+  private static final Executor DEFAULT_EXECUTOR = DaemonThreads.executor("AsyncWriter");
+
+  private boolean closed = false;
+  private Chunk current;
+  private final Writer delegate;
+  private final CountDownLatch done = new CountDownLatch(1);
+  private volatile Throwable failure = null;
+  private final Semaphore flushed = new Semaphore(0);
+  private final BlockingQueue<Chunk> free;
+  private final BlockingQueue<Chunk> full;
+
+  /**
+   * Write to a writer on a daemon thread, with default capacity
+   *
+   * @param delegate destination of text
+   */
+  public AsyncWriter(Writer delegate) {
+    this(delegate, DEFAULT_CAPACITY, DEFAULT_EXECUTOR);
+  }
+
+  /**
+   * Write to a writer
+   *
+   * @param delegate destination of text
+   * @param capacity number of chunks that may be in flight, at least 2
+   * @param executor runs the I/O thread as a long-lived task. It must not run it on the calling
+   *        thread.
+   */
+  public AsyncWriter(Writer delegate, int capacity, Executor executor) {
+    if (capacity < 2) {
+      throw new IllegalArgumentException("Capacity must be at least 2 chunks");
+    }
+    this.delegate = delegate;
+    this.free = new ArrayBlockingQueue<>(capacity);
+    this.full = new ArrayBlockingQueue<>(capacity);
+    for (int i = 0; i < capacity - 1; i++) {
+      free.add(new Chunk(CHUNK_SIZE));
+    }
+    this.current = new Chunk(CHUNK_SIZE);
+    executor.execute(this::run);
+  }
+
+  /**
+   * Write remaining text and close the delegate
+   *
+   * @throws IOException if the delegate failed to write or close
+   */
+  @Override
+  public void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    current.control = Control.CLOSE;
+    put(current);
+    current = null;
+    try {
+      done.await();
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while closing writer");
+    }
+    checkFailure();
+  }
+
+  /**
+   * Wait until text written so far is written and flushed by the delegate
+   *
+   * @throws IOException if the delegate failed
+   */
+  @Override
+  public void flush() throws IOException {
+    ensureOpen();
+    current.control = Control.FLUSH;
+    handoff();
+    try {
+      flushed.acquire();
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while flushing writer");
+    }
+    checkFailure();
+  }
+
+  @Override
+  public void write(char[] cbuf, int off, int len) throws IOException {
+    ensureOpen();
+    int i = off;
+    final int end = off + len;
+    while (i < end) {
+      if (current.length == CHUNK_SIZE) {
+        handoff();
+      }
+      final int n = Math.min(end - i, CHUNK_SIZE - current.length);
+      System.arraycopy(cbuf, i, current.chars, current.length, n);
+      current.length += n;
+      i += n;
+    }
+  }
+
+  @Override
+  public void write(int c) throws IOException {
+    ensureOpen();
+    if (current.length == CHUNK_SIZE) {
+      handoff();
+    }
+    current.chars[current.length++] = (char) c;
+  }
+
+  @Override
+  public void write(String str, int off, int len) throws IOException {
+    ensureOpen();
+    int i = off;
+    final int end = off + len;
+    while (i < end) {
+      if (current.length == CHUNK_SIZE) {
+        handoff();
+      }
+      final int n = Math.min(end - i, CHUNK_SIZE - current.length);
+      str.getChars(i, i + n, current.chars, current.length);
+      current.length += n;
+      i += n;
+    }
+  }
+
+  private void checkFailure() throws IOException {
+    final Throwable cause = failure;
+    if (cause instanceof IOException) {
+      throw new IOException("Asynchronous write failed; " + cause.getMessage(), cause);
+    } else if (cause instanceof RuntimeException) {
+      throw (RuntimeException) cause;
+    } else if (cause != null) {
+      throw new IOException("Asynchronous write failed", cause);
+    }
+  }
+
+  private void ensureOpen() throws IOException {
+    if (closed) {
+      throw new IOException("Writer closed");
+    }
+    checkFailure();
+  }
+
+  /**
+   * Hand the current chunk to the I/O thread, and take a free one, blocking if none is free
+   */
+  private void handoff() throws IOException {
+    checkFailure();
+    put(current);
+    try {
+      current = free.take();
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for writer");
+    }
+  }
+
+  private void put(Chunk chunk) throws InterruptedIOException {
+    try {
+      full.put(chunk);
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while handing off text");
+    }
+  }
+
+  private void run() {
+    try {
+      for (;;) {
+        final Chunk chunk = full.take();
+        final Control control = chunk.control;
+        if (failure == null) {
+          try {
+            delegate.write(chunk.chars, 0, chunk.length);
+            if (control == Control.FLUSH) {
+              delegate.flush();
+            }
+          } catch (final Throwable e) {
+            // keep draining so that the producer is not blocked
+            failure = e;
+          }
+        }
+        if (control == Control.CLOSE) {
+          break;
+        }
+        chunk.length = 0;
+        chunk.control = Control.NONE;
+        free.add(chunk);
+        if (control == Control.FLUSH) {
+          flushed.release();
+        }
+      }
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      failure = e;
+    } finally {
+      try {
+        delegate.close();
+      } catch (final Throwable e) {
+        if (failure == null) {
+          failure = e;
+        }
+      }
+      // release a producer that may be waiting for a flush
+      flushed.release();
+      done.countDown();
+    }
+  }
+}
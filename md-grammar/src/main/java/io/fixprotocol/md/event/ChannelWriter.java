@@ -0,0 +1,231 @@
+/*
+ * Copyright 2020 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package io.fixprotocol.md.event;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes UTF-8 text to a byte channel
+ *
+ * Characters are encoded into a reusable direct buffer that is written to the channel when it is
+ * full, on {@link #flush()} and on {@link #close()}. ASCII characters, which are nearly all of a
+ * generated markdown document, are copied as bytes without a {@code CharsetEncoder}; other
+ * characters are encoded as UTF-8. As with {@link java.io.OutputStreamWriter}, a malformed
+ * surrogate is written as {@code '?'}.
+ *
+ * Unlike other writers, an instance is not synchronized, so it must be confined to one thread.
+ *
+ * @author Don Mendelson
+ *
+ */
+public final class ChannelWriter extends Writer {
+
+  /**
+   * Default size of the buffer in bytes
+   */
+  public static final int DEFAULT_CAPACITY = 64 * 1024;
+
+  // longest UTF-8 encoding of a code point
+  private static final int MAX_BYTES_PER_CHAR = 4;
+
+  private final ByteBuffer buffer;
+  private final WritableByteChannel channel;
+  private boolean closed = false;
+  // high surrogate waiting for the next write
+  private char pendingHighSurrogate = 0;
+
+  /**
+   * Create a file, or replace its contents, and write to it
+   *
+   * @param path file to write
+   * @throws IOException if the file cannot be opened
+   */
+  public ChannelWriter(Path path) throws IOException {
+    this(FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+        StandardOpenOption.WRITE));
+  }
+
+  /**
+   * Write to a channel with a buffer of default size
+   *
+   * @param channel destination of bytes. It is closed when this writer is closed.
+   */
+  public ChannelWriter(WritableByteChannel channel) {
+    this(channel, DEFAULT_CAPACITY);
+  }
+
+  /**
+   * Write to a channel
+   *
+   * @param channel destination of bytes. It is closed when this writer is closed.
+   * @param capacity size of the buffer in bytes
+   */
+  public ChannelWriter(WritableByteChannel channel, int capacity) {
+    if (capacity < MAX_BYTES_PER_CHAR) {
+      throw new IllegalArgumentException("Buffer capacity too small");
+    }
+    this.channel = channel;
+    this.buffer = ByteBuffer.allocateDirect(capacity);
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (!closed) {
+      try {
+        if (pendingHighSurrogate != 0) {
+          pendingHighSurrogate = 0;
+          ensureRemaining(1);
+          buffer.put((byte) '?');
+        }
+        drain();
+      } finally {
+        closed = true;
+        channel.close();
+      }
+    }
+  }
+
+  /**
+   * Write buffered bytes to the channel
+   *
+   * A high surrogate remains buffered until its low surrogate is written.
+   */
+  @Override
+  public void flush() throws IOException {
+    ensureOpen();
+    drain();
+  }
+
+  @Override
+  public void write(char[] cbuf, int off, int len) throws IOException {
+    ensureOpen();
+    final int end = off + len;
+    int i = off;
+    while (i < end) {
+      ensureRemaining(MAX_BYTES_PER_CHAR);
+      // ASCII run bounded to leave room in the buffer for the character that ends it
+      final int runEnd = Math.min(end, i + buffer.remaining() - MAX_BYTES_PER_CHAR + 1);
+      if (pendingHighSurrogate == 0) {
+        char c;
+        while (i < runEnd && (c = cbuf[i]) < 0x80) {
+          buffer.put((byte) c);
+          i++;
+        }
+      }
+      if (i < runEnd) {
+        putNonAscii(cbuf[i]);
+        i++;
+      }
+    }
+  }
+
+  @Override
+  public void write(int c) throws IOException {
+    ensureOpen();
+    ensureRemaining(MAX_BYTES_PER_CHAR);
+    if (c < 0x80 && pendingHighSurrogate == 0) {
+      buffer.put((byte) c);
+    } else {
+      putNonAscii((char) c);
+    }
+  }
+
+  @Override
+  public void write(String str, int off, int len) throws IOException {
+    ensureOpen();
+    final int end = off + len;
+    int i = off;
+    while (i < end) {
+      ensureRemaining(MAX_BYTES_PER_CHAR);
+      final int runEnd = Math.min(end, i + buffer.remaining() - MAX_BYTES_PER_CHAR + 1);
+      if (pendingHighSurrogate == 0) {
+        char c;
+        while (i < runEnd && (c = str.charAt(i)) < 0x80) {
+          buffer.put((byte) c);
+          i++;
+        }
+      }
+      if (i < runEnd) {
+        putNonAscii(str.charAt(i));
+        i++;
+      }
+    }
+  }
+
+  private void drain() throws IOException {
+    buffer.flip();
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+    buffer.clear();
+  }
+
+  private void ensureOpen() throws IOException {
+    if (closed) {
+      throw new IOException("Writer closed");
+    }
+  }
+
+  private void ensureRemaining(int bytes) throws IOException {
+    if (buffer.remaining() < bytes) {
+      drain();
+    }
+  }
+
+  /**
+   * Encode a character as UTF-8, or hold it if it is a high surrogate. Requires room in the buffer
+   * for 4 bytes, which is enough for a surrogate pair, or for {@code '?'} in place of an unpaired
+   * high surrogate followed by any other character of the basic plane.
+   */
+  private void putNonAscii(char c) {
+    if (pendingHighSurrogate != 0) {
+      final char high = pendingHighSurrogate;
+      pendingHighSurrogate = 0;
+      if (Character.isLowSurrogate(c)) {
+        final int codePoint = Character.toCodePoint(high, c);
+        buffer.put((byte) (0xf0 | (codePoint >> 18)));
+        buffer.put((byte) (0x80 | ((codePoint >> 12) & 0x3f)));
+        buffer.put((byte) (0x80 | ((codePoint >> 6) & 0x3f)));
+        buffer.put((byte) (0x80 | (codePoint & 0x3f)));
+        return;
+      }
+      buffer.put((byte) '?');
+    }
+    putChar(c);
+  }
+
+  private void putChar(char c) {
+    if (c < 0x80) {
+      buffer.put((byte) c);
+    } else if (c < 0x800) {
+      buffer.put((byte) (0xc0 | (c >> 6)));
+      buffer.put((byte) (0x80 | (c & 0x3f)));
+    } else if (Character.isHighSurrogate(c)) {
+      pendingHighSurrogate = c;
+    } else if (Character.isLowSurrogate(c)) {
+      buffer.put((byte) '?');
+    } else {
+      buffer.put((byte) (0xe0 | (c >> 12)));
+      buffer.put((byte) (0x80 | ((c >> 6) & 0x3f)));
+      buffer.put((byte) (0x80 | (c & 0x3f)));
+    }
+  }
+}
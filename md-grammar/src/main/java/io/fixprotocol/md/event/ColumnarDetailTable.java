@@ -0,0 +1,82 @@
+/*
+ * Copyright 2020 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package io.fixprotocol.md.event;
+
+/**
+ * A table that stores its column keys once, and the values of each row by column ordinal
+ *
+ * Access by ordinal avoids a key lookup for each value. Access by key remains available through
+ * {@link DetailProperties}.
+ *
+ * @author Don Mendelson
+ *
+ */
+public interface ColumnarDetailTable extends MutableDetailTable {
+
+  /**
+   * A row of a columnar table
+   */
+  interface Row extends MutableDetailProperties {
+
+    /**
+     * Sets a value by column ordinal
+     *
+     * @param ordinal column ordinal, as returned by {@link ColumnarDetailTable#addColumn(String)}
+     * @param value value of the property. It is stripped of markdown cell escapes, and ignored if
+     *        it is {@code null} or empty.
+     */
+    void addProperty(int ordinal, String value);
+
+    /**
+     * Access a property by its column ordinal
+     *
+     * @param ordinal column ordinal
+     * @return value of the property, or {@code null} if it does not exist
+     */
+    String getProperty(int ordinal);
+  }
+
+  /**
+   * Adds a column if its key is new
+   *
+   * @param key key of the column. Keys are case-insensitive.
+   * @return ordinal of the column
+   */
+  int addColumn(String key);
+
+  /**
+   * @return number of columns
+   */
+  int getColumnCount();
+
+  /**
+   * Access the key of a column
+   *
+   * @param ordinal column ordinal
+   * @return key of the column in lower case
+   */
+  String getColumnKey(int ordinal);
+
+  /**
+   * Finds the ordinal of a column
+   *
+   * @param key key of the column. Keys are case-insensitive.
+   * @return ordinal of the column, or {@code -1} if the table has no column with the key
+   */
+  int getOrdinal(String key);
+
+  @Override
+  Row newRow();
+}
@@ -46,6 +46,36 @@ public interface Context extends Contextual {
    */
   String getKeyValue(String key);
 
+  /**
+   * Returns this Context or the nearest ancestor that has a keyword or is at the top level
+   *
+   * A Context supplied by a parser that was given the same vocabulary returns a result resolved
+   * when it was parsed. Otherwise, the parent chain is searched.
+   *
+   * @param vocabulary keywords of a consumer
+   * @return the key Context, or {@code null} if there is none
+   */
+  @Override
+  default Context getKeyContext(KeywordVocabulary vocabulary) {
+    Context context = this;
+    while (context != null && context.getLevel() != DEFAULT_LEVEL
+        && context.getKeyword(vocabulary) == null) {
+      context = context.getParent();
+    }
+    return context;
+  }
+
+  /**
+   * Classifies this Context by its first key
+   *
+   * @param vocabulary keywords of a consumer
+   * @return the keyword that matches the first key, or {@code null} if it is not a keyword
+   */
+  default String getKeyword(KeywordVocabulary vocabulary) {
+    final String key = getKey(0);
+    return key != null ? vocabulary.keywordOf(key) : null;
+  }
+
   /**
    *
    * @return outline level, 1-based
@@ -32,6 +32,12 @@ public class ContextFactory {
     return new DetailImpl();
   }
 
+  /**
+   * Create a table
+   *
+   * @return a mutable table with columnar storage, which also implements
+   *         {@link ColumnarDetailTable}
+   */
   public MutableDetailTable createDetailTable() {
     return new DetailTableImpl();
   }
@@ -61,4 +67,15 @@ public class ContextFactory {
     return new DocumentationImpl(documentation, format);
   }
 
+  /**
+   * Create a table column
+   *
+   * @param key data key of values in the column. Its heading is the key in title case unless set.
+   * @param width expected width of values, used as a hint when a table is written row by row
+   * @return a mutable table column
+   */
+  public MutableTableColumn createTableColumn(String key, int width) {
+    return DetailTableImpl.createTableColumn(key, width);
+  }
+
 }
@@ -16,4 +16,16 @@ public interface Contextual {
    */
   Context getParent();
 
+  /**
+   * Returns the Context that determines how an object is interpreted
+   *
+   * @param vocabulary keywords of a consumer
+   * @return the key Context of the parent, or {@code null} if there is no parent
+   * @see Context#getKeyContext(KeywordVocabulary)
+   */
+  default Context getKeyContext(KeywordVocabulary vocabulary) {
+    final Context parent = getParent();
+    return parent != null ? parent.getKeyContext(vocabulary) : null;
+  }
+
 }
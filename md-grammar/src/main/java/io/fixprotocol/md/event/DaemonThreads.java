@@ -0,0 +1,57 @@
+/*
+ * Copyright 2020 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package io.fixprotocol.md.event;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Default executors of this package
+ *
+ * An executor returned here starts a new daemon thread for every task, so it is only suitable for
+ * a caller that submits a bounded number of long-running tasks, such as one per route or per
+ * parse. It must not be given to a component that resubmits work repeatedly, such as a
+ * {@link java.util.concurrent.SubmissionPublisher}.
+ *
+ * @author Don Mendelson
+ *
+ */
+final class DaemonThreads {
+
+  /**
+   * Returns an executor that runs each task on a new daemon thread
+   *
+   * @param name name of each thread
+   * @return an executor
+   */
+  static Executor executor(String name) {
+    final ThreadFactory threadFactory = threadFactory(name);
+    return runnable -> threadFactory.newThread(runnable).start();
+  }
+
+  /**
+   * Returns a factory of daemon threads
+   *
+   * @param name name of each thread
+   * @return a thread factory
+   */
+  static ThreadFactory threadFactory(String name) {
+    return runnable -> {
+      final Thread thread = new Thread(runnable, name);
+      thread.setDaemon(true);
+      return thread;
+    };
+  }
+}
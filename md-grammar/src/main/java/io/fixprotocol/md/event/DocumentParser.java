@@ -14,26 +14,344 @@
  */
 package io.fixprotocol.md.event;
 
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import org.antlr.v4.runtime.ANTLRErrorListener;
+import org.antlr.v4.runtime.ANTLRErrorStrategy;
+import org.antlr.v4.runtime.BailErrorStrategy;
 import org.antlr.v4.runtime.BaseErrorListener;
+import org.antlr.v4.runtime.CharStream;
 import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CodePointBuffer;
+import org.antlr.v4.runtime.CodePointCharStream;
+import org.antlr.v4.runtime.CommonTokenFactory;
 import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.ConsoleErrorListener;
+import org.antlr.v4.runtime.DefaultErrorStrategy;
 import org.antlr.v4.runtime.RecognitionException;
 import org.antlr.v4.runtime.Recognizer;
+import org.antlr.v4.runtime.UnbufferedCharStream;
+import org.antlr.v4.runtime.UnbufferedTokenStream;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
 import org.antlr.v4.runtime.tree.ParseTreeListener;
 import org.antlr.v4.runtime.tree.ParseTreeWalker;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import io.fixprotocol.md.antlr.MarkdownBaseListener;
+import io.fixprotocol.md.antlr.AsciiCharStream;
+import io.fixprotocol.md.antlr.HeadingRecoveryStrategy;
 import io.fixprotocol.md.antlr.MarkdownEventSource;
 import io.fixprotocol.md.antlr.MarkdownLexer;
 import io.fixprotocol.md.antlr.MarkdownParser;
 import io.fixprotocol.md.antlr.MarkdownParser.DocumentContext;
+import io.fixprotocol.md.event.mutable.ContextBinder;
+import io.fixprotocol.md.event.mutable.EventAssembler;
+import io.fixprotocol.md.scanner.MarkdownScanner;
 
+/**
+ * Parses markdown documents and supplies their events to a consumer
+ *
+ * A DocumentParser is immutable once built, and may be shared by threads. Each thread reuses its
+ * own lexer and parser for successive documents. The DFA and prediction context cache of the
+ * generated lexer and parser are shared by all threads, so prediction learned from one document
+ * speeds up parsing of all later documents; see {@link #warmUp()}.
+ *
+ * @author Don Mendelson
+ *
+ */
 public final class DocumentParser {
-  
+
+  /**
+   * Builds an instance of DocumentParser
+   */
+  public static class Builder {
+    private Engine engine = Engine.ANTLR;
+    private int errorLimit = Integer.MAX_VALUE;
+    private ErrorRecovery errorRecovery = ErrorRecovery.DEFAULT;
+    private Executor executor = DEFAULT_EXECUTOR;
+    private ForkJoinPool forkJoinPool = null;
+    private int handoffCapacity = DEFAULT_HANDOFF_CAPACITY;
+    private boolean lazyValues = false;
+    private PredictionStrategy predictionStrategy = PredictionStrategy.TWO_STAGE;
+    private int recoveryLimit = DEFAULT_RECOVERY_LIMIT;
+    private boolean streaming = false;
+    private TableEvents tableEvents = TableEvents.ROWS_AND_TABLE;
+    private KeywordVocabulary vocabulary = null;
+
+    public DocumentParser build() {
+      return new DocumentParser(this);
+    }
+
+    /**
+     * Parser engine
+     *
+     * @param engine defaults to {@link Engine#ANTLR}
+     * @return this Builder
+     */
+    public Builder engine(Engine engine) {
+      this.engine = engine;
+      return this;
+    }
+
+    /**
+     * Maximum number of errors to report when validating a document
+     *
+     * Validation stops at the error that reaches the limit, so a limit of 1 fails fast on the
+     * first error. Parsing for events is not limited.
+     *
+     * @param errorLimit number of errors after which validation stops. Default is no limit.
+     * @return this Builder
+     */
+    public Builder errorLimit(int errorLimit) {
+      if (errorLimit < 1) {
+        throw new IllegalArgumentException("Error limit must be positive");
+      }
+      this.errorLimit = errorLimit;
+      return this;
+    }
+
+    /**
+     * Strategy to recover from a syntax error
+     *
+     * @param errorRecovery defaults to {@link ErrorRecovery#DEFAULT}
+     * @return this Builder
+     */
+    public Builder errorRecovery(ErrorRecovery errorRecovery) {
+      this.errorRecovery = errorRecovery;
+      return this;
+    }
+
+    /**
+     * Executor to parse a document when its events are consumed on another thread
+     *
+     * @param executor runs parses for {@code stream}, {@code iterator} and {@code publisher}.
+     *        Default starts a daemon thread per parse. A publisher delivers events to each
+     *        subscriber on a separate thread.
+     * @return this Builder
+     */
+    public Builder executor(Executor executor) {
+      this.executor = executor;
+      return this;
+    }
+
+    /**
+     * Capacity of the queue between a parser and a consumer on another thread
+     *
+     * @param handoffCapacity maximum number of events parsed ahead of a consumer. Default is
+     *        {@value DocumentParser#DEFAULT_HANDOFF_CAPACITY}.
+     * @return this Builder
+     */
+    public Builder handoffCapacity(int handoffCapacity) {
+      if (handoffCapacity < 1) {
+        throw new IllegalArgumentException("Handoff capacity must be positive");
+      }
+      this.handoffCapacity = handoffCapacity;
+      return this;
+    }
+
+    /**
+     * Keywords of the consumer, by which each heading is classified as it is parsed
+     *
+     * A consumer then finds the keyword and key Context of an event in constant time with
+     * {@link Contextual#getKeyContext(KeywordVocabulary)} and
+     * {@link Context#getKeyword(KeywordVocabulary)}, given the same vocabulary instance.
+     *
+     * @param vocabulary keywords of the consumer. Default is {@code null}, for no classification.
+     * @return this Builder
+     */
+    public Builder keywordVocabulary(KeywordVocabulary vocabulary) {
+      this.vocabulary = vocabulary;
+      return this;
+    }
+
+    /**
+     * Hold table cell values as views of the document until they are accessed
+     *
+     * A value is copied and trimmed when a consumer first reads it, so columns that are never read
+     * are never copied. Events then keep the document text in memory while they are referenced.
+     * This mode applies when the whole document is held as characters: with
+     * {@link Engine#SCANNER}, or with {@link Engine#ANTLR} for an ASCII file. Otherwise, values are
+     * copied while parsing.
+     *
+     * @param lazyValues {@code true} to defer copying of cell values. Default is {@code false}.
+     * @return this Builder
+     */
+    public Builder lazyValues(boolean lazyValues) {
+      this.lazyValues = lazyValues;
+      return this;
+    }
+
+    /**
+     * Parse sections of a document concurrently in the common pool
+     *
+     * @param parallel {@code true} to parse sections concurrently. Default is {@code false}.
+     * @return this Builder
+     * @see #parallel(ForkJoinPool)
+     */
+    public Builder parallel(boolean parallel) {
+      this.forkJoinPool = parallel ? ForkJoinPool.commonPool() : null;
+      return this;
+    }
+
+    /**
+     * Parse sections of a document concurrently
+     *
+     * A document is split at level-1 and level-2 headings, and sections are parsed as separate
+     * tasks. Events are still supplied to a consumer in document order on the calling thread, and
+     * for a valid document they are the same as a sequential parse, including their parents. Errors
+     * are reported with line numbers of the whole document, but recovery from an error ends at a
+     * section boundary. Streaming mode does not apply, since a section is parsed from memory.
+     *
+     * @param forkJoinPool pool to run section parses, or {@code null} to parse sequentially
+     * @return this Builder
+     */
+    public Builder parallel(ForkJoinPool forkJoinPool) {
+      this.forkJoinPool = forkJoinPool;
+      return this;
+    }
+
+    /**
+     * Strategy for adaptive prediction of the parser
+     *
+     * @param predictionStrategy defaults to {@link PredictionStrategy#TWO_STAGE}
+     * @return this Builder
+     */
+    public Builder predictionStrategy(PredictionStrategy predictionStrategy) {
+      this.predictionStrategy = predictionStrategy;
+      return this;
+    }
+
+    /**
+     * Maximum number of errors to recover from in a document with {@link ErrorRecovery#HEADING}
+     *
+     * @param recoveryLimit after this number of errors, the rest of a document is ignored. Default
+     *        is {@value DocumentParser#DEFAULT_RECOVERY_LIMIT}.
+     * @return this Builder
+     */
+    public Builder recoveryLimit(int recoveryLimit) {
+      if (recoveryLimit < 0) {
+        throw new IllegalArgumentException("Recovery limit must not be negative");
+      }
+      this.recoveryLimit = recoveryLimit;
+      return this;
+    }
+
+    /**
+     * Parse in streaming mode
+     *
+     * In streaming mode, input is read through unbuffered character and token streams, and no parse
+     * tree is built. Events are supplied to a consumer while the parse runs, so memory is bounded by
+     * the largest single block rather than the whole document. Since input cannot be rewound, the
+     * prediction strategy is ignored and full LL prediction is always used.
+     *
+     * @param streaming {@code true} to parse in streaming mode. Default is {@code false}.
+     * @return this Builder
+     */
+    public Builder streaming(boolean streaming) {
+      this.streaming = streaming;
+      return this;
+    }
+
+    /**
+     * Events supplied for a table
+     *
+     * @param tableEvents defaults to {@link TableEvents#ROWS_AND_TABLE}
+     * @return this Builder
+     */
+    public Builder tableEvents(TableEvents tableEvents) {
+      this.tableEvents = tableEvents;
+      return this;
+    }
+  }
+
+  /**
+   * Parser engines
+   */
+  public enum Engine {
+    /**
+     * Parser generated by ANTLR from the markdown grammar
+     */
+    ANTLR,
+    /**
+     * Hand-written scanner and recursive descent parser that recognizes the same grammar. It
+     * supplies the same events for a valid document without creating tokens or a parse tree. A
+     * document with a syntax error is parsed again by the ANTLR parser from the start, so its
+     * events and errors are also the same. The prediction strategy and streaming mode do not
+     * apply to the scan.
+     */
+    SCANNER
+  }
+
+  /**
+   * Strategies to recover from a syntax error with {@link Engine#ANTLR}
+   */
+  public enum ErrorRecovery {
+    /**
+     * ANTLR default recovery, which repairs a single missing or extra token, and otherwise
+     * resynchronizes within the rule that failed
+     */
+    DEFAULT,
+    /**
+     * Discard input up to the next heading, so that each following section is parsed as in a
+     * correct document. Only the first error of a section is reported, and the cost of recovery is
+     * bounded by the size of the discarded input. See {@link HeadingRecoveryStrategy}.
+     */
+    HEADING
+  }
+
+  /**
+   * Prediction stage that completed a parse
+   */
+  public enum PredictionStage {
+    /**
+     * Full context LL prediction with the configured error recovery
+     */
+    LL,
+    /**
+     * Strong LL prediction that bails out on the first syntax error
+     */
+    SLL
+  }
+
+  /**
+   * Strategies for adaptive prediction of the parser
+   */
+  public enum PredictionStrategy {
+    /**
+     * Always parse with full LL prediction
+     */
+    LL,
+    /**
+     * Parse first with faster SLL prediction, and reparse with full LL only if SLL fails. The result
+     * is the same as {@link #LL}, but a correct document is usually parsed in the first stage.
+     */
+    TWO_STAGE
+  }
+
   /**
    * Listens for parser errors
    */
@@ -41,13 +359,157 @@ public final class DocumentParser {
     void parseError(int line, int charPositionInLine, String msg);
   }
 
-  private static class SyntaxErrorListener extends BaseErrorListener {
+  /**
+   * Counts bytes read from a stream for statistics
+   */
+  private static final class CountingInputStream extends FilterInputStream {
+    private final ParseStatistics statistics;
+
+    CountingInputStream(InputStream in, ParseStatistics statistics) {
+      super(in);
+      this.statistics = statistics;
+    }
+
+    @Override
+    public int read() throws IOException {
+      final int b = super.read();
+      if (b != -1) {
+        statistics.addBytes(1);
+      }
+      return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      final int n = super.read(b, off, len);
+      if (n > 0) {
+        statistics.addBytes(n);
+      }
+      return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+      final long skipped = super.skip(n);
+      statistics.addBytes(skipped);
+      return skipped;
+    }
+  }
+
+  /**
+   * Lexer and parser of a thread, reused for each document that it parses
+   */
+  private static final class Recognizers {
+    private final CharStream empty = CharStreams.fromString("");
+    private boolean inUse = false;
+    private final MarkdownLexer lexer = new MarkdownLexer(empty);
+    private final MarkdownParser parser;
+    private final CommonTokenStream tokenStream = new CommonTokenStream(lexer);
+
+    Recognizers() {
+      parser = new MarkdownParser(tokenStream);
+    }
+
+    /**
+     * Reset the lexer and parser to read a document
+     *
+     * @param charStream input as markdown
+     * @return a parser with only the default error listener
+     */
+    MarkdownParser acquire(CharStream charStream) {
+      inUse = true;
+      lexer.setInputStream(charStream);
+      tokenStream.setTokenSource(lexer);
+      parser.setTokenStream(tokenStream);
+      parser.setBuildParseTree(true);
+      parser.setErrorHandler(new DefaultErrorStrategy());
+      parser.removeErrorListeners();
+      parser.addErrorListener(ConsoleErrorListener.INSTANCE);
+      return parser;
+    }
+
+    /**
+     * Release the last document so that it is not retained by an idle thread
+     */
+    void release() {
+      lexer.setInputStream(empty);
+      tokenStream.setTokenSource(lexer);
+      parser.setTokenStream(tokenStream);
+      parser.removeErrorListeners();
+      inUse = false;
+    }
+  }
+
+  /**
+   * Stops a scan at its first syntax error
+   */
+  private static final class ScanStoppedException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    ScanStoppedException(String message) {
+      super(message, null, false, false);
+    }
+  }
+
+  /**
+   * Events and errors of a section of a document, parsed on its own
+   */
+  static final class Section {
+    final List<SectionError> errors = new ArrayList<>();
+    final List<Contextual> events = new ArrayList<>();
+    int lines = 0;
+
+    /**
+     * Supply events of this section to a consumer, and report its errors
+     *
+     * @param binder binds events to parents in document order
+     * @param contextConsumer consumer of document events
+     * @param errorListener listens for parser errors
+     * @param lineOffset number of lines in the document before this section
+     */
+    void deliver(ContextBinder binder, Consumer<? super Contextual> contextConsumer,
+        SyntaxErrorListener errorListener, int lineOffset) {
+      for (final SectionError error : errors) {
+        errorListener.parseError(error.line + lineOffset, error.charPositionInLine, error.msg);
+      }
+      for (final Contextual contextual : events) {
+        binder.bind(contextual);
+        contextConsumer.accept(contextual);
+      }
+    }
+  }
+
+  private static final class SectionError {
+    final int charPositionInLine;
+    final int line;
+    final String msg;
+
+    SectionError(int line, int charPositionInLine, String msg) {
+      this.line = line;
+      this.charPositionInLine = charPositionInLine;
+      this.msg = msg;
+    }
+  }
+
+  static class SyntaxErrorListener extends BaseErrorListener
+      implements ParserErrorListener {
     private final Logger logger = LogManager.getLogger(getClass());
     private int errors = 0;
+    private final int errorLimit;
     private final ParserErrorListener errorListener;
 
     public SyntaxErrorListener(ParserErrorListener errorListener) {
+      this(errorListener, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param errorListener listens for parser errors. May be {@code null}.
+     * @param errorLimit after this number of errors, the parse is cancelled by throwing
+     *        {@code ParseCancellationException}
+     */
+    public SyntaxErrorListener(ParserErrorListener errorListener, int errorLimit) {
       this.errorListener = errorListener;
+      this.errorLimit = errorLimit;
     }
 
     public int getErrors() {
@@ -55,13 +517,21 @@ public final class DocumentParser {
     }
 
     @Override
-    public void syntaxError(Recognizer<?, ?> recognizer, Object offendingSymbol, int line,
-        int charPositionInLine, String msg, RecognitionException e) {
+    public void parseError(int line, int charPositionInLine, String msg) {
       errors++;
       logError(line, charPositionInLine, msg);
       if (errorListener != null) {
         errorListener.parseError(line, charPositionInLine, msg);
       }
+      if (errors >= errorLimit) {
+        throw new ParseCancellationException("Error limit " + errorLimit + " reached");
+      }
+    }
+
+    @Override
+    public void syntaxError(Recognizer<?, ?> recognizer, Object offendingSymbol, int line,
+        int charPositionInLine, String msg, RecognitionException e) {
+      parseError(line, charPositionInLine, msg);
     }
 
     void logError(int line, int charPositionInLine, String msg) {
@@ -69,7 +539,242 @@ public final class DocumentParser {
           charPositionInLine, msg);
     }
   }
-  
+
+  /**
+   * Events supplied for a table
+   */
+  public enum TableEvents {
+    /**
+     * A {@link Detail} for each row as it is parsed, and then the whole table as a
+     * {@link DetailTable}
+     */
+    ROWS_AND_TABLE,
+    /**
+     * A {@link TableStart} with the column headings, a {@link Detail} for each row as it is parsed,
+     * and a {@link TableEnd}. Rows are not retained after they are supplied, so a consumer can
+     * process a table of any size as it arrives.
+     */
+    ROWS,
+    /**
+     * Only the whole table as a {@link DetailTable}
+     */
+    TABLE
+  }
+
+  /**
+   * Default capacity of the queue between a parser and a consumer on another thread
+   */
+  public static final int DEFAULT_HANDOFF_CAPACITY = 256;
+
+  /**
+   * Default maximum number of errors to recover from in a document with
+   * {@link ErrorRecovery#HEADING}
+   */
+  public static final int DEFAULT_RECOVERY_LIMIT = 100;
+
+  private static final ThreadLocal<Recognizers> RECOGNIZERS =
+      ThreadLocal.withInitial(Recognizers::new);
+
+  // exercises every rule of the grammar
+  static final String WARM_UP_SAMPLE = "# Heading\n" + "\n"
+      + "Paragraph with `literal` text\n" + "and a second line\n" + "\n" + "- list item\n"
+      + "1. numbered item\n" + "\n" + "> quote with `literal`\n" + "\n" + "## Table\n" + "\n"
+      + "| Name | Tag | Description |\n" + "|------|----:|:-----------:|\n"
+      + "| Side | 54 | Side of \\| order |\n" + "| OrderQty | 38 | |\n" + "\n" + "```xml\n"
+      + "<sample/>\n" + "```\n";
+
+  private static final Executor DEFAULT_EXECUTOR = DaemonThreads.executor("DocumentParser");
+
+  // chunks per worker thread in parallel mode to balance uneven sections
+  private static final int CHUNKS_PER_WORKER = 4;
+  // highest heading level at which a document is split in parallel mode
+  private static final int SECTION_LEVEL = 2;
+  private static final int STREAM_BUFFER_SIZE = 4096;
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  private static ByteBuffer map(Path path) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      final long size = channel.size();
+      if (size > Integer.MAX_VALUE) {
+        throw new IOException("Markdown file too large to map: " + path);
+      }
+      // mapping remains valid after the channel is closed
+      return channel.map(MapMode.READ_ONLY, 0, size);
+    }
+  }
+
+  /**
+   * Read a markdown file into memory
+   *
+   * @param path markdown file
+   * @return text of the file, mapped in place if it is ASCII
+   * @throws IOException if the file cannot be read
+   */
+  static CharSequence readText(Path path) throws IOException {
+    return textOf(map(path), path);
+  }
+
+  static String readText(InputStream inputStream) throws IOException {
+    return new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+  }
+
+  private static CharStream streamOf(ByteBuffer buffer, Path path) {
+    if (AsciiCharStream.isAscii(buffer)) {
+      return new AsciiCharStream(buffer, path.toString());
+    } else {
+      // code points are stored as bytes if all are Latin-1
+      final CharBuffer chars = StandardCharsets.UTF_8.decode(buffer);
+      final CodePointBuffer.Builder codePoints = CodePointBuffer.builder(chars.remaining());
+      codePoints.append(chars);
+      return CodePointCharStream.fromBuffer(codePoints.build(), path.toString());
+    }
+  }
+
+  /**
+   * Get the lexer and parser of the current thread
+   *
+   * @return recognizers of this thread, or new ones if they are in use by a parse that is still
+   *         supplying events, as when a consumer parses another document
+   */
+  private static Recognizers recognizers() {
+    final Recognizers recognizers = RECOGNIZERS.get();
+    return recognizers.inUse ? new Recognizers() : recognizers;
+  }
+
+  private static CharStream streamOf(InputStream inputStream) {
+    return new UnbufferedCharStream(inputStream, STREAM_BUFFER_SIZE, StandardCharsets.UTF_8);
+  }
+
+  private static CharSequence textOf(ByteBuffer buffer, Path path) {
+    if (AsciiCharStream.isAscii(buffer)) {
+      return new AsciiCharStream(buffer, path.toString());
+    } else {
+      return StandardCharsets.UTF_8.decode(buffer);
+    }
+  }
+
+  private static CharSequence textOf(FileChannel channel, Path path, long start, long end)
+      throws IOException {
+    return textOf(channel.map(MapMode.READ_ONLY, start, end - start), path);
+  }
+
+  private final Engine engine;
+  private final int errorLimit;
+  private final ErrorRecovery errorRecovery;
+  private final Executor executor;
+  private final ForkJoinPool forkJoinPool;
+  private final int handoffCapacity;
+  private final boolean lazyValues;
+  private final AtomicLong llParses = new AtomicLong();
+  private final Logger logger = LogManager.getLogger(getClass());
+  private final PredictionStrategy predictionStrategy;
+  private final int recoveryLimit;
+  private final AtomicLong sllParses = new AtomicLong();
+  private final boolean streaming;
+  private final TableEvents tableEvents;
+  private final KeywordVocabulary vocabulary;
+
+  /**
+   * Create a parser with default settings
+   */
+  public DocumentParser() {
+    this(builder());
+  }
+
+  private DocumentParser(Builder builder) {
+    this.engine = builder.engine;
+    this.errorLimit = builder.errorLimit;
+    this.executor = builder.executor;
+    this.forkJoinPool = builder.forkJoinPool;
+    this.handoffCapacity = builder.handoffCapacity;
+    this.lazyValues = builder.lazyValues;
+    this.errorRecovery = builder.errorRecovery;
+    this.recoveryLimit = builder.recoveryLimit;
+    this.predictionStrategy = builder.predictionStrategy;
+    this.streaming = builder.streaming;
+    this.tableEvents = builder.tableEvents;
+    this.vocabulary = builder.vocabulary;
+  }
+
+  /**
+   * @return the parser engine
+   */
+  public Engine getEngine() {
+    return engine;
+  }
+
+  /**
+   * Reports how many documents were parsed by this parser in a prediction stage. With
+   * {@link PredictionStrategy#TWO_STAGE}, the count for {@link PredictionStage#LL} tells how often
+   * the fallback to full LL prediction ran. In parallel mode, each chunk of a document counts as a
+   * parse.
+   *
+   * @param stage prediction stage
+   * @return number of parses completed in the stage
+   */
+  public long getParseCount(PredictionStage stage) {
+    return stage == PredictionStage.SLL ? sllParses.get() : llParses.get();
+  }
+
+  /**
+   * @return the maximum number of errors to report when validating a document
+   */
+  public int getErrorLimit() {
+    return errorLimit;
+  }
+
+  /**
+   * @return the strategy to recover from a syntax error
+   */
+  public ErrorRecovery getErrorRecovery() {
+    return errorRecovery;
+  }
+
+  /**
+   * @return the strategy for adaptive prediction of this parser
+   */
+  public PredictionStrategy getPredictionStrategy() {
+    return predictionStrategy;
+  }
+
+  /**
+   * @return the events supplied for a table
+   */
+  public TableEvents getTableEvents() {
+    return tableEvents;
+  }
+
+  /**
+   * @return keywords by which headings are classified, or {@code null} if they are not
+   */
+  public KeywordVocabulary getKeywordVocabulary() {
+    return vocabulary;
+  }
+
+  /**
+   * @return {@code true} if table cell values are held as views of a document until accessed
+   */
+  public boolean isLazyValues() {
+    return lazyValues;
+  }
+
+  /**
+   * @return {@code true} if this parser parses sections of a document concurrently
+   */
+  public boolean isParallel() {
+    return forkJoinPool != null;
+  }
+
+  /**
+   * @return {@code true} if this parser runs in streaming mode
+   */
+  public boolean isStreaming() {
+    return streaming;
+  }
+
   /**
    * Parse a markdown document
    *
@@ -94,36 +799,670 @@ public final class DocumentParser {
    */
   public boolean parse(InputStream inputStream, Consumer<? super Contextual> contextConsumer, ParserErrorListener parserListener)
       throws IOException {
-    final MarkdownLexer lexer = new MarkdownLexer(CharStreams.fromStream(inputStream));
-    final MarkdownParser parser = new MarkdownParser(new CommonTokenStream(lexer));
+    return parse(inputStream, contextConsumer, parserListener, null);
+  }
+
+  /**
+   * Parse a markdown document, and collect statistics of the parse
+   *
+   * @param inputStream input as markdown
+   * @param contextConsumer consumer of document events
+   * @param parserListener listens for parser errors. May be {@code null}.
+   * @param statistics accumulates counters and timings of the parse. May be {@code null}.
+   * @return {@code true} if the document is fully parsed without errors
+   * @throws IOException if the document cannot be read
+   */
+  public boolean parse(InputStream inputStream, Consumer<? super Contextual> contextConsumer,
+      ParserErrorListener parserListener, ParseStatistics statistics) throws IOException {
     final SyntaxErrorListener errorListener = new SyntaxErrorListener(parserListener);
-    parser.addErrorListener(errorListener);
-    final ParseTreeListener listener = new MarkdownEventSource(contextConsumer);
-    final ParseTreeWalker walker = new ParseTreeWalker();
-    final DocumentContext documentContext = parser.document();
-    walker.walk(listener, documentContext);
+    final Consumer<? super Contextual> consumer = consumer(contextConsumer, statistics);
+    final InputStream input =
+        statistics != null ? new CountingInputStream(inputStream, statistics) : inputStream;
+    if (forkJoinPool != null) {
+      return parseSections(readText(input), consumer, errorListener, statistics);
+    } else if (engine == Engine.SCANNER) {
+      return scan(readText(input), consumer, errorListener, statistics);
+    } else if (streaming) {
+      return parseStreaming(streamOf(input), eventSource(consumer), errorListener, statistics);
+    } else {
+      return parseTree(CharStreams.fromStream(input), eventSource(consumer), errorListener,
+          statistics);
+    }
+  }
+
+  /**
+   * Parse a markdown file
+   *
+   * The file is mapped into memory and read without copying if it is all ASCII. Otherwise, it is
+   * decoded as UTF-8 once from the mapped buffer.
+   *
+   * @param path markdown file
+   * @param contextConsumer consumer of document events
+   * @return {@code true} if the document is fully parsed without errors
+   * @throws IOException if the file cannot be read
+   */
+  public boolean parse(Path path, Consumer<? super Contextual> contextConsumer)
+      throws IOException {
+    return parse(path, contextConsumer, null);
+  }
+
+  /**
+   * Parse a markdown file
+   *
+   * The file is mapped into memory and read without copying if it is all ASCII. Otherwise, it is
+   * decoded as UTF-8 once from the mapped buffer.
+   *
+   * @param path markdown file
+   * @param contextConsumer consumer of document events
+   * @param parserListener listens for parser errors. May be {@code null}.
+   * @return {@code true} if the document is fully parsed without errors
+   * @throws IOException if the file cannot be read
+   */
+  public boolean parse(Path path, Consumer<? super Contextual> contextConsumer,
+      ParserErrorListener parserListener) throws IOException {
+    return parse(path, contextConsumer, parserListener, null);
+  }
+
+  /**
+   * Parse a markdown file, and collect statistics of the parse
+   *
+   * @param path markdown file
+   * @param contextConsumer consumer of document events
+   * @param parserListener listens for parser errors. May be {@code null}.
+   * @param statistics accumulates counters and timings of the parse. May be {@code null}.
+   * @return {@code true} if the document is fully parsed without errors
+   * @throws IOException if the file cannot be read
+   * @see #parse(Path, Consumer, ParserErrorListener)
+   */
+  public boolean parse(Path path, Consumer<? super Contextual> contextConsumer,
+      ParserErrorListener parserListener, ParseStatistics statistics) throws IOException {
+    final ByteBuffer buffer = map(path);
+    final SyntaxErrorListener errorListener = new SyntaxErrorListener(parserListener);
+    final Consumer<? super Contextual> consumer = consumer(contextConsumer, statistics);
+    if (statistics != null) {
+      statistics.addBytes(buffer.remaining());
+    }
+    if (forkJoinPool != null) {
+      return parseSections(textOf(buffer, path), consumer, errorListener, statistics);
+    } else if (engine == Engine.SCANNER) {
+      return scan(textOf(buffer, path), consumer, errorListener, statistics);
+    } else if (streaming) {
+      return parseStreaming(streamOf(buffer, path), eventSource(consumer), errorListener,
+          statistics);
+    } else {
+      return parseTree(streamOf(buffer, path), eventSource(consumer), errorListener, statistics);
+    }
+  }
+
+  /**
+   * Parse selected sections of a markdown file
+   *
+   * Only the byte ranges of the sections are read. Sections are parsed in document order, and a
+   * section that is contained by another selected section is parsed only once, as part of it. The
+   * heading lines of enclosing sections are parsed first, so that events are bound to the same
+   * parents as if the whole document were parsed; documentation and tables of enclosing sections
+   * outside the selected sections are not supplied. Line numbers of errors are relative to the
+   * whole document.
+   *
+   * Sections are parsed by the configured engine, but not in streaming or parallel mode.
+   *
+   * @param path markdown file
+   * @param index index of the file
+   * @param sections sections to parse, from the index
+   * @param contextConsumer consumer of document events
+   * @param parserListener listens for parser errors. May be {@code null}.
+   * @return {@code true} if the sections are fully parsed without errors
+   * @throws IOException if the file cannot be read, or the index is not current for the file
+   */
+  public boolean parse(Path path, SectionIndex index, Collection<SectionIndex.Entry> sections,
+      Consumer<? super Contextual> contextConsumer, ParserErrorListener parserListener)
+      throws IOException {
+    if (!index.isCurrent(path)) {
+      throw new IOException("Section index is not current for " + path);
+    }
+    final List<SectionIndex.Entry> selected = new ArrayList<>(sections);
+    selected.sort((e1, e2) -> Long.compare(e1.getStart(), e2.getStart()));
+    final SyntaxErrorListener errorListener = new SyntaxErrorListener(parserListener);
+    final ContextBinder binder = new ContextBinder();
+    final Set<SectionIndex.Entry> headings = new HashSet<>();
+    SectionIndex.Entry last = null;
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      for (final SectionIndex.Entry entry : selected) {
+        if (last != null && last.contains(entry)) {
+          continue;
+        }
+        final List<SectionIndex.Entry> ancestors = new ArrayList<>();
+        for (SectionIndex.Entry parent = entry.getParent(); parent != null
+            && !headings.contains(parent); parent = parent.getParent()) {
+          ancestors.add(0, parent);
+        }
+        for (final SectionIndex.Entry ancestor : ancestors) {
+          parseSection(textOf(channel, path, ancestor.getStart(), ancestor.getHeadingEnd()))
+              .deliver(binder, contextConsumer, errorListener, ancestor.getLineOffset());
+          headings.add(ancestor);
+        }
+        parseSection(textOf(channel, path, entry.getStart(), entry.getEnd())).deliver(binder,
+            contextConsumer, errorListener, entry.getLineOffset());
+        last = entry;
+      }
+    }
+    logger.debug("DocumentParser parsed {} sections of {}", selected.size(), path);
 
     final int errors = errorListener.getErrors();
     return (errors == 0);
   }
 
+  /**
+   * Parse a markdown document on another thread, and consume its events as they are parsed
+   *
+   * Parsing runs ahead of the consumer by at most the handoff capacity. The iterator should be
+   * consumed to the end; to stop early, use {@link #stream(InputStream, ParserErrorListener)} and
+   * close the stream.
+   *
+   * @param inputStream input as markdown. It is read on another thread.
+   * @param parserListener listens for parser errors on the parsing thread. May be {@code null}.
+   * @return an iterator of document events. It throws {@code UncheckedIOException} if the document
+   *         cannot be read.
+   */
+  public Iterator<Contextual> iterator(InputStream inputStream,
+      ParserErrorListener parserListener) {
+    return handoff(c -> parse(inputStream, c, parserListener));
+  }
+
+  /**
+   * Parse a markdown file on another thread, and consume its events as they are parsed
+   *
+   * @param path markdown file
+   * @param parserListener listens for parser errors on the parsing thread. May be {@code null}.
+   * @return an iterator of document events
+   * @see #iterator(InputStream, ParserErrorListener)
+   */
+  public Iterator<Contextual> iterator(Path path, ParserErrorListener parserListener) {
+    return handoff(c -> parse(path, c, parserListener));
+  }
+
+  /**
+   * Publish events of a markdown document as they are parsed
+   *
+   * Parsing starts on subscription. The parser is paced by the demand of the subscriber, and stops
+   * if the subscription is cancelled.
+   *
+   * @param inputStream input as markdown. Since it can only be read once, only one subscriber is
+   *        accepted.
+   * @param parserListener listens for parser errors on the parsing thread. May be {@code null}.
+   * @return a publisher of document events
+   */
+  public Flow.Publisher<Contextual> publisher(InputStream inputStream,
+      ParserErrorListener parserListener) {
+    return new DocumentPublisher(c -> parse(inputStream, c, parserListener), false, executor,
+        handoffCapacity);
+  }
+
+  /**
+   * Publish events of a markdown file as they are parsed
+   *
+   * @param path markdown file. It is parsed again for each subscriber.
+   * @param parserListener listens for parser errors on the parsing thread. May be {@code null}.
+   * @return a publisher of document events
+   * @see #publisher(InputStream, ParserErrorListener)
+   */
+  public Flow.Publisher<Contextual> publisher(Path path, ParserErrorListener parserListener) {
+    return new DocumentPublisher(c -> parse(path, c, parserListener), true, executor,
+        handoffCapacity);
+  }
+
+  /**
+   * Parse a markdown document on another thread, and stream its events as they are parsed
+   *
+   * Closing the stream stops the parser.
+   *
+   * @param inputStream input as markdown. It is read on another thread.
+   * @param parserListener listens for parser errors on the parsing thread. May be {@code null}.
+   * @return a sequential, ordered stream of document events
+   * @see #iterator(InputStream, ParserErrorListener)
+   */
+  public Stream<Contextual> stream(InputStream inputStream, ParserErrorListener parserListener) {
+    final EventHandoff handoff = handoff(c -> parse(inputStream, c, parserListener));
+    return StreamSupport
+        .stream(Spliterators.spliteratorUnknownSize(handoff,
+            Spliterator.ORDERED | Spliterator.NONNULL), false)
+        .onClose(handoff::close);
+  }
+
+  /**
+   * Parse a markdown file on another thread, and stream its events as they are parsed
+   *
+   * @param path markdown file
+   * @param parserListener listens for parser errors on the parsing thread. May be {@code null}.
+   * @return a sequential, ordered stream of document events
+   * @see #stream(InputStream, ParserErrorListener)
+   */
+  public Stream<Contextual> stream(Path path, ParserErrorListener parserListener) {
+    final EventHandoff handoff = handoff(c -> parse(path, c, parserListener));
+    return StreamSupport
+        .stream(Spliterators.spliteratorUnknownSize(handoff,
+            Spliterator.ORDERED | Spliterator.NONNULL), false)
+        .onClose(handoff::close);
+  }
+
   /**
    * Validate a markdown document
    *
+   * No events are supplied, and with {@link Engine#ANTLR}, no parse tree is built. Validation
+   * stops when the error limit of this parser is reached.
+   *
    * @param inputStream input as markdown
-   * @param parserListener listens for parser errors.
+   * @param parserListener listens for parser errors. May be {@code null}.
    * @return {@code true} if the document is fully parsed without errors
    * @throws IOException if the document cannot be read
+   * @see Builder#errorLimit(int)
    */
   public boolean validate(InputStream inputStream, ParserErrorListener parserListener)
       throws IOException {
-    final MarkdownLexer lexer = new MarkdownLexer(CharStreams.fromStream(inputStream));
-    final MarkdownParser parser = new MarkdownParser(new CommonTokenStream(lexer));
-    final SyntaxErrorListener errorListener = new SyntaxErrorListener(parserListener);
+    final SyntaxErrorListener errorListener = new SyntaxErrorListener(parserListener, errorLimit);
+    try {
+      if (forkJoinPool != null) {
+        return parseSections(readText(inputStream), c -> {}, errorListener, null);
+      } else if (engine == Engine.SCANNER) {
+        return scan(readText(inputStream), c -> {}, errorListener, null);
+      } else if (streaming) {
+        return parseStreaming(streamOf(inputStream), null, errorListener, null);
+      } else {
+        return parseOnly(CharStreams.fromStream(inputStream), errorListener);
+      }
+    } catch (final ParseCancellationException e) {
+      logger.debug("DocumentParser validation stopped; {}", e.getMessage());
+      return false;
+    }
+  }
+
+  /**
+   * Validate a markdown file
+   *
+   * @param path markdown file
+   * @param parserListener listens for parser errors. May be {@code null}.
+   * @return {@code true} if the document is fully parsed without errors
+   * @throws IOException if the file cannot be read
+   * @see #validate(InputStream, ParserErrorListener)
+   */
+  public boolean validate(Path path, ParserErrorListener parserListener) throws IOException {
+    final ByteBuffer buffer = map(path);
+    final SyntaxErrorListener errorListener = new SyntaxErrorListener(parserListener, errorLimit);
+    try {
+      if (forkJoinPool != null) {
+        return parseSections(textOf(buffer, path), c -> {}, errorListener, null);
+      } else if (engine == Engine.SCANNER) {
+        return scan(textOf(buffer, path), c -> {}, errorListener, null);
+      } else if (streaming) {
+        return parseStreaming(streamOf(buffer, path), null, errorListener, null);
+      } else {
+        return parseOnly(streamOf(buffer, path), errorListener);
+      }
+    } catch (final ParseCancellationException e) {
+      logger.debug("DocumentParser validation of {} stopped; {}", path, e.getMessage());
+      return false;
+    }
+  }
+
+  /**
+   * Validate markdown files concurrently
+   *
+   * Each file is validated as a separate task in the pool of this parser if it is parallel, or
+   * else in the common pool. Results are returned in the iteration order of the paths, and the
+   * errors of each file in document order, regardless of which task finishes first.
+   *
+   * @param paths markdown files
+   * @return a result for each file
+   */
+  public List<ValidationResult> validateAll(Collection<Path> paths) {
+    final ForkJoinPool pool = forkJoinPool != null ? forkJoinPool : ForkJoinPool.commonPool();
+    final List<ForkJoinTask<ValidationResult>> tasks = new ArrayList<>(paths.size());
+    for (final Path path : paths) {
+      tasks.add(pool.submit(() -> validateFile(path)));
+    }
+    final List<ValidationResult> results = new ArrayList<>(tasks.size());
+    for (final ForkJoinTask<ValidationResult> task : tasks) {
+      results.add(task.join());
+    }
+    return results;
+  }
+
+  /**
+   * Prime the shared DFA of the lexer and parser
+   *
+   * A built-in sample that exercises every rule of the grammar is parsed with both SLL and full LL
+   * prediction, so that the first document parsed afterwards runs at steady-state speed. Since the
+   * DFA is shared, this benefits all parsers in the JVM that use {@link Engine#ANTLR}. It does not
+   * change parse counts.
+   */
+  public void warmUp() {
+    for (final PredictionMode mode : List.of(PredictionMode.SLL, PredictionMode.LL)) {
+      final Recognizers recognizers = recognizers();
+      try {
+        final MarkdownParser parser = recognizers.acquire(CharStreams.fromString(WARM_UP_SAMPLE));
+        parser.getInterpreter().setPredictionMode(mode);
+        parser.document();
+      } finally {
+        recognizers.release();
+      }
+    }
+    logger.debug("DocumentParser warmed up");
+  }
+
+  /**
+   * Parse a section of a document
+   *
+   * Errors are recorded with line numbers relative to the section, to be reported when the
+   * section is delivered.
+   *
+   * @param text markdown text of the section
+   * @return events and errors of the section
+   */
+  Section parseSection(CharSequence text) {
+    final Section section = new Section();
+    final SyntaxErrorListener errorListener = new SyntaxErrorListener(
+        (line, charPositionInLine, msg) -> section.errors
+            .add(new SectionError(line, charPositionInLine, msg))) {
+      @Override
+      void logError(int line, int charPositionInLine, String msg) {
+        // logged when the section is delivered
+      }
+    };
+    if (engine == Engine.SCANNER) {
+      scan(text, section.events::add, errorListener, null);
+    } else {
+      parseTree(CharStreams.fromString(text.toString()),
+          eventSource(section.events::add), errorListener, null);
+    }
+    for (int i = 0; i < text.length(); i++) {
+      if (text.charAt(i) == '\n') {
+        section.lines++;
+      }
+    }
+    return section;
+  }
+
+  /**
+   * Parse a document by sections concurrently
+   *
+   * The document is split at level-1 and level-2 headings, and consecutive sections are grouped
+   * into chunks of about equal size. Events of each chunk are delivered in document order as soon
+   * as it and all chunks before it are parsed, and their parents are bound as if the whole
+   * document were parsed at once.
+   *
+   * @param text markdown document
+   * @param contextConsumer consumer of document events
+   * @param errorListener listens for parser errors
+   * @param statistics accumulates statistics of the parse. May be {@code null}.
+   * @return {@code true} if the document is fully parsed without errors
+   */
+  private boolean parseSections(CharSequence text, Consumer<? super Contextual> contextConsumer,
+      SyntaxErrorListener errorListener, ParseStatistics statistics) {
+    final long startNanos = System.nanoTime();
+    final long consumerNanos = statistics != null ? statistics.getConsumerNanos() : 0;
+    final int chunkSize =
+        Math.max(1, text.length() / (forkJoinPool.getParallelism() * CHUNKS_PER_WORKER));
+    final List<Integer> chunkStarts = new ArrayList<>();
+    chunkStarts.add(0);
+    for (final int position : MarkdownScanner.headingPositions(text, SECTION_LEVEL)) {
+      if (position - chunkStarts.get(chunkStarts.size() - 1) >= chunkSize) {
+        chunkStarts.add(position);
+      }
+    }
+    chunkStarts.add(text.length());
+
+    final List<ForkJoinTask<Section>> tasks = new ArrayList<>(chunkStarts.size() - 1);
+    for (int i = 0; i < chunkStarts.size() - 1; i++) {
+      final CharSequence chunk = text.subSequence(chunkStarts.get(i), chunkStarts.get(i + 1));
+      tasks.add(forkJoinPool.submit(() -> parseSection(chunk)));
+    }
+    logger.debug("DocumentParser parsing {} chunks concurrently", tasks.size());
+
+    final ContextBinder binder = new ContextBinder();
+    int lineOffset = 0;
+    try {
+      for (final ForkJoinTask<Section> task : tasks) {
+        final Section section = task.join();
+        section.deliver(binder, contextConsumer, errorListener, lineOffset);
+        lineOffset += section.lines;
+      }
+    } finally {
+      tasks.forEach(t -> t.cancel(false));
+    }
+    if (statistics != null) {
+      statistics.addChars(text.length());
+      statistics.addParseNanos(System.nanoTime() - startNanos
+          - (statistics.getConsumerNanos() - consumerNanos));
+    }
+
+    final int errors = errorListener.getErrors();
+    return (errors == 0);
+  }
+
+  private ValidationResult validateFile(Path path) {
+    final List<ValidationResult.Diagnostic> diagnostics = new ArrayList<>();
+    try {
+      final boolean isValid = validate(path, (line, charPositionInLine, msg) -> diagnostics
+          .add(new ValidationResult.Diagnostic(line, charPositionInLine, msg)));
+      return new ValidationResult(path, isValid, diagnostics, null);
+    } catch (final IOException e) {
+      logger.error("Markdown file {} could not be read; {}", path, e.getMessage());
+      return new ValidationResult(path, false, diagnostics, e);
+    }
+  }
+
+  private Consumer<? super Contextual> consumer(Consumer<? super Contextual> contextConsumer,
+      ParseStatistics statistics) {
+    return statistics != null
+        ? statistics.consumer(contextConsumer, tableEvents == TableEvents.TABLE)
+        : contextConsumer;
+  }
+
+  private EventAssembler assembler(Consumer<? super Contextual> contextConsumer) {
+    return new EventAssembler(contextConsumer, lazyValues, tableEvents, vocabulary);
+  }
+
+  private ANTLRErrorStrategy errorStrategy() {
+    return errorRecovery == ErrorRecovery.HEADING ? new HeadingRecoveryStrategy(recoveryLimit)
+        : new DefaultErrorStrategy();
+  }
+
+  private MarkdownEventSource eventSource(Consumer<? super Contextual> contextConsumer) {
+    return new MarkdownEventSource(contextConsumer, lazyValues, tableEvents, vocabulary);
+  }
+
+  private EventHandoff handoff(EventHandoff.ParseTask task) {
+    final EventHandoff handoff = new EventHandoff(handoffCapacity);
+    handoff.start(executor, task);
+    return handoff;
+  }
+
+  /**
+   * Parse a document without building a parse tree
+   *
+   * Tokens are created with a copy of their text since the character stream does not retain it.
+   *
+   * @param charStream input as markdown
+   * @param listener listens for rule events while parsing. May be {@code null}.
+   * @param errorListener listens for parser errors
+   * @param statistics accumulates statistics of the parse. May be {@code null}.
+   * @return {@code true} if the document is fully parsed without errors
+   */
+  private boolean parseStreaming(CharStream charStream, ParseTreeListener listener,
+      SyntaxErrorListener errorListener, ParseStatistics statistics) {
+    final long startNanos = System.nanoTime();
+    final long consumerNanos = statistics != null ? statistics.getConsumerNanos() : 0;
+    final MarkdownLexer lexer = new MarkdownLexer(charStream);
+    lexer.setTokenFactory(new CommonTokenFactory(true));
+    final MarkdownParser parser = new MarkdownParser(new UnbufferedTokenStream<>(lexer));
     parser.addErrorListener(errorListener);
-    final ParseTreeWalker walker = new ParseTreeWalker();
+    parser.setErrorHandler(errorStrategy());
+    parser.setBuildParseTree(false);
+    if (listener != null) {
+      parser.addParseListener(listener);
+    }
+    parser.document();
+    llParses.incrementAndGet();
+    logger.debug("DocumentParser completed streaming parse in stage {}", PredictionStage.LL);
+    if (statistics != null) {
+      // the unbuffered streams keep absolute positions
+      statistics.addChars(charStream.index());
+      statistics.addTokens(parser.getCurrentToken().getTokenIndex());
+      statistics.addParseNanos(System.nanoTime() - startNanos
+          - (statistics.getConsumerNanos() - consumerNanos));
+    }
+
+    final int errors = errorListener.getErrors();
+    return (errors == 0);
+  }
+
+  /**
+   * Parse a document without building a parse tree or supplying events
+   *
+   * @param charStream input as markdown
+   * @param errorListener listens for parser errors
+   * @return {@code true} if the document is fully parsed without errors
+   */
+  private boolean parseOnly(CharStream charStream, SyntaxErrorListener errorListener) {
+    final Recognizers recognizers = recognizers();
+    try {
+      final MarkdownParser parser = recognizers.acquire(charStream);
+      parser.setBuildParseTree(false);
+      parser.addErrorListener(errorListener);
+      parseDocument(parser);
+    } finally {
+      recognizers.release();
+    }
+
+    final int errors = errorListener.getErrors();
+    return (errors == 0);
+  }
+
+  /**
+   * Parse a document into a tree, and walk it
+   *
+   * With statistics, the document is lexed in full before it is parsed, so that the phases are
+   * timed separately.
+   *
+   * @param charStream input as markdown
+   * @param listener listens for rule events while walking the tree
+   * @param errorListener listens for parser errors
+   * @param statistics accumulates statistics of the parse. May be {@code null}.
+   * @return {@code true} if the document is fully parsed without errors
+   */
+  private boolean parseTree(CharStream charStream, ParseTreeListener listener,
+      SyntaxErrorListener errorListener, ParseStatistics statistics) {
+    final Recognizers recognizers = recognizers();
+    try {
+      final MarkdownParser parser = recognizers.acquire(charStream);
+      parser.addErrorListener(errorListener);
+      if (statistics != null) {
+        final long lexStart = System.nanoTime();
+        recognizers.tokenStream.fill();
+        final long parseStart = System.nanoTime();
+        final DocumentContext documentContext = parseDocument(parser);
+        final long walkStart = System.nanoTime();
+        final long consumerNanos = statistics.getConsumerNanos();
+        ParseTreeWalker.DEFAULT.walk(listener, documentContext);
+        final long walkEnd = System.nanoTime();
+        statistics.addChars(charStream.size());
+        // exclusive of end of file
+        statistics.addTokens(recognizers.tokenStream.size() - 1);
+        statistics.addLexNanos(parseStart - lexStart);
+        statistics.addParseNanos(walkStart - parseStart);
+        statistics.addWalkNanos(
+            walkEnd - walkStart - (statistics.getConsumerNanos() - consumerNanos));
+      } else {
+        final DocumentContext documentContext = parseDocument(parser);
+        ParseTreeWalker.DEFAULT.walk(listener, documentContext);
+      }
+    } finally {
+      recognizers.release();
+    }
+
+    final int errors = errorListener.getErrors();
+    return (errors == 0);
+  }
+
+  /**
+   * Parse a document according to the prediction strategy
+   *
+   * In the SLL stage, error listeners are detached, and the parser bails out on the first syntax
+   * error. Tokens are buffered, so the LL stage reparses them without lexing again, and reports
+   * errors as usual.
+   *
+   * @param parser a parser with error listeners attached
+   * @return root of the parse tree
+   */
+  private DocumentContext parseDocument(MarkdownParser parser) {
+    if (predictionStrategy == PredictionStrategy.TWO_STAGE) {
+      final List<? extends ANTLRErrorListener> errorListeners =
+          List.copyOf(parser.getErrorListeners());
+      parser.removeErrorListeners();
+      parser.getInterpreter().setPredictionMode(PredictionMode.SLL);
+      parser.setErrorHandler(new BailErrorStrategy());
+      try {
+        final DocumentContext documentContext = parser.document();
+        sllParses.incrementAndGet();
+        logger.debug("DocumentParser completed parse in stage {}", PredictionStage.SLL);
+        return documentContext;
+      } catch (final ParseCancellationException e) {
+        logger.debug("DocumentParser SLL stage failed; reparsing with full LL prediction");
+        parser.reset();
+      } finally {
+        errorListeners.forEach(parser::addErrorListener);
+      }
+    }
+    parser.setErrorHandler(errorStrategy());
+    parser.getInterpreter().setPredictionMode(PredictionMode.LL);
     final DocumentContext documentContext = parser.document();
-    walker.walk(new MarkdownBaseListener(), documentContext);
+    llParses.incrementAndGet();
+    logger.debug("DocumentParser completed parse in stage {}", PredictionStage.LL);
+    return documentContext;
+  }
+
+  /**
+   * Parse a document with the hand-written scanner
+   *
+   * The scan stops at the first syntax error. Events before it are the same as those of the ANTLR
+   * parser, so the document is then parsed again by the ANTLR parser, which reports the errors and
+   * supplies only the events after those already supplied.
+   *
+   * @param text input as markdown
+   * @param contextConsumer consumer of document events
+   * @param errorListener listens for parser errors
+   * @param statistics accumulates statistics of the parse. May be {@code null}.
+   * @return {@code true} if the document is fully parsed without errors
+   */
+  private boolean scan(CharSequence text, Consumer<? super Contextual> contextConsumer,
+      SyntaxErrorListener errorListener, ParseStatistics statistics) {
+    final long startNanos = System.nanoTime();
+    final long consumerNanos = statistics != null ? statistics.getConsumerNanos() : 0;
+    final AtomicLong supplied = new AtomicLong();
+    final MarkdownScanner scanner = new MarkdownScanner(text, assembler(c -> {
+      supplied.incrementAndGet();
+      contextConsumer.accept(c);
+    }), (line, charPositionInLine, msg) -> {
+      throw new ScanStoppedException(msg);
+    });
+    try {
+      scanner.scan();
+    } catch (final ScanStoppedException e) {
+      logger.debug("DocumentParser scan stopped at a syntax error; parsing with ANTLR");
+      final Consumer<Contextual> remainder = c -> {
+        if (supplied.getAndDecrement() <= 0) {
+          contextConsumer.accept(c);
+        }
+      };
+      return parseTree(CharStreams.fromString(text.toString()), eventSource(remainder),
+          errorListener, statistics);
+    }
+    logger.debug("DocumentParser completed scan of {} characters", text.length());
+    if (statistics != null) {
+      statistics.addChars(text.length());
+      statistics.addParseNanos(System.nanoTime() - startNanos
+          - (statistics.getConsumerNanos() - consumerNanos));
+    }
 
     final int errors = errorListener.getErrors();
     return (errors == 0);
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2020 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package io.fixprotocol.md.event;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Flow;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import io.fixprotocol.md.event.EventHandoff.ParseTask;
+
+/**
+ * Publishes events of a document to a subscriber
+ *
+ * Parsing starts when a subscriber subscribes, and runs on an executor. The parser blocks while
+ * the subscriber's buffer is full, so demand of the subscriber paces the parse. The parse stops if
+ * the subscriber cancels its subscription.
+ *
+ * Events are delivered to each subscriber on its own single daemon thread, which ends when the
+ * subscription completes, fails or is cancelled. The parse executor is not used for delivery since
+ * a publisher resubmits its delivery task every time a subscriber's buffer drains.
+ *
+ * @author Don Mendelson
+ *
+ */
+final class DocumentPublisher implements Flow.Publisher<Contextual> {
+
+  /**
+   * Shuts down the delivery thread of a subscription when it ends
+   */
+  private static final class DeliverySubscriber implements Flow.Subscriber<Contextual> {
+    private final ExecutorService delivery;
+    private final Flow.Subscriber<? super Contextual> subscriber;
+
+    DeliverySubscriber(Flow.Subscriber<? super Contextual> subscriber, ExecutorService delivery) {
+      this.subscriber = subscriber;
+      this.delivery = delivery;
+    }
+
+    @Override
+    public void onComplete() {
+      try {
+        subscriber.onComplete();
+      } finally {
+        delivery.shutdown();
+      }
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+      try {
+        subscriber.onError(throwable);
+      } finally {
+        delivery.shutdown();
+      }
+    }
+
+    @Override
+    public void onNext(Contextual item) {
+      subscriber.onNext(item);
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+      subscriber.onSubscribe(new Flow.Subscription() {
+        @Override
+        public void cancel() {
+          subscription.cancel();
+          delivery.shutdown();
+        }
+
+        @Override
+        public void request(long n) {
+          subscription.request(n);
+        }
+      });
+    }
+  }
+
+  private final int capacity;
+  private final Executor executor;
+  private final boolean repeatable;
+  private final AtomicBoolean subscribed = new AtomicBoolean();
+  private final ParseTask task;
+
+  /**
+   * Constructor
+   *
+   * @param task parse of a document
+   * @param repeatable {@code true} if the task may run more than once, allowing multiple
+   *        subscribers
+   * @param executor runs the parse
+   * @param capacity maximum number of events buffered for a subscriber
+   */
+  DocumentPublisher(ParseTask task, boolean repeatable, Executor executor, int capacity) {
+    this.task = task;
+    this.repeatable = repeatable;
+    this.executor = executor;
+    this.capacity = capacity;
+  }
+
+  @Override
+  public void subscribe(Flow.Subscriber<? super Contextual> subscriber) {
+    if (!repeatable && subscribed.getAndSet(true)) {
+      subscriber.onSubscribe(new Flow.Subscription() {
+        @Override
+        public void cancel() {
+          // no action
+        }
+
+        @Override
+        public void request(long n) {
+          // no action
+        }
+      });
+      subscriber.onError(new IllegalStateException("Document can only be published once"));
+      return;
+    }
+
+    final ExecutorService delivery = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+        new LinkedBlockingQueue<>(), DaemonThreads.threadFactory("DocumentPublisher"),
+        new ThreadPoolExecutor.DiscardPolicy());
+    final SubmissionPublisher<Contextual> publisher =
+        new SubmissionPublisher<>(delivery, capacity);
+    publisher.subscribe(new DeliverySubscriber(subscriber, delivery));
+    executor.execute(() -> {
+      try {
+        task.parse(contextual -> {
+          if (!publisher.hasSubscribers()) {
+            throw new CancellationException("Subscription cancelled");
+          }
+          publisher.submit(contextual);
+        });
+        publisher.close();
+      } catch (final CancellationException e) {
+        publisher.close();
+      } catch (final Throwable e) {
+        publisher.closeExceptionally(e);
+      }
+    });
+  }
+}
@@ -16,7 +16,11 @@ package io.fixprotocol.md.event;
 
 import java.io.IOException;
 import java.io.Writer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
 import java.util.function.Consumer;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -27,15 +31,151 @@ public class DocumentWriter implements AutoCloseable {
     CENTER, LEFT, RIGHT
   }
 
+  /**
+   * Layout of a table that is written row by row
+   */
+  public enum TableLayout {
+    /**
+     * Cells are not padded, so no column widths are needed
+     */
+    COMPACT,
+    /**
+     * Cells are padded to the width of their column, taken as a hint. A longer value is written in
+     * full, so only its row is out of alignment.
+     */
+    PADDED
+  }
+
+  /**
+   * Writes a table row by row
+   *
+   * Headings are written when the table begins, and each row is written as soon as it is appended,
+   * so that rows are never retained and column widths need not be computed from all rows first.
+   */
+  public final class TableWriter implements AutoCloseable {
+    private boolean closed = false;
+    private final String[] keys;
+    private int rowCount = 0;
+    // null in compact layout
+    private final int[] widths;
+
+    private TableWriter(TableColumn[] tableColumns, TableLayout layout) throws IOException {
+      keys = new String[tableColumns.length];
+      widths = layout == TableLayout.PADDED ? new int[tableColumns.length] : null;
+      final String[] headings = new String[tableColumns.length];
+      for (int i = 0; i < tableColumns.length; i++) {
+        keys[i] = tableColumns[i].getKey();
+        headings[i] = tableColumns[i].getHeading();
+        if (widths != null) {
+          widths[i] = Math.max(tableColumns[i].getWidth(), headings[i].length());
+        }
+      }
+      writeRow(headings);
+      for (int i = 0; i < keys.length; i++) {
+        writer.write("|");
+        writeRepeated(HYPHENS, widths != null ? widths[i] + 2 : 3);
+      }
+      writer.write("|\n");
+    }
+
+    /**
+     * Write a row
+     *
+     * @param row values keyed by column
+     * @throws IOException if the row cannot be written
+     * @throws IllegalStateException if this table is closed
+     */
+    public void append(DetailProperties row) throws IOException {
+      final String[] values = new String[keys.length];
+      for (int i = 0; i < keys.length; i++) {
+        values[i] = row.getProperty(keys[i]);
+      }
+      append(values);
+    }
+
+    /**
+     * Write a row
+     *
+     * @param values values in column order. Missing or {@code null} values are written as empty
+     *        cells.
+     * @throws IOException if the row cannot be written
+     * @throws IllegalStateException if this table is closed
+     */
+    public void append(String... values) throws IOException {
+      if (closed) {
+        throw new IllegalStateException("Table is closed");
+      }
+      writeRow(values);
+      rowCount++;
+    }
+
+    /**
+     * End the table
+     */
+    @Override
+    public void close() throws IOException {
+      if (!closed) {
+        closed = true;
+        writer.write("\n");
+        if (currentTable == this) {
+          currentTable = null;
+        }
+      }
+    }
+
+    /**
+     * @return number of rows written
+     */
+    public int getRowCount() {
+      return rowCount;
+    }
+
+    private void writeRow(String[] values) throws IOException {
+      for (int i = 0; i < keys.length; i++) {
+        final String value = i < values.length && values[i] != null ? values[i] : "";
+        writer.write(CELL_PREFIX);
+        writer.write(value);
+        if (widths != null) {
+          writeRepeated(SPACES, Math.max(widths[i] - value.length(), 0) + 1);
+        } else {
+          writer.write(' ');
+        }
+      }
+      writer.write("|\n");
+    }
+  }
+
   private static final char[] CELL_PREFIX = "| ".toCharArray();
   private static final char[] FENCE = "```".toCharArray();
   private static final char[] HEADING_LEVELS = "######".toCharArray();
   private static final char[] HYPHENS = new char[128];
   private static final char[] SPACES = new char[128];
 
+  private final ContextFactory contextFactory = new ContextFactory();
+  private TableWriter currentTable = null;
   private final Logger logger = LogManager.getLogger(getClass());
   private final Writer writer;
 
+  /**
+   * Create or replace a markdown file
+   *
+   * @param path file to write as UTF-8 through a {@link ChannelWriter}
+   * @throws IOException if the file cannot be opened
+   */
+  public DocumentWriter(Path path) throws IOException {
+    this(new ChannelWriter(path));
+  }
+
+  /**
+   * Write markdown to a channel
+   *
+   * @param channel destination of UTF-8 text, written through a {@link ChannelWriter}. It is
+   *        closed when this DocumentWriter is closed.
+   */
+  public DocumentWriter(WritableByteChannel channel) {
+    this(new ChannelWriter(channel));
+  }
+
   public DocumentWriter(Writer writer) {
     this.writer = writer;
     Arrays.fill(SPACES, ' ');
@@ -54,9 +194,31 @@ public class DocumentWriter implements AutoCloseable {
     writer.write("\n\n");
   }
 
-  public void write(Detail t) throws IOException {
-    // TODO Auto-generated method stub
+  /**
+   * Begin a table to be written row by row
+   *
+   * @param tableColumns columns of the table. In padded layout, their widths are hints.
+   * @param layout layout of cells
+   * @return a writer of rows, to be closed at the end of the table
+   * @throws IOException if the headings cannot be written
+   */
+  public TableWriter beginTable(TableColumn[] tableColumns, TableLayout layout)
+      throws IOException {
+    return new TableWriter(tableColumns, layout);
+  }
 
+  /**
+   * Write a row of the table begun by {@link #write(TableStart)}
+   *
+   * @param detail a table row
+   * @throws IOException if the row cannot be written
+   * @throws IllegalStateException if no table was begun
+   */
+  public void write(Detail detail) throws IOException {
+    if (currentTable == null) {
+      throw new IllegalStateException("Detail written outside of a table");
+    }
+    currentTable.append(detail);
   }
 
   public void write(DetailTable detailTable) throws IOException {
@@ -104,6 +266,41 @@ public class DocumentWriter implements AutoCloseable {
     }
   }
 
+  /**
+   * End the table begun by {@link #write(TableStart)}
+   *
+   * @param tableEnd end of a table
+   * @throws IOException if the table cannot be written
+   */
+  public void write(TableEnd tableEnd) throws IOException {
+    if (currentTable != null) {
+      currentTable.close();
+    }
+  }
+
+  /**
+   * Begin a compact table with the headings of a parsed table, so that its rows can be written as
+   * they are parsed with {@link DocumentParser.TableEvents#ROWS}
+   *
+   * @param tableStart start of a table
+   * @throws IOException if the headings cannot be written
+   */
+  public void write(TableStart tableStart) throws IOException {
+    final List<String> headings = tableStart.getHeadings();
+    final TableColumn[] tableColumns = new TableColumn[headings.size()];
+    for (int i = 0; i < tableColumns.length; i++) {
+      final String heading = headings.get(i);
+      final MutableTableColumn column =
+          contextFactory.createTableColumn(heading.toLowerCase(Locale.ROOT), 0);
+      column.setHeading(heading);
+      tableColumns[i] = column;
+    }
+    if (currentTable != null) {
+      currentTable.close();
+    }
+    currentTable = beginTable(tableColumns, TableLayout.COMPACT);
+  }
+
   public void write(Iterable<? extends Context> contextSupplier) throws IOException {
     final Consumer<? super Context> action = (Consumer<Context>) t -> {
       try {
@@ -125,6 +322,12 @@ public class DocumentWriter implements AutoCloseable {
     contextSupplier.forEach(action);
   }
 
+  private void writeRepeated(char[] chars, int count) throws IOException {
+    for (int remaining = count; remaining > 0; remaining -= chars.length) {
+      writer.write(chars, 0, Math.min(remaining, chars.length));
+    }
+  }
+
   private void writeCell(String value, int length) throws IOException {
     writer.write(CELL_PREFIX);
     writer.write(value);
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2020 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package io.fixprotocol.md.event;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Hands off document events from a parser thread to a consuming thread through a bounded queue
+ *
+ * The parser blocks when the queue is full, so a slow consumer applies backpressure.
+ *
+ * @author Don Mendelson
+ *
+ */
+final class EventHandoff implements Iterator<Contextual>, AutoCloseable {
+
+  /**
+   * A parse of a document that supplies events to a consumer
+   */
+  @FunctionalInterface
+  interface ParseTask {
+    boolean parse(Consumer<? super Contextual> contextConsumer) throws IOException;
+  }
+
+  private static final class Failure {
+    final Throwable cause;
+
+    Failure(Throwable cause) {
+      this.cause = cause;
+    }
+  }
+
+  private static final long CLOSE_POLL_MILLIS = 100;
+  private static final Object END = new Object();
+
+  private volatile boolean closed = false;
+  private Object next = null;
+  private final BlockingQueue<Object> queue;
+
+  EventHandoff(int capacity) {
+    this.queue = new ArrayBlockingQueue<>(capacity);
+  }
+
+  /**
+   * Stop the parser and discard events not yet consumed
+   */
+  @Override
+  public void close() {
+    closed = true;
+    // free space for a blocked parser to notice
+    queue.clear();
+  }
+
+  @Override
+  public boolean hasNext() {
+    if (next == null) {
+      if (closed) {
+        return false;
+      }
+      try {
+        next = queue.take();
+      } catch (final InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new CancellationException("Interrupted while waiting for document events");
+      }
+    }
+    if (next instanceof Failure) {
+      final Throwable cause = ((Failure) next).cause;
+      if (cause instanceof IOException) {
+        throw new UncheckedIOException((IOException) cause);
+      } else if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      } else {
+        throw new IllegalStateException("Document parser failed", cause);
+      }
+    }
+    return next != END;
+  }
+
+  @Override
+  public Contextual next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    final Contextual contextual = (Contextual) next;
+    next = null;
+    return contextual;
+  }
+
+  /**
+   * Start parsing
+   *
+   * @param executor runs the parse
+   * @param task parse of a document
+   */
+  void start(Executor executor, ParseTask task) {
+    executor.execute(() -> {
+      Object last = END;
+      try {
+        task.parse(this::put);
+      } catch (final CancellationException e) {
+        // consumer closed
+      } catch (final Throwable e) {
+        last = new Failure(e);
+      }
+      putLast(last);
+    });
+  }
+
+  private void put(Contextual contextual) {
+    try {
+      if (closed) {
+        throw new CancellationException("Document events closed by consumer");
+      }
+      queue.put(contextual);
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new CancellationException("Interrupted while handing off document events");
+    }
+  }
+
+  private void putLast(Object last) {
+    try {
+      // consumer may close while waiting for space
+      while (!closed) {
+        if (queue.offer(last, CLOSE_POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+          return;
+        }
+      }
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,322 @@
+/*
+ * Copyright 2020 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package io.fixprotocol.md.event;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Supplies the events of one parse to several consumers
+ *
+ * Each consumer may have a predicate on the key path of an event, which is the keys of its
+ * enclosing headings from the top of the document down. A {@link Context} is in its own key path.
+ * The predicate is tested once per heading, not per event.
+ *
+ * A consumer runs either on the parsing thread, or on its own thread through a bounded queue. The
+ * parser blocks when the queue of an asynchronous consumer is full. Every consumer receives its
+ * events in document order. Events are shared by consumers, not copied, so consumers must not
+ * modify them.
+ *
+ * An instance must be closed after the parse to wait for asynchronous consumers to finish.
+ *
+ * <pre>
+ * try (EventMultiplexer multiplexer = EventMultiplexer.builder().consumer(repositoryConsumer)
+ *     .asyncConsumer(interfacesBuilder, EventMultiplexer.keysStartWith("Interface"), 256).build()) {
+ *   parser.parse(path, multiplexer);
+ * }
+ * </pre>
+ *
+ * @author Don Mendelson
+ *
+ */
+public final class EventMultiplexer implements Consumer<Contextual>, AutoCloseable {
+
+  /**
+   * Builds an instance of EventMultiplexer
+   */
+  public static class Builder {
+    private Executor executor = DEFAULT_EXECUTOR;
+    private final List<Route> routes = new ArrayList<>();
+
+    /**
+     * Add a consumer that runs on its own thread
+     *
+     * @param contextConsumer consumer of document events
+     * @param keyPathPredicate selects events by key path. May be {@code null} to select all events.
+     * @param capacity maximum number of events queued for the consumer
+     * @return this Builder
+     */
+    public Builder asyncConsumer(Consumer<? super Contextual> contextConsumer,
+        Predicate<List<String[]>> keyPathPredicate, int capacity) {
+      if (capacity < 1) {
+        throw new IllegalArgumentException("Queue capacity must be positive");
+      }
+      routes.add(new Route(contextConsumer, keyPathPredicate, capacity));
+      return this;
+    }
+
+    /**
+     * Build an instance, and start the threads of asynchronous consumers
+     *
+     * @return a new EventMultiplexer
+     */
+    public EventMultiplexer build() {
+      return new EventMultiplexer(this);
+    }
+
+    /**
+     * Add a consumer that runs on the parsing thread, and receives all events
+     *
+     * @param contextConsumer consumer of document events
+     * @return this Builder
+     */
+    public Builder consumer(Consumer<? super Contextual> contextConsumer) {
+      return consumer(contextConsumer, null);
+    }
+
+    /**
+     * Add a consumer that runs on the parsing thread
+     *
+     * @param contextConsumer consumer of document events
+     * @param keyPathPredicate selects events by key path. May be {@code null} to select all events.
+     * @return this Builder
+     */
+    public Builder consumer(Consumer<? super Contextual> contextConsumer,
+        Predicate<List<String[]>> keyPathPredicate) {
+      routes.add(new Route(contextConsumer, keyPathPredicate, 0));
+      return this;
+    }
+
+    /**
+     * Executor to run asynchronous consumers
+     *
+     * @param executor runs each asynchronous consumer as a long-lived task. Default starts a daemon
+     *        thread per consumer.
+     * @return this Builder
+     */
+    public Builder executor(Executor executor) {
+      this.executor = executor;
+      return this;
+    }
+  }
+
+  /**
+   * Delivers events to a consumer on its own thread
+   */
+  private static final class AsyncDelivery implements Consumer<Contextual> {
+    private static final Object END = new Object();
+
+    private final CountDownLatch done = new CountDownLatch(1);
+    private volatile Throwable failure = null;
+    private final BlockingQueue<Object> queue;
+
+    AsyncDelivery(Consumer<? super Contextual> contextConsumer, int capacity, Executor executor) {
+      this.queue = new ArrayBlockingQueue<>(capacity);
+      executor.execute(() -> run(contextConsumer));
+    }
+
+    @Override
+    public void accept(Contextual contextual) {
+      if (failure != null) {
+        throw new CancellationException("Event consumer failed; " + failure);
+      }
+      try {
+        queue.put(contextual);
+      } catch (final InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new CancellationException("Interrupted while handing off document events");
+      }
+    }
+
+    /**
+     * Wait for queued events to be consumed
+     *
+     * @return failure of the consumer, or {@code null} if it succeeded
+     */
+    Throwable finish() {
+      try {
+        queue.put(END);
+        done.await();
+      } catch (final InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new CancellationException("Interrupted while waiting for event consumer");
+      }
+      return failure;
+    }
+
+    private void run(Consumer<? super Contextual> contextConsumer) {
+      try {
+        for (Object next = queue.take(); next != END; next = queue.take()) {
+          if (failure == null) {
+            try {
+              contextConsumer.accept((Contextual) next);
+            } catch (final Throwable e) {
+              // keep draining so that the parser is not blocked
+              failure = e;
+            }
+          }
+        }
+      } catch (final InterruptedException e) {
+        Thread.currentThread().interrupt();
+        failure = e;
+      } finally {
+        done.countDown();
+      }
+    }
+  }
+
+  private static final class Route {
+    final int capacity;
+    final Consumer<? super Contextual> contextConsumer;
+    final Predicate<List<String[]>> keyPathPredicate;
+
+    Route(Consumer<? super Contextual> contextConsumer, Predicate<List<String[]>> keyPathPredicate,
+        int capacity) {
+      this.contextConsumer = contextConsumer;
+      this.keyPathPredicate = keyPathPredicate;
+      this.capacity = capacity;
+    }
+  }
+
+  private static final Executor DEFAULT_EXECUTOR = DaemonThreads.executor("EventMultiplexer");
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * Selects events under a heading
+   *
+   * @param keys leading keys of a heading, compared without regard to case
+   * @return a predicate that is {@code true} if any heading in a key path starts with the keys
+   */
+  public static Predicate<List<String[]>> keysStartWith(String... keys) {
+    return keyPath -> {
+      for (final String[] headingKeys : keyPath) {
+        if (headingKeys.length >= keys.length) {
+          int k = 0;
+          while (k < keys.length && headingKeys[k].equalsIgnoreCase(keys[k])) {
+            k++;
+          }
+          if (k == keys.length) {
+            return true;
+          }
+        }
+      }
+      return false;
+    };
+  }
+
+  private static List<String[]> keyPath(Context context) {
+    final List<String[]> keyPath = new ArrayList<>();
+    for (Context c = context; c != null; c = c.getParent()) {
+      keyPath.add(c.getKeys());
+    }
+    Collections.reverse(keyPath);
+    return Collections.unmodifiableList(keyPath);
+  }
+
+  private final List<AsyncDelivery> asyncDeliveries = new ArrayList<>();
+  private boolean closed = false;
+  private final Consumer<? super Contextual>[] consumers;
+  private Context lastContext = null;
+  private final Predicate<List<String[]>>[] predicates;
+  // whether each consumer selects events under the last context
+  private final boolean[] selected;
+
+  @SuppressWarnings("unchecked")
+  private EventMultiplexer(Builder builder) {
+    final int size = builder.routes.size();
+    this.consumers = new Consumer[size];
+    this.predicates = new Predicate[size];
+    this.selected = new boolean[size];
+    for (int i = 0; i < size; i++) {
+      final Route route = builder.routes.get(i);
+      if (route.capacity > 0) {
+        final AsyncDelivery delivery =
+            new AsyncDelivery(route.contextConsumer, route.capacity, builder.executor);
+        asyncDeliveries.add(delivery);
+        consumers[i] = delivery;
+      } else {
+        consumers[i] = route.contextConsumer;
+      }
+      predicates[i] = route.keyPathPredicate;
+    }
+    select(null);
+  }
+
+  @Override
+  public void accept(Contextual contextual) {
+    final Context context =
+        contextual instanceof Context ? (Context) contextual : contextual.getParent();
+    if (context != lastContext) {
+      select(context);
+    }
+    for (int i = 0; i < consumers.length; i++) {
+      if (selected[i]) {
+        consumers[i].accept(contextual);
+      }
+    }
+  }
+
+  /**
+   * Wait for asynchronous consumers to consume all events
+   *
+   * @throws IllegalStateException if a consumer failed, with its exception as the cause. A
+   *         {@code RuntimeException} of a consumer is rethrown as is.
+   */
+  @Override
+  public void close() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    Throwable failure = null;
+    for (final AsyncDelivery delivery : asyncDeliveries) {
+      final Throwable cause = delivery.finish();
+      if (failure == null) {
+        failure = cause;
+      }
+    }
+    if (failure instanceof RuntimeException) {
+      throw (RuntimeException) failure;
+    } else if (failure != null) {
+      throw new IllegalStateException("Event consumer failed", failure);
+    }
+  }
+
+  private void select(Context context) {
+    List<String[]> keyPath = null;
+    for (int i = 0; i < predicates.length; i++) {
+      if (predicates[i] == null) {
+        selected[i] = true;
+      } else {
+        if (keyPath == null) {
+          keyPath = keyPath(context);
+        }
+        selected[i] = predicates[i].test(keyPath);
+      }
+    }
+    lastContext = context;
+  }
+}
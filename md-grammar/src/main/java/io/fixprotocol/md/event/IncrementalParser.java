@@ -0,0 +1,158 @@
+/*
+ * Copyright 2020 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package io.fixprotocol.md.event;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import io.fixprotocol.md.event.DocumentParser.ParserErrorListener;
+import io.fixprotocol.md.event.DocumentParser.Section;
+import io.fixprotocol.md.event.DocumentParser.SyntaxErrorListener;
+import io.fixprotocol.md.event.mutable.ContextBinder;
+import io.fixprotocol.md.scanner.MarkdownScanner;
+
+/**
+ * Reparses successive versions of a markdown document, such as a file being edited, and only
+ * parses sections that changed since the previous version
+ *
+ * A document is split into sections at each heading. Events of each section are cached by its
+ * content, so an unchanged section is replayed without parsing. Parents of all events are bound
+ * again in document order, so a heading that is inserted, removed or changed in level is reflected
+ * in the parents of sections that follow it. For a valid document, events are the same as from a
+ * full parse.
+ *
+ * Replayed events are the same instances that were supplied for the previous version, with their
+ * parents updated. This class is not thread-safe.
+ *
+ * @author Don Mendelson
+ *
+ */
+public class IncrementalParser {
+
+  private Map<String, Section> cache = new HashMap<>();
+  private final Logger logger = LogManager.getLogger(getClass());
+  private final DocumentParser parser;
+  private int sectionsParsed = 0;
+  private int sectionsReused = 0;
+
+  /**
+   * Create an incremental parser with default settings
+   */
+  public IncrementalParser() {
+    this(new DocumentParser());
+  }
+
+  /**
+   * Create an incremental parser
+   *
+   * @param parser parses changed sections with its engine and prediction strategy
+   */
+  public IncrementalParser(DocumentParser parser) {
+    this.parser = parser;
+  }
+
+  /**
+   * Discard all cached sections
+   */
+  public void clear() {
+    cache.clear();
+  }
+
+  /**
+   * @return number of sections parsed in the last version
+   */
+  public int getSectionsParsed() {
+    return sectionsParsed;
+  }
+
+  /**
+   * @return number of sections replayed from cache in the last version
+   */
+  public int getSectionsReused() {
+    return sectionsReused;
+  }
+
+  /**
+   * Parse a version of a markdown document
+   *
+   * @param inputStream input as markdown
+   * @param contextConsumer consumer of document events
+   * @param parserListener listens for parser errors. May be {@code null}.
+   * @return {@code true} if the document is fully parsed without errors
+   * @throws IOException if the document cannot be read
+   */
+  public boolean parse(InputStream inputStream, Consumer<? super Contextual> contextConsumer,
+      ParserErrorListener parserListener) throws IOException {
+    return parse(DocumentParser.readText(inputStream), contextConsumer, parserListener);
+  }
+
+  /**
+   * Parse a version of a markdown file
+   *
+   * @param path markdown file
+   * @param contextConsumer consumer of document events
+   * @param parserListener listens for parser errors. May be {@code null}.
+   * @return {@code true} if the document is fully parsed without errors
+   * @throws IOException if the file cannot be read
+   */
+  public boolean parse(Path path, Consumer<? super Contextual> contextConsumer,
+      ParserErrorListener parserListener) throws IOException {
+    return parse(DocumentParser.readText(path), contextConsumer, parserListener);
+  }
+
+  private boolean parse(CharSequence text, Consumer<? super Contextual> contextConsumer,
+      ParserErrorListener parserListener) {
+    final List<Integer> headings = MarkdownScanner.headingPositions(text, Integer.MAX_VALUE);
+    headings.add(text.length());
+
+    final Map<String, Section> nextCache = new HashMap<>();
+    // events of a section are delivered once per version, so a repeated section is parsed again
+    final Set<String> delivered = new HashSet<>();
+    final SyntaxErrorListener errorListener = new SyntaxErrorListener(parserListener);
+    final ContextBinder binder = new ContextBinder();
+    sectionsParsed = 0;
+    sectionsReused = 0;
+    int start = 0;
+    int lineOffset = 0;
+    for (final int end : headings) {
+      final String content = text.subSequence(start, end).toString();
+      Section section = delivered.add(content) ? cache.get(content) : null;
+      if (section != null) {
+        sectionsReused++;
+      } else {
+        section = parser.parseSection(content);
+        sectionsParsed++;
+      }
+      nextCache.putIfAbsent(content, section);
+      section.deliver(binder, contextConsumer, errorListener, lineOffset);
+      lineOffset += section.lines;
+      start = end;
+    }
+    cache = nextCache;
+    logger.debug("IncrementalParser parsed {} sections and reused {}", sectionsParsed,
+        sectionsReused);
+
+    final int errors = errorListener.getErrors();
+    return (errors == 0);
+  }
+}
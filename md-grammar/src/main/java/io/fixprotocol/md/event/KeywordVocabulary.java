@@ -0,0 +1,54 @@
+/*
+ * Copyright 2020 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package io.fixprotocol.md.event;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Keywords that a consumer recognizes as the first key of a heading
+ *
+ * A parser that is given a vocabulary classifies each {@link Context} once, as it is parsed, so
+ * that a consumer can dispatch on {@link Context#getKeyword(KeywordVocabulary)} without comparing
+ * strings for every event.
+ *
+ * @author Don Mendelson
+ * @see io.fixprotocol.md.event.DocumentParser.Builder#keywordVocabulary(KeywordVocabulary)
+ */
+@FunctionalInterface
+public interface KeywordVocabulary {
+
+  /**
+   * Create a vocabulary of keywords that are matched without regard to case
+   *
+   * @param keywords keywords
+   * @return a vocabulary that returns the given instance of a matched keyword
+   */
+  static KeywordVocabulary of(String... keywords) {
+    final Map<String, String> map = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+    for (final String keyword : keywords) {
+      map.put(keyword, keyword);
+    }
+    return map::get;
+  }
+
+  /**
+   * Classify a key
+   *
+   * @param key first key of a heading
+   * @return the canonical keyword that matches the key, or {@code null} if it is not a keyword
+   */
+  String keywordOf(String key);
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright 2020 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package io.fixprotocol.md.event;
+
+import java.util.function.Consumer;
+
+/**
+ * Counters and timings of a parse
+ *
+ * Pass an instance to {@link DocumentParser#parse(java.nio.file.Path, Consumer,
+ * DocumentParser.ParserErrorListener, ParseStatistics)} to have it filled. Counters accumulate, so
+ * one instance may total several documents. An instance is not thread-safe; use one per thread.
+ *
+ * Phases are timed in nanoseconds, and consumer time is excluded from the others. Lexing and
+ * walking are separate phases only when {@link DocumentParser.Engine#ANTLR} builds a parse tree. In
+ * streaming, parallel or scanner mode, they are part of the parse phase, and tokens are counted only
+ * by the ANTLR engine.
+ *
+ * {@link #toString()} renders the statistics as space-separated {@code key=value} pairs for logs.
+ *
+ * @author Don Mendelson
+ *
+ */
+public final class ParseStatistics {
+
+  private long bytes = 0;
+  private long cells = 0;
+  private long chars = 0;
+  private long consumerNanos = 0;
+  private long events = 0;
+  private long headings = 0;
+  private long lexNanos = 0;
+  private long parseNanos = 0;
+  private long rows = 0;
+  private long tables = 0;
+  private long tokens = 0;
+  private long walkNanos = 0;
+
+  /**
+   * @return number of bytes of input read
+   */
+  public long getBytes() {
+    return bytes;
+  }
+
+  /**
+   * @return number of table cells in rows
+   */
+  public long getCells() {
+    return cells;
+  }
+
+  /**
+   * @return number of characters of input parsed
+   */
+  public long getChars() {
+    return chars;
+  }
+
+  /**
+   * @return nanoseconds spent in the consumer of events
+   */
+  public long getConsumerNanos() {
+    return consumerNanos;
+  }
+
+  /**
+   * @return number of events supplied to the consumer
+   */
+  public long getEvents() {
+    return events;
+  }
+
+  /**
+   * @return number of headings
+   */
+  public long getHeadings() {
+    return headings;
+  }
+
+  /**
+   * @return nanoseconds spent lexing, if it is a separate phase
+   */
+  public long getLexNanos() {
+    return lexNanos;
+  }
+
+  /**
+   * @return nanoseconds spent parsing
+   */
+  public long getParseNanos() {
+    return parseNanos;
+  }
+
+  /**
+   * @return number of table rows
+   */
+  public long getRows() {
+    return rows;
+  }
+
+  /**
+   * @return number of tables
+   */
+  public long getTables() {
+    return tables;
+  }
+
+  /**
+   * @return number of tokens, excluding end of file
+   */
+  public long getTokens() {
+    return tokens;
+  }
+
+  /**
+   * @return nanoseconds spent walking a parse tree, if it is a separate phase
+   */
+  public long getWalkNanos() {
+    return walkNanos;
+  }
+
+  /**
+   * @return sum of all phases in nanoseconds
+   */
+  public long getTotalNanos() {
+    return lexNanos + parseNanos + walkNanos + consumerNanos;
+  }
+
+  @Override
+  public String toString() {
+    return "bytes=" + bytes + " chars=" + chars + " tokens=" + tokens + " events=" + events
+        + " headings=" + headings + " tables=" + tables + " rows=" + rows + " cells=" + cells
+        + " lexNanos=" + lexNanos + " parseNanos=" + parseNanos + " walkNanos=" + walkNanos
+        + " consumerNanos=" + consumerNanos + " totalNanos=" + getTotalNanos();
+  }
+
+  void addBytes(long bytes) {
+    this.bytes += bytes;
+  }
+
+  void addChars(long chars) {
+    this.chars += chars;
+  }
+
+  void addLexNanos(long nanos) {
+    this.lexNanos += nanos;
+  }
+
+  void addParseNanos(long nanos) {
+    this.parseNanos += nanos;
+  }
+
+  void addTokens(long tokens) {
+    this.tokens += tokens;
+  }
+
+  void addWalkNanos(long nanos) {
+    this.walkNanos += nanos;
+  }
+
+  /**
+   * Count and time the events supplied to a consumer
+   *
+   * @param contextConsumer consumer of document events
+   * @param tableRows {@code true} if rows are only supplied within a {@link DetailTable}
+   * @return a consumer that delegates to {@code contextConsumer}
+   */
+  Consumer<Contextual> consumer(Consumer<? super Contextual> contextConsumer, boolean tableRows) {
+    return contextual -> {
+      events++;
+      if (contextual instanceof Context) {
+        headings++;
+      } else if (contextual instanceof Detail) {
+        rows++;
+        cells += ((Detail) contextual).getProperties().size();
+      } else if (contextual instanceof DetailTable) {
+        tables++;
+        if (tableRows) {
+          for (final DetailProperties row : ((DetailTable) contextual).rows()) {
+            rows++;
+            cells += row.getProperties().size();
+          }
+        }
+      } else if (contextual instanceof TableStart) {
+        tables++;
+      }
+      final long start = System.nanoTime();
+      contextConsumer.accept(contextual);
+      consumerNanos += System.nanoTime() - start;
+    };
+  }
+}
@@ -0,0 +1,386 @@
+/*
+ * Copyright 2020 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package io.fixprotocol.md.event;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import io.fixprotocol.md.scanner.MarkdownScanner;
+
+/**
+ * Index of the sections of a markdown file by heading
+ *
+ * A section extends from its heading line to the next heading at the same or a higher level, so it
+ * contains its subsections. Positions are byte offsets in the file, which is read as UTF-8, so
+ * that {@link DocumentParser} can parse a section without reading the rest of the file.
+ *
+ * An index may be saved and read back. It is only valid for the file content that it was built
+ * from; see {@link #isCurrent(Path)}.
+ *
+ * @author Don Mendelson
+ *
+ */
+public final class SectionIndex {
+
+  /**
+   * A section of a document
+   */
+  public static final class Entry {
+    private long end;
+    private final long headingEnd;
+    private final String[] keys;
+    private final int level;
+    private final int lineOffset;
+    private final Entry parent;
+    private final long start;
+
+    Entry(String[] keys, int level, Entry parent, long start, long headingEnd, long end,
+        int lineOffset) {
+      this.keys = keys;
+      this.level = level;
+      this.parent = parent;
+      this.start = start;
+      this.headingEnd = headingEnd;
+      this.end = end;
+      this.lineOffset = lineOffset;
+    }
+
+    /**
+     * @return byte offset after the end of this section
+     */
+    public long getEnd() {
+      return end;
+    }
+
+    /**
+     * @return keys of the heading, the same as the keys of its {@link Context}
+     */
+    public String[] getKeys() {
+      return keys.clone();
+    }
+
+    /**
+     * @return heading level
+     */
+    public int getLevel() {
+      return level;
+    }
+
+    /**
+     * @return the enclosing section, or {@code null} if this section is top level
+     */
+    public Entry getParent() {
+      return parent;
+    }
+
+    /**
+     * @return heading text of the enclosing sections and this section, top level first
+     */
+    public List<String> getPath() {
+      final List<String> path = new ArrayList<>();
+      for (Entry entry = this; entry != null; entry = entry.parent) {
+        path.add(0, entry.getHeading());
+      }
+      return path;
+    }
+
+    /**
+     * @return byte offset of the start of the heading line
+     */
+    public long getStart() {
+      return start;
+    }
+
+    /**
+     * Tests whether this section contains another
+     *
+     * @param other another section of the same document
+     * @return {@code true} if the other section is this section or one of its subsections
+     */
+    public boolean contains(Entry other) {
+      return other.start >= start && other.end <= end;
+    }
+
+    @Override
+    public String toString() {
+      return "Entry [path=" + getPath() + ", level=" + level + ", start=" + start + ", end=" + end
+          + "]";
+    }
+
+    String getHeading() {
+      return String.join(" ", keys);
+    }
+
+    /**
+     * @return byte offset after the end of the heading line, including its line ending
+     */
+    long getHeadingEnd() {
+      return headingEnd;
+    }
+
+    /**
+     * @return number of lines in the document before this section
+     */
+    int getLineOffset() {
+      return lineOffset;
+    }
+  }
+
+  private static final int FORMAT_VERSION = 1;
+  private static final int MAGIC = 0x4d445349;
+  private static final String WHITESPACE_REGEX = "[ \t]";
+
+  /**
+   * Build an index of a markdown file
+   *
+   * Headings are found by the same rules as the parser, but no events are produced.
+   *
+   * @param path markdown file
+   * @return an index of its sections
+   * @throws IOException if the file cannot be read
+   */
+  public static SectionIndex build(Path path) throws IOException {
+    final long size = Files.size(path);
+    final long lastModified = Files.getLastModifiedTime(path).toMillis();
+    final CharSequence text = DocumentParser.readText(path);
+    final List<int[]> headingLines = MarkdownScanner.headingLines(text);
+
+    // convert character positions to UTF-8 byte offsets and line numbers in one pass
+    final List<Entry> entries = new ArrayList<>(headingLines.size());
+    final List<Entry> open = new ArrayList<>();
+    int position = 0;
+    long bytes = 0;
+    int lines = 0;
+    for (int i = 0; i < headingLines.size(); i++) {
+      final int start = headingLines.get(i)[0];
+      for (; position < start; position++) {
+        final char c = text.charAt(position);
+        bytes += utf8Length(c);
+        if (c == '\n') {
+          lines++;
+        }
+      }
+      final long startBytes = bytes;
+      final int lineOffset = lines;
+      int lineEnd = headingLines.get(i)[1];
+      while (lineEnd < text.length() && text.charAt(lineEnd - 1) != '\n') {
+        lineEnd++;
+      }
+      long headingEnd = bytes;
+      for (; position < lineEnd; position++) {
+        final char c = text.charAt(position);
+        headingEnd += utf8Length(c);
+        if (c == '\n') {
+          lines++;
+        }
+      }
+      bytes = headingEnd;
+
+      // same keys and level as EventAssembler.endHeading
+      final String headingLine = text.subSequence(start, headingLines.get(i)[1]).toString();
+      final int level = headingLine.indexOf(" ");
+      final String[] keys = headingLine.substring(level + 1).split(WHITESPACE_REGEX);
+      closeSections(open, entries, level, startBytes);
+      final Entry parent = open.isEmpty() ? null : open.get(open.size() - 1);
+      open.add(new Entry(keys, level, parent, startBytes, headingEnd, -1, lineOffset));
+    }
+    closeSections(open, entries, Integer.MIN_VALUE, size);
+    entries.sort((e1, e2) -> Long.compare(e1.start, e2.start));
+    return new SectionIndex(size, lastModified, entries);
+  }
+
+  /**
+   * Read an index that was saved by {@link #write(Path)}
+   *
+   * @param indexPath file of a saved index
+   * @return the index
+   * @throws IOException if the file cannot be read or is not a saved index
+   */
+  public static SectionIndex read(Path indexPath) throws IOException {
+    try (DataInputStream in =
+        new DataInputStream(new BufferedInputStream(Files.newInputStream(indexPath)))) {
+      if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+        throw new IOException("Not a section index: " + indexPath);
+      }
+      final long size = in.readLong();
+      final long lastModified = in.readLong();
+      final int count = in.readInt();
+      final List<Entry> entries = new ArrayList<>(count);
+      for (int i = 0; i < count; i++) {
+        final int parentIndex = in.readInt();
+        final int level = in.readInt();
+        final long start = in.readLong();
+        final long headingEnd = in.readLong();
+        final long end = in.readLong();
+        final int lineOffset = in.readInt();
+        final String[] keys = new String[in.readInt()];
+        for (int k = 0; k < keys.length; k++) {
+          keys[k] = in.readUTF();
+        }
+        final Entry parent = parentIndex >= 0 ? entries.get(parentIndex) : null;
+        entries.add(new Entry(keys, level, parent, start, headingEnd, end, lineOffset));
+      }
+      return new SectionIndex(size, lastModified, entries);
+    }
+  }
+
+  private static void closeSections(List<Entry> open, List<Entry> entries, int level, long end) {
+    // a section is closed by a heading at the same or a higher level
+    for (int i = open.size() - 1; i >= 0 && level <= open.get(i).level; i--) {
+      final Entry entry = open.remove(i);
+      entry.end = end;
+      entries.add(entry);
+    }
+  }
+
+  private static int utf8Length(char c) {
+    if (c < 0x80) {
+      return 1;
+    } else if (c < 0x800) {
+      return 2;
+    } else if (Character.isHighSurrogate(c)) {
+      // a surrogate pair is encoded in 4 bytes
+      return 4;
+    } else if (Character.isLowSurrogate(c)) {
+      return 0;
+    } else {
+      return 3;
+    }
+  }
+
+  private final List<Entry> entries;
+  private final long lastModified;
+  private final long size;
+
+  private SectionIndex(long size, long lastModified, List<Entry> entries) {
+    this.size = size;
+    this.lastModified = lastModified;
+    this.entries = Collections.unmodifiableList(entries);
+  }
+
+  /**
+   * Find sections by the keys of their headings
+   *
+   * @param keys leading keys of a heading, e.g. "Message", "NewOrderSingle". Keys are
+   *        case-insensitive.
+   * @return sections with matching headings in document order, or an empty list if none match
+   */
+  public List<Entry> find(String... keys) {
+    final List<Entry> found = new ArrayList<>();
+    for (final Entry entry : entries) {
+      if (entry.keys.length >= keys.length) {
+        int k = 0;
+        while (k < keys.length && entry.keys[k].equalsIgnoreCase(keys[k])) {
+          k++;
+        }
+        if (k == keys.length) {
+          found.add(entry);
+        }
+      }
+    }
+    return found;
+  }
+
+  /**
+   * @return all sections in document order
+   */
+  public List<Entry> getEntries() {
+    return entries;
+  }
+
+  /**
+   * Access a section by its heading path
+   *
+   * @param path heading text of the enclosing sections and the section, top level first. Heading
+   *        text is case-insensitive.
+   * @return the first section with the path, or {@code null} if none matches
+   */
+  public Entry getEntry(String... path) {
+    for (final Entry entry : entries) {
+      if (matchesPath(entry, path, path.length - 1)) {
+        return entry;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Tests whether this index was built from the current content of a file
+   *
+   * The size and last modified time of the file are compared to those when it was indexed.
+   *
+   * @param path markdown file
+   * @return {@code true} if the index is valid for the file
+   * @throws IOException if file attributes cannot be read
+   */
+  public boolean isCurrent(Path path) throws IOException {
+    return Files.size(path) == size && Files.getLastModifiedTime(path).toMillis() == lastModified;
+  }
+
+  /**
+   * Save this index
+   *
+   * @param indexPath file to write
+   * @throws IOException if the file cannot be written
+   */
+  public void write(Path indexPath) throws IOException {
+    try (DataOutputStream out =
+        new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(indexPath)))) {
+      out.writeInt(MAGIC);
+      out.writeInt(FORMAT_VERSION);
+      out.writeLong(size);
+      out.writeLong(lastModified);
+      out.writeInt(entries.size());
+      final Map<Entry, Integer> positions = new HashMap<>();
+      for (final Entry entry : entries) {
+        // a parent precedes its subsections
+        out.writeInt(entry.parent != null ? positions.get(entry.parent) : -1);
+        positions.put(entry, positions.size());
+        out.writeInt(entry.level);
+        out.writeLong(entry.start);
+        out.writeLong(entry.headingEnd);
+        out.writeLong(entry.end);
+        out.writeInt(entry.lineOffset);
+        out.writeInt(entry.keys.length);
+        for (final String key : entry.keys) {
+          out.writeUTF(key);
+        }
+      }
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "SectionIndex [size=" + size + ", entries=" + entries.size() + "]";
+  }
+
+  private boolean matchesPath(Entry entry, String[] path, int index) {
+    if (index < 0) {
+      return entry == null;
+    } else {
+      return entry != null && entry.getHeading().equalsIgnoreCase(path[index])
+          && matchesPath(entry.parent, path, index - 1);
+    }
+  }
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright 2020 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package io.fixprotocol.md.event;
+
+import java.util.List;
+
+/**
+ * Start of a table whose rows are supplied as separate events
+ *
+ * It is followed by a {@link Detail} for each row of the table, and then by a {@link TableEnd}.
+ *
+ * @author Don Mendelson
+ *
+ */
+public interface TableStart extends Contextual {
+
+  /**
+   * Column headings of the table
+   *
+   * @return an unmodifiable List of headings as written. The property keys of rows are the
+   *         headings in lower case.
+   */
+  List<String> getHeadings();
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2020 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package io.fixprotocol.md.event;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Outcome of validating a markdown file
+ *
+ * @author Don Mendelson
+ * @see DocumentParser#validateAll(java.util.Collection)
+ */
+public final class ValidationResult {
+
+  /**
+   * A parser error
+   */
+  public static final class Diagnostic {
+    private final int charPositionInLine;
+    private final int line;
+    private final String msg;
+
+    Diagnostic(int line, int charPositionInLine, String msg) {
+      this.line = line;
+      this.charPositionInLine = charPositionInLine;
+      this.msg = msg;
+    }
+
+    public int getCharPositionInLine() {
+      return charPositionInLine;
+    }
+
+    public int getLine() {
+      return line;
+    }
+
+    public String getMessage() {
+      return msg;
+    }
+
+    @Override
+    public String toString() {
+      return line + ":" + charPositionInLine + " " + msg;
+    }
+  }
+
+  private final List<Diagnostic> diagnostics;
+  private final IOException exception;
+  private final boolean isValid;
+  private final Path path;
+
+  ValidationResult(Path path, boolean isValid, List<Diagnostic> diagnostics,
+      IOException exception) {
+    this.path = path;
+    this.isValid = isValid;
+    this.diagnostics = List.copyOf(diagnostics);
+    this.exception = exception;
+  }
+
+  /**
+   * @return parser errors in document order, up to the error limit of the parser
+   */
+  public List<Diagnostic> getDiagnostics() {
+    return diagnostics;
+  }
+
+  /**
+   * @return the exception if the file could not be read, otherwise {@code null}
+   */
+  public IOException getException() {
+    return exception;
+  }
+
+  /**
+   * @return the markdown file
+   */
+  public Path getPath() {
+    return path;
+  }
+
+  /**
+   * @return {@code true} if the file was read and fully parsed without errors
+   */
+  public boolean isValid() {
+    return isValid;
+  }
+
+  @Override
+  public String toString() {
+    return "ValidationResult [path=" + path + ", isValid=" + isValid + ", diagnostics="
+        + diagnostics + (exception != null ? ", exception=" + exception : "") + "]";
+  }
+}
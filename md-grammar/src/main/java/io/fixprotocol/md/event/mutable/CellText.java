@@ -0,0 +1,140 @@
+/*
+ * Copyright 2020 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package io.fixprotocol.md.event.mutable;
+
+import io.fixprotocol.md.event.MarkdownUtil;
+
+/**
+ * Raw text of a table cell as a view of a document
+ *
+ * No characters are copied until a value is materialized. Trimming is done on offsets, so only
+ * the trimmed value is copied.
+ *
+ * @author Don Mendelson
+ *
+ */
+final class CellText implements CharSequence {
+
+  // same characters as EventAssembler.trimCell
+  private static boolean isCellNonText(char c) {
+    return c == ' ' || c == '|' || c == '\t';
+  }
+
+  /**
+   * Materialize a cell value
+   *
+   * @param value a String or a CellText
+   * @return value as stripped by {@link MarkdownUtil#stripCell(String)}
+   */
+  static String stripped(CharSequence value) {
+    if (value instanceof CellText) {
+      return ((CellText) value).stripped();
+    } else {
+      return MarkdownUtil.stripCell((String) value);
+    }
+  }
+
+  private final int end;
+  private final CharSequence source;
+  private final int start;
+
+  /**
+   * Constructor
+   *
+   * @param source document text. It must not change while this cell is referenced.
+   * @param start index of the first character of the cell, including its leading pipe
+   * @param end index after the last character of the cell
+   */
+  CellText(CharSequence source, int start, int end) {
+    this.source = source;
+    this.start = start;
+    this.end = end;
+  }
+
+  @Override
+  public char charAt(int index) {
+    return source.charAt(start + index);
+  }
+
+  @Override
+  public int length() {
+    return end - start;
+  }
+
+  @Override
+  public CharSequence subSequence(int beginIndex, int endIndex) {
+    return source.subSequence(start + beginIndex, start + endIndex);
+  }
+
+  @Override
+  public String toString() {
+    return source.subSequence(start, end).toString();
+  }
+
+  /**
+   * @return {@code true} if the value trimmed by {@link EventAssembler#trimCell(String)} is blank
+   */
+  boolean isBlankValue() {
+    for (int i = start; i < end; i++) {
+      final char c = source.charAt(i);
+      if (!isCellNonText(c) && !Character.isWhitespace(c)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @return {@code true} if the value stripped by {@link MarkdownUtil#stripCell(String)} is empty
+   */
+  boolean isEmptyValue() {
+    for (int i = start; i < end; i++) {
+      if (!isCellNonText(source.charAt(i))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @return the same value as {@code MarkdownUtil.stripCell(toString())}
+   */
+  String stripped() {
+    int begin = start;
+    int last = end - 1;
+    while (begin < end && isCellNonText(source.charAt(begin))) {
+      begin++;
+    }
+    while (begin < last && (source.charAt(last) == ' ' || source.charAt(last) == '\t')) {
+      last--;
+    }
+    return source.subSequence(begin, last + 1).toString();
+  }
+
+  /**
+   * @return the same value as {@code EventAssembler.trimCell(toString())}
+   */
+  String trimmed() {
+    int begin = start;
+    int last = end;
+    while (begin < last && isCellNonText(source.charAt(begin))) {
+      begin++;
+    }
+    while (last > begin && isCellNonText(source.charAt(last - 1))) {
+      last--;
+    }
+    return source.subSequence(begin, last).toString();
+  }
+}
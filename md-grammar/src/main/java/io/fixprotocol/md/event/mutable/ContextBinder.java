@@ -0,0 +1,69 @@
+/*
+ * Copyright 2020 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.fixprotocol.md.event.mutable;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import io.fixprotocol.md.event.Contextual;
+import io.fixprotocol.md.event.MutableContext;
+import io.fixprotocol.md.event.MutableContextual;
+
+/**
+ * Binds document events to their parent Context by heading level
+ *
+ * Parents depend only on the order of events, so events that were assembled separately, such as
+ * sections of a document, are bound as if the whole document were assembled at once by passing
+ * them to a single binder in document order.
+ *
+ * @author Don Mendelson
+ *
+ */
+public class ContextBinder {
+
+  private final Deque<MutableContext> contexts = new ArrayDeque<>();
+
+  /**
+   * Bind an event to its parent
+   *
+   * @param contextual a document event. It is unchanged if it is not mutable.
+   */
+  public void bind(Contextual contextual) {
+    if (contextual instanceof MutableContext) {
+      bind((MutableContext) contextual);
+    } else if (contextual instanceof MutableContextual) {
+      bind((MutableContextual) contextual);
+    }
+  }
+
+  void bind(final MutableContext context) {
+    // Remove previous contexts at same or lower level
+    contexts.removeIf(c -> context.getLevel() <= c.getLevel());
+    final MutableContext lastContext = contexts.peekLast();
+
+    // Add top level context or lower level than parent. A context bound before may be top level
+    // now.
+    if (lastContext == null) {
+      context.setParent(null);
+      contexts.add(context);
+    } else if (context.getLevel() > lastContext.getLevel()) {
+      context.setParent(lastContext);
+      contexts.add(context);
+    }
+  }
+
+  void bind(final MutableContextual contextual) {
+    final MutableContext lastContext = contexts.peekLast();
+    contextual.setParent(lastContext);
+  }
+}
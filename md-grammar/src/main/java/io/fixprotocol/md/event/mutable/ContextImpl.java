@@ -18,13 +18,17 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import io.fixprotocol.md.event.Context;
+import io.fixprotocol.md.event.KeywordVocabulary;
 import io.fixprotocol.md.event.MutableContext;
 
 public class ContextImpl implements MutableContext {
 
+  private Context keyContext = null;
+  private String keyword = null;
   private final List<String> keys = new ArrayList<>();
   private final int level;
   private Context parent = null;
+  private KeywordVocabulary vocabulary = null;
 
   public ContextImpl() {
     this(EMPTY_CONTEXT, DEFAULT_LEVEL);
@@ -48,6 +52,31 @@ public class ContextImpl implements MutableContext {
     keys.add(key);
   }
 
+  /**
+   * Classify this Context by a vocabulary
+   *
+   * The keyword and key Context for the vocabulary are retained, and the key Context is resolved
+   * again whenever the parent is set, so that they are not searched for each event.
+   *
+   * @param vocabulary keywords of a consumer
+   */
+  public void classify(KeywordVocabulary vocabulary) {
+    this.vocabulary = vocabulary;
+    this.keyword = MutableContext.super.getKeyword(vocabulary);
+    resolveKeyContext();
+  }
+
+  @Override
+  public Context getKeyContext(KeywordVocabulary vocabulary) {
+    return vocabulary == this.vocabulary ? keyContext
+        : MutableContext.super.getKeyContext(vocabulary);
+  }
+
+  @Override
+  public String getKeyword(KeywordVocabulary vocabulary) {
+    return vocabulary == this.vocabulary ? keyword : MutableContext.super.getKeyword(vocabulary);
+  }
+
   /**
    * Returns a key by its position
    *
@@ -99,6 +128,9 @@ public class ContextImpl implements MutableContext {
   @Override
   public void setParent(Context parent) {
     this.parent = parent;
+    if (vocabulary != null) {
+      resolveKeyContext();
+    }
   }
 
   @Override
@@ -106,4 +138,12 @@ public class ContextImpl implements MutableContext {
     return "ContextImpl [keys=" + keys + ", level=" + level + "]";
   }
 
+  private void resolveKeyContext() {
+    if (keyword != null || level == DEFAULT_LEVEL) {
+      keyContext = this;
+    } else {
+      keyContext = parent != null ? parent.getKeyContext(vocabulary) : null;
+    }
+  }
+
 }
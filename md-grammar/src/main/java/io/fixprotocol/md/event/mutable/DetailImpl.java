@@ -14,9 +14,13 @@
  */
 package io.fixprotocol.md.event.mutable;
 
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
 import io.fixprotocol.md.event.Context;
@@ -25,7 +29,8 @@ import io.fixprotocol.md.event.MutableDetail;
 
 public class DetailImpl implements MutableDetail {
 
-  private final Map<String, String> properties = new LinkedHashMap<>();
+  // a String once materialized, or a CellText
+  private final Map<String, CharSequence> properties = new LinkedHashMap<>();
   private Context parent;
 
 
@@ -36,7 +41,7 @@ public class DetailImpl implements MutableDetail {
 
   @Override
   public void addProperty(String key, String value) {
-    properties.put(key.toLowerCase(), value);
+    properties.put(key.toLowerCase(Locale.ROOT), value);
   }
 
 
@@ -60,12 +65,28 @@ public class DetailImpl implements MutableDetail {
 
   @Override
   public Collection<Entry<String, String>> getProperties() {
-    return Collections.unmodifiableSet(properties.entrySet());
+    final List<Entry<String, String>> entries = new ArrayList<>(properties.size());
+    for (final Entry<String, CharSequence> entry : properties.entrySet()) {
+      entries.add(new SimpleImmutableEntry<>(entry.getKey(), materialize(entry)));
+    }
+    return Collections.unmodifiableList(entries);
   }
 
   @Override
   public String getProperty(String key) {
-    return MarkdownUtil.stripCell(properties.get(key.toLowerCase()));
+    // keys are stored in lower case, so a lower case key needs no conversion
+    String lowerKey = key;
+    CharSequence value = properties.get(key);
+    if (value == null) {
+      lowerKey = key.toLowerCase(Locale.ROOT);
+      value = properties.get(lowerKey);
+    }
+    if (value instanceof CellText) {
+      final String materialized = ((CellText) value).trimmed();
+      properties.replace(lowerKey, materialized);
+      return MarkdownUtil.stripCell(materialized);
+    }
+    return MarkdownUtil.stripCell((String) value);
   }
 
   @Override
@@ -73,5 +94,26 @@ public class DetailImpl implements MutableDetail {
     this.parent = parent;
   }
 
+  /**
+   * Sets a property without converting its key
+   *
+   * @param lowerKey key to the property, already in lower case
+   * @param value a value, or the raw text of a table cell as a view of a document, to be trimmed
+   *        when it is accessed
+   */
+  void setValue(String lowerKey, CharSequence value) {
+    properties.put(lowerKey, value);
+  }
+
+  private String materialize(Entry<String, CharSequence> entry) {
+    final CharSequence value = entry.getValue();
+    if (value instanceof CellText) {
+      final String materialized = ((CellText) value).trimmed();
+      entry.setValue(materialized);
+      return materialized;
+    }
+    return (String) value;
+  }
+
 
 }
@@ -14,39 +14,71 @@
  */
 package io.fixprotocol.md.event.mutable;
 
+import java.util.AbstractMap.SimpleImmutableEntry;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Objects;
+import io.fixprotocol.md.event.ColumnarDetailTable;
 import io.fixprotocol.md.event.Context;
 import io.fixprotocol.md.event.DetailProperties;
 import io.fixprotocol.md.event.MarkdownUtil;
-import io.fixprotocol.md.event.MutableDetailProperties;
-import io.fixprotocol.md.event.MutableDetailTable;
 import io.fixprotocol.md.event.MutableTableColumn;
 
-public class DetailTableImpl implements MutableDetailTable {
+/**
+ * A table with columnar storage
+ *
+ * Column keys are held once by the table, and each row holds an array of values indexed by column
+ * ordinal. A value may be held as a view of the document until it is first accessed.
+ *
+ * @author Don Mendelson
+ *
+ */
+public class DetailTableImpl implements ColumnarDetailTable {
 
-  private static class DetailPropertiesImpl implements MutableDetailProperties {
+  /**
+   * Create a table column
+   *
+   * @param key data key of values in the column
+   * @param width expected width of values
+   * @return a mutable table column
+   */
+  public static MutableTableColumn createTableColumn(String key, int width) {
+    return new TableColumnImpl(key, width);
+  }
 
-    private final Map<String, String> properties = new LinkedHashMap<>();
+  class DetailPropertiesImpl implements Row {
+    // a String once materialized, or a CellText
+    private CharSequence[] values = new CharSequence[columnKeys.size()];
 
     @Override
     public void addIntProperty(String key, int value) {
       addProperty(key, Integer.toString(value));
     }
 
+    @Override
+    public void addProperty(int ordinal, String value) {
+      if (value != null) {
+        final String trimmed = MarkdownUtil.stripCell(value);
+        if (!trimmed.isEmpty()) {
+          putValue(ordinal, trimmed);
+        }
+      }
+    }
+
     @Override
     public void addProperty(String key, String value) {
       if (value != null) {
         final String trimmed = MarkdownUtil.stripCell(value);
         if (!trimmed.isEmpty()) {
-          properties.put(Objects.requireNonNull(key, "Missing property key").toLowerCase(),
-              trimmed);
+          putValue(addColumn(key), trimmed);
         }
       }
     }
@@ -66,23 +98,93 @@ public class DetailTableImpl implements MutableDetailTable {
 
     @Override
     public Collection<Entry<String, String>> getProperties() {
-      return Collections.unmodifiableSet(properties.entrySet());
+      final List<Entry<String, String>> properties = new ArrayList<>(values.length);
+      for (int i = 0; i < values.length; i++) {
+        if (values[i] != null) {
+          properties.add(new SimpleImmutableEntry<>(columnKeys.get(i), getProperty(i)));
+        }
+      }
+      return Collections.unmodifiableList(properties);
+    }
+
+    @Override
+    public String getProperty(int ordinal) {
+      if (ordinal < 0 || ordinal >= values.length) {
+        return null;
+      }
+      final CharSequence value = values[ordinal];
+      if (value == null || value instanceof String) {
+        return (String) value;
+      }
+      // a race to materialize yields equal strings
+      final String materialized = CellText.stripped(value);
+      values[ordinal] = materialized;
+      return materialized;
     }
 
     @Override
     public String getProperty(String key) {
-      return properties.get(Objects.requireNonNull(key, "Missing property key").toLowerCase());
+      return getProperty(getOrdinal(key));
     }
 
     @Override
     public String toString() {
-      return "DetailPropertiesImpl [properties=" + properties + "]";
+      return "DetailPropertiesImpl [properties=" + getProperties() + "]";
+    }
+
+    /**
+     * Sets the raw text of a cell, to be stripped when it is accessed
+     *
+     * @param ordinal column ordinal
+     * @param cell raw cell text as a view of a document
+     */
+    void addCell(int ordinal, CellText cell) {
+      if (!cell.isEmptyValue()) {
+        putValue(ordinal, cell);
+      }
+    }
+
+    /**
+     * Sets a value that is already stripped
+     *
+     * @param ordinal column ordinal
+     * @param value stripped value. It is ignored if it is empty.
+     */
+    void setValue(int ordinal, String value) {
+      if (!value.isEmpty()) {
+        putValue(ordinal, value);
+      }
+    }
+
+    private void putValue(int ordinal, CharSequence value) {
+      if (ordinal >= values.length) {
+        values = Arrays.copyOf(values, columnKeys.size());
+      }
+      values[ordinal] = value;
     }
   }
 
-  private final List<DetailProperties> propertiesList = new ArrayList<>();
+  private final List<String> columnKeys = new ArrayList<>();
+  // ordinals by key as given, to avoid converting case on every access
+  private final Map<String, Integer> keyOrdinals = new HashMap<>();
+  // ordinals by lower case key
+  private final Map<String, Integer> ordinals = new HashMap<>();
   private Context parent;
+  private final List<DetailProperties> propertiesList = new ArrayList<>();
 
+  @Override
+  public int addColumn(String key) {
+    final int ordinal = getOrdinal(key);
+    if (ordinal != -1) {
+      return ordinal;
+    }
+    final String lowerKey = key.toLowerCase(Locale.ROOT);
+    final int newOrdinal = columnKeys.size();
+    columnKeys.add(lowerKey);
+    ordinals.put(lowerKey, newOrdinal);
+    keyOrdinals.put(key, newOrdinal);
+    return newOrdinal;
+  }
 
   @Override
   public DetailProperties addProperties(DetailProperties detailProperties) {
@@ -90,6 +192,29 @@ public class DetailTableImpl implements MutableDetailTable {
     return detailProperties;
   }
 
+  @Override
+  public int getColumnCount() {
+    return columnKeys.size();
+  }
+
+  @Override
+  public String getColumnKey(int ordinal) {
+    return columnKeys.get(ordinal);
+  }
+
+  @Override
+  public int getOrdinal(String key) {
+    Integer ordinal = keyOrdinals.get(Objects.requireNonNull(key, "Missing property key"));
+    if (ordinal == null) {
+      ordinal = ordinals.get(key.toLowerCase(Locale.ROOT));
+      if (ordinal == null) {
+        return -1;
+      }
+      keyOrdinals.put(key, ordinal);
+    }
+    return ordinal;
+  }
+
   @Override
   public Context getParent() {
     return parent;
@@ -98,7 +223,6 @@ public class DetailTableImpl implements MutableDetailTable {
   @Override
   public MutableTableColumn[] getTableColumns() {
     final Map<String, TableColumnImpl> columns = new LinkedHashMap<>();
-
     rows().forEach(r -> r.getProperties().forEach(p -> {
       final String key = p.getKey();
       final TableColumnImpl column = columns.get(key);
@@ -108,7 +232,6 @@ public class DetailTableImpl implements MutableDetailTable {
         column.updateLength(p.getValue().length());
       }
     }));
-
     final Collection<TableColumnImpl> values = columns.values();
     final MutableTableColumn[] array = new MutableTableColumn[values.size()];
     values.toArray(array);
@@ -116,7 +239,7 @@ public class DetailTableImpl implements MutableDetailTable {
   }
 
   @Override
-  public MutableDetailProperties newRow() {
+  public Row newRow() {
     final DetailPropertiesImpl detailProperties = new DetailPropertiesImpl();
     addProperties(detailProperties);
     return detailProperties;
@@ -125,12 +248,10 @@ public class DetailTableImpl implements MutableDetailTable {
   @Override
   public Collection<? extends DetailProperties> rows() {
     return Collections.unmodifiableList(propertiesList);
-
   }
 
   @Override
   public void setParent(Context parent) {
     this.parent = parent;
   }
-
 }
@@ -0,0 +1,346 @@
+/*
+ * Copyright 2020 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.fixprotocol.md.event.mutable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import io.fixprotocol.md.event.Contextual;
+import io.fixprotocol.md.event.DocumentParser.TableEvents;
+import io.fixprotocol.md.event.KeywordVocabulary;
+import io.fixprotocol.md.event.MarkdownUtil;
+import io.fixprotocol.md.event.MutableContext;
+import io.fixprotocol.md.event.MutableContextual;
+
+/**
+ * Assembles document events from markdown elements as they are recognized, and supplies them to a
+ * consumer
+ *
+ * Elements are reported in document order with begin and end notifications, so that any parser
+ * engine generates the same events.
+ *
+ * @author Don Mendelson
+ *
+ */
+public class EventAssembler {
+
+  private static final String CELL_NONTEXT = " |\t";
+  private static final String WHITESPACE_REGEX = "[ \t]";
+
+  public static String trimCell(String text) {
+    int beginIndex = 0;
+    int endIndex = text.length();
+    for (; beginIndex < endIndex
+        && (CELL_NONTEXT.indexOf(text.charAt(beginIndex)) != -1); beginIndex++);
+    for (; endIndex > beginIndex
+        && (CELL_NONTEXT.indexOf(text.charAt(endIndex - 1)) != -1); endIndex--);
+    return text.substring(beginIndex, endIndex);
+  }
+
+  static String normalizeList(List<String> textlines) {
+    return String.join("\n", textlines);
+  }
+
+  static String normalizeParagraph(List<String> textlines) {
+    return String.join(" ", textlines);
+  }
+
+  static String normalizeQuote(List<String> textlines) {
+    return String.join("\n", textlines);
+  }
+
+  private final ContextBinder binder = new ContextBinder();
+  private final Consumer<? super Contextual> contextConsumer;
+  private boolean inTableHeading = false;
+  private final List<String> lastBlocks = new ArrayList<>();
+  private int lastColumnNo;
+  private final boolean lazyValues;
+  // lines of the current paragraph, list, or quote
+  private final List<String> lastLines = new ArrayList<>();
+  // a String or a CellText
+  private final List<CharSequence> lastRowCells = new ArrayList<>();
+  private final List<CharSequence> lastRowValues = new ArrayList<>();
+  // raw cell text of each row of the current table
+  private final List<List<CharSequence>> lastTableRows = new ArrayList<>();
+  private final List<String> lastTableHeadings = new ArrayList<>();
+  // headings as property keys, converted to lower case once per table
+  private final List<String> lastTableKeys = new ArrayList<>();
+  private int lastTableRowCount;
+  private final Logger logger = LogManager.getLogger(getClass());
+  // keys and short values shared by the events of a document
+  private final StringPool pool = new StringPool();
+  private final TableEvents tableEvents;
+  private final KeywordVocabulary vocabulary;
+
+  /**
+   * Constructor
+   *
+   * @param contextConsumer consumer of document events
+   */
+  public EventAssembler(Consumer<? super Contextual> contextConsumer) {
+    this(contextConsumer, false);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param contextConsumer consumer of document events
+   * @param lazyValues if {@code true}, a table cell added as a range of a document is held as a
+   *        view of the document until its value is accessed
+   */
+  public EventAssembler(Consumer<? super Contextual> contextConsumer, boolean lazyValues) {
+    this(contextConsumer, lazyValues, TableEvents.ROWS_AND_TABLE);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param contextConsumer consumer of document events
+   * @param lazyValues if {@code true}, a table cell added as a range of a document is held as a
+   *        view of the document until its value is accessed
+   * @param tableEvents events supplied for a table
+   */
+  public EventAssembler(Consumer<? super Contextual> contextConsumer, boolean lazyValues,
+      TableEvents tableEvents) {
+    this(contextConsumer, lazyValues, tableEvents, null);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param contextConsumer consumer of document events
+   * @param lazyValues if {@code true}, a table cell added as a range of a document is held as a
+   *        view of the document until its value is accessed
+   * @param tableEvents events supplied for a table
+   * @param vocabulary classifies each heading. May be {@code null}.
+   */
+  public EventAssembler(Consumer<? super Contextual> contextConsumer, boolean lazyValues,
+      TableEvents tableEvents, KeywordVocabulary vocabulary) {
+    this.contextConsumer = contextConsumer;
+    this.lazyValues = lazyValues;
+    this.tableEvents = tableEvents;
+    this.vocabulary = vocabulary;
+  }
+
+  /**
+   * Adds the raw text of a table cell, including its leading pipe
+   *
+   * @param rawText cell text
+   */
+  public void addCell(String rawText) {
+    final String cellText = trimCell(rawText);
+    if (inTableHeading) {
+      lastTableHeadings.add(cellText);
+    } else {
+      lastRowCells.add(rawText);
+      lastRowValues.add(pool.value(cellText));
+    }
+    lastColumnNo++;
+  }
+
+  /**
+   * Adds a table cell as a range of a document, including its leading pipe
+   *
+   * The text of a cell in a table heading is always copied, since it becomes a property key.
+   *
+   * @param source document text. In lazy mode, it must not change while events are referenced.
+   * @param start index of the first character of the cell
+   * @param end index after the last character of the cell
+   */
+  public void addCell(CharSequence source, int start, int end) {
+    if (lazyValues && !inTableHeading) {
+      final CellText cell = new CellText(source, start, end);
+      lastRowCells.add(cell);
+      lastRowValues.add(cell);
+      lastColumnNo++;
+    } else {
+      addCell(source.subSequence(start, end).toString());
+    }
+  }
+
+  /**
+   * Adds a line of a paragraph, list or quote
+   *
+   * @param line text of the line
+   */
+  public void addLine(String line) {
+    lastLines.add(line);
+  }
+
+  public void beginHeading() {
+    supplyLastDocumentation();
+    lastBlocks.clear();
+  }
+
+  /**
+   * Begins a paragraph, list or quote
+   */
+  public void beginLines() {
+    lastLines.clear();
+  }
+
+  public void beginTable() {
+    supplyLastDocumentation();
+    lastBlocks.clear();
+    lastTableRows.clear();
+    lastTableRowCount = 0;
+  }
+
+  public void beginTableHeading() {
+    lastTableHeadings.clear();
+    inTableHeading = true;
+  }
+
+  public void beginTableRow() {
+    lastColumnNo = 0;
+    lastRowCells.clear();
+    lastRowValues.clear();
+  }
+
+  public void endDocument() {
+    supplyLastDocumentation();
+  }
+
+  /**
+   * Ends a heading, which changes the context
+   *
+   * @param headingLine text of the heading line, including leading hashes
+   */
+  public void endHeading(String headingLine) {
+    // Heading level is length of first word formed with '#'
+    final int headingLevel = headingLine.indexOf(" ");
+    final String[] headingWords = headingLine.substring(headingLevel + 1).split(WHITESPACE_REGEX);
+    for (int i = 0; i < headingWords.length; i++) {
+      headingWords[i] = pool.value(headingWords[i]);
+    }
+    final ContextImpl context = new ContextImpl(headingWords, headingLevel);
+    if (vocabulary != null) {
+      context.classify(vocabulary);
+    }
+    updateParentContext(context);
+
+    contextConsumer.accept(context);
+  }
+
+  public void endList() {
+    lastBlocks.add(normalizeList(lastLines));
+  }
+
+  public void endParagraph() {
+    lastBlocks.add(normalizeParagraph(lastLines));
+  }
+
+  public void endQuote() {
+    lastBlocks.add(normalizeQuote(lastLines));
+  }
+
+  public void endTable() {
+    if (!inTableHeading && tableEvents == TableEvents.ROWS) {
+      final TableEndImpl tableEnd = new TableEndImpl(lastTableRowCount);
+      updateParentContext(tableEnd);
+      if (contextConsumer != null) {
+        contextConsumer.accept(tableEnd);
+      }
+    } else if (!inTableHeading) {
+      final DetailTableImpl detailTable = new DetailTableImpl();
+      final int[] ordinals = new int[lastTableKeys.size()];
+      for (int i = 0; i < ordinals.length; i++) {
+        ordinals[i] = detailTable.addColumn(lastTableKeys.get(i));
+      }
+
+      for (final List<CharSequence> rowCells : lastTableRows) {
+        final DetailTableImpl.DetailPropertiesImpl detail =
+            (DetailTableImpl.DetailPropertiesImpl) detailTable.newRow();
+
+        for (int i = 0; i < rowCells.size() && i < ordinals.length; i++) {
+          final CharSequence cell = rowCells.get(i);
+          if (cell instanceof CellText) {
+            detail.addCell(ordinals[i], (CellText) cell);
+          } else if (cell != null) {
+            detail.setValue(ordinals[i], pool.value(MarkdownUtil.stripCell((String) cell)));
+          } else {
+            logger.error("MarkdownEventSource table cell missing in column {}", i);
+          }
+        }
+      }
+      lastTableRows.clear();
+      updateParentContext(detailTable);
+      if (contextConsumer != null) {
+        contextConsumer.accept(detailTable);
+      }
+    }
+  }
+
+  public void endTableHeading() {
+    inTableHeading = false;
+    lastTableKeys.clear();
+    for (final String heading : lastTableHeadings) {
+      lastTableKeys.add(pool.key(heading));
+    }
+    if (tableEvents == TableEvents.ROWS) {
+      final TableStartImpl tableStart = new TableStartImpl(lastTableHeadings);
+      updateParentContext(tableStart);
+      if (contextConsumer != null) {
+        contextConsumer.accept(tableStart);
+      }
+    }
+  }
+
+  public void endTableRow() {
+    if (!inTableHeading) {
+      lastTableRowCount++;
+      if (tableEvents != TableEvents.ROWS) {
+        lastTableRows.add(new ArrayList<>(lastRowCells));
+      }
+      if (tableEvents != TableEvents.TABLE) {
+        final DetailImpl detail = new DetailImpl();
+        for (int i = 0; i < lastColumnNo && i < lastTableKeys.size(); i++) {
+          final CharSequence value = lastRowValues.get(i);
+          if (value instanceof CellText ? !((CellText) value).isBlankValue()
+              : !((String) value).isBlank()) {
+            detail.setValue(lastTableKeys.get(i), value);
+          }
+        }
+        updateParentContext(detail);
+        if (contextConsumer != null) {
+          contextConsumer.accept(detail);
+        }
+      }
+    }
+  }
+
+  void updateParentContext(final MutableContext context) {
+    binder.bind(context);
+  }
+
+  void updateParentContext(final MutableContextual contextual) {
+    binder.bind(contextual);
+  }
+
+  private String normalizeBlocks() {
+    return String.join("\n\n", lastBlocks);
+  }
+
+  private void supplyLastDocumentation() {
+    if (!lastBlocks.isEmpty()) {
+      final String paragraphs = normalizeBlocks();
+      final DocumentationImpl documentation = new DocumentationImpl(paragraphs);
+      updateParentContext(documentation);
+      contextConsumer.accept(documentation);
+    }
+  }
+
+}
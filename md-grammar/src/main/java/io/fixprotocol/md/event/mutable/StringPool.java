@@ -0,0 +1,66 @@
+/*
+ * Copyright 2020 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package io.fixprotocol.md.event.mutable;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Canonical instances of strings that recur in a document
+ *
+ * A pool belongs to the assembler of one parse, so it is not thread-safe, and it is released with
+ * the assembler rather than held for the life of the JVM like {@link String#intern()}.
+ *
+ * @author Don Mendelson
+ *
+ */
+final class StringPool {
+
+  /**
+   * Longest value that is pooled. Longer values, such as descriptions, seldom recur.
+   */
+  static final int MAX_VALUE_LENGTH = 32;
+
+  private final Map<String, String> strings = new HashMap<>();
+
+  /**
+   * Canonical property key
+   *
+   * @param key a key in any case
+   * @return the key in lower case, converted independently of the default locale
+   */
+  String key(String key) {
+    return canonical(key.toLowerCase(Locale.ROOT));
+  }
+
+  /**
+   * Canonical value
+   *
+   * @param value a value. May be {@code null}.
+   * @return an equal pooled instance if the value is short, otherwise the value itself
+   */
+  String value(String value) {
+    if (value == null || value.length() > MAX_VALUE_LENGTH) {
+      return value;
+    }
+    return canonical(value);
+  }
+
+  private String canonical(String str) {
+    final String pooled = strings.putIfAbsent(str, str);
+    return pooled != null ? pooled : str;
+  }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2020 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package io.fixprotocol.md.event.mutable;
+
+import io.fixprotocol.md.event.Context;
+import io.fixprotocol.md.event.MutableContextual;
+import io.fixprotocol.md.event.TableEnd;
+
+public class TableEndImpl implements TableEnd, MutableContextual {
+
+  private Context parent;
+  private final int rowCount;
+
+  /**
+   * Constructor
+   *
+   * @param rowCount number of rows of the table
+   */
+  public TableEndImpl(int rowCount) {
+    this.rowCount = rowCount;
+  }
+
+  @Override
+  public Context getParent() {
+    return parent;
+  }
+
+  @Override
+  public int getRowCount() {
+    return rowCount;
+  }
+
+  @Override
+  public void setParent(Context parent) {
+    this.parent = parent;
+  }
+
+  @Override
+  public String toString() {
+    return "TableEndImpl [rowCount=" + rowCount + "]";
+  }
+}
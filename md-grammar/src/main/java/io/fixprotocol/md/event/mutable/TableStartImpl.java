@@ -0,0 +1,55 @@
+/*
+ * Copyright 2020 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package io.fixprotocol.md.event.mutable;
+
+import java.util.List;
+import io.fixprotocol.md.event.Context;
+import io.fixprotocol.md.event.MutableContextual;
+import io.fixprotocol.md.event.TableStart;
+
+public class TableStartImpl implements TableStart, MutableContextual {
+
+  private final List<String> headings;
+  private Context parent;
+
+  /**
+   * Constructor
+   *
+   * @param headings column headings of the table
+   */
+  public TableStartImpl(List<String> headings) {
+    this.headings = List.copyOf(headings);
+  }
+
+  @Override
+  public List<String> getHeadings() {
+    return headings;
+  }
+
+  @Override
+  public Context getParent() {
+    return parent;
+  }
+
+  @Override
+  public void setParent(Context parent) {
+    this.parent = parent;
+  }
+
+  @Override
+  public String toString() {
+    return "TableStartImpl [headings=" + headings + "]";
+  }
+}
@@ -0,0 +1,668 @@
+/*
+ * Copyright 2020 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.fixprotocol.md.scanner;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.antlr.v4.runtime.Token;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import io.fixprotocol.md.antlr.MarkdownLexer;
+import io.fixprotocol.md.event.DocumentParser.ParserErrorListener;
+import io.fixprotocol.md.event.mutable.EventAssembler;
+
+/**
+ * Single-pass scanner and recursive descent parser for the markdown grammar
+ *
+ * This is an alternative to the generated ANTLR parser. Tokens are recognized directly in a
+ * character buffer by the same rules as {@code Markdown.g4}: the longest match wins, a tie goes to
+ * the rule defined first, and a predicate that a character is not preceded by a backslash is
+ * evaluated on the preceding character of input. No token objects or tree nodes are created; the
+ * text of a token is only extracted when an event needs it.
+ *
+ * For a document that conforms to the grammar, events are identical to those of the ANTLR parser.
+ * After a syntax error, the scanner discards input to the end of the line rather than repeating
+ * the ANTLR recovery, so events for a malformed document may differ; only its validity and the
+ * events before its first error are the same. {@code DocumentParser} therefore stops a scan at the
+ * first error and parses the document again with the ANTLR parser.
+ *
+ * @author Don Mendelson
+ *
+ */
+public class MarkdownScanner {
+
+  // Token types of the generated lexer, so that the scanner follows changes to the grammar
+  private static final int EOF = Token.EOF;
+  private static final int LITERAL = MarkdownLexer.LITERAL;
+  private static final int HEADINGLINE = MarkdownLexer.HEADINGLINE;
+  private static final int QUOTELINE = MarkdownLexer.QUOTELINE;
+  private static final int LISTLINE = MarkdownLexer.LISTLINE;
+  private static final int PARAGRAPHLINE = MarkdownLexer.PARAGRAPHLINE;
+  private static final int TABLEDELIMINATORCELL = MarkdownLexer.TABLEDELIMINATORCELL;
+  private static final int FENCE = MarkdownLexer.FENCE;
+  private static final int NEWLINE = MarkdownLexer.NEWLINE;
+  private static final int CELLTEXT = MarkdownLexer.CELLTEXT;
+  private static final int BACKTICK = MarkdownLexer.BACKTICK;
+  private static final int GT = MarkdownLexer.GT;
+  private static final int HASH = MarkdownLexer.HASH;
+  private static final int PIPE = MarkdownLexer.PIPE;
+
+  private static final String ESCAPABLE = "\\!\"#$%&'()*+,-./:;<=>?@[]^_{|}~`";
+  private static final String PUNCTUATION = "!\"#$%&'()*+,-./:;<=>?@[]^_{}";
+
+  /**
+   * Finds the headings at which a document may be split into sections
+   *
+   * A heading line is always the start of a block, and no token crosses its start, so each
+   * section scans to the same tokens as the whole document, and a valid document yields valid
+   * sections.
+   *
+   * @param text markdown document
+   * @param maxLevel highest heading level to report, e.g. 2 for level-1 and level-2 headings
+   * @return positions of the start of heading lines in ascending order, excluding the start of
+   *         the document
+   */
+  public static List<Integer> headingPositions(CharSequence text, int maxLevel) {
+    final List<Integer> positions = new ArrayList<>();
+    for (final int[] headingLine : headingLines(text)) {
+      final int start = headingLine[0];
+      if (start > 0) {
+        int level = 0;
+        while (start + level < headingLine[1] && text.charAt(start + level) != ' ') {
+          level++;
+        }
+        if (level <= maxLevel) {
+          positions.add(start);
+        }
+      }
+    }
+    return positions;
+  }
+
+  /**
+   * Finds the heading lines of a document
+   *
+   * @param text markdown document
+   * @return start and end positions of each heading token that begins a line, in ascending order
+   */
+  public static List<int[]> headingLines(CharSequence text) {
+    final List<int[]> headingLines = new ArrayList<>();
+    final MarkdownScanner scanner = new MarkdownScanner(text, null, null);
+    scanner.silent = true;
+    for (scanner.nextToken(); scanner.tokenType != EOF; scanner.nextToken()) {
+      final int start = scanner.tokenStart;
+      if (scanner.tokenType == HEADINGLINE && (start == 0 || text.charAt(start - 1) == '\n')) {
+        headingLines.add(new int[] {start, scanner.tokenEnd});
+      }
+    }
+    return headingLines;
+  }
+
+  private static boolean isAlphanumeric(char c) {
+    // supplementary code points are outside the grammar's range \u0080-\uFFFF
+    return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+        || (c >= '\u0080' && !Character.isSurrogate(c));
+  }
+
+  private static boolean isLineChar(char c) {
+    return c != '\n' && c != '\r' && c != '`';
+  }
+
+  private static boolean isWhitespace(char c) {
+    return c == ' ' || c == '\t';
+  }
+
+  private static String tokenName(int tokenType) {
+    return MarkdownLexer.VOCABULARY.getSymbolicName(tokenType);
+  }
+
+  private final EventAssembler assembler;
+  // cache of last search for a backtick: no backtick in [backtickSearchFrom, backtickFound)
+  private int backtickFound = -1;
+  private int backtickSearchFrom = -1;
+  private final ParserErrorListener errorListener;
+  private int errors = 0;
+  // line numbering of syntax errors, counted from the previous error
+  private int errorLine = 1;
+  private int errorLineStart = 0;
+  private int errorScanned = 0;
+  private final int length;
+  private final Logger logger = LogManager.getLogger(getClass());
+  private boolean silent = false;
+  private int position = 0;
+  private final CharSequence text;
+  private int tokenEnd;
+  private int tokenStart;
+  private int tokenType;
+
+  /**
+   * Constructor
+   *
+   * @param text markdown document
+   * @param assembler receives recognized markdown elements
+   * @param errorListener listens for syntax errors. May be {@code null}.
+   */
+  public MarkdownScanner(CharSequence text, EventAssembler assembler,
+      ParserErrorListener errorListener) {
+    this.text = text;
+    this.length = text.length();
+    this.assembler = assembler;
+    this.errorListener = errorListener;
+  }
+
+  /**
+   * Scan and parse the whole document
+   *
+   * @return number of syntax errors
+   */
+  public int scan() {
+    nextToken();
+    document();
+    return errors;
+  }
+
+  private void blockquote() {
+    assembler.beginLines();
+    while (tokenType == QUOTELINE) {
+      assembler.addLine(tokenText());
+      nextToken();
+      matchLineEnd();
+    }
+    assembler.endQuote();
+  }
+
+  private void document() {
+    if (tokenType == EOF) {
+      syntaxError("mismatched input '<EOF>'");
+    }
+    while (tokenType != EOF) {
+      switch (tokenType) {
+        case NEWLINE:
+          nextToken();
+          break;
+        case HEADINGLINE:
+          heading();
+          break;
+        case PARAGRAPHLINE:
+          paragraph();
+          break;
+        case LISTLINE:
+          list();
+          break;
+        case QUOTELINE:
+          blockquote();
+          break;
+        case FENCE:
+          fencedCodeBlock();
+          break;
+        case CELLTEXT:
+          table();
+          break;
+        default:
+          syntaxError("extraneous input '" + tokenText() + "'");
+          recover();
+      }
+    }
+    assembler.endDocument();
+  }
+
+  private void fencedCodeBlock() {
+    nextToken();
+    if (tokenType == PARAGRAPHLINE) {
+      // infostring
+      nextToken();
+    }
+    if (!match(NEWLINE)) {
+      return;
+    }
+    if (tokenType != PARAGRAPHLINE) {
+      syntaxError(
+          "mismatched input '" + tokenText() + "' expecting " + tokenName(PARAGRAPHLINE));
+      recover();
+      return;
+    }
+    while (tokenType == PARAGRAPHLINE) {
+      nextToken();
+      if (!matchLineEnd()) {
+        return;
+      }
+    }
+    match(FENCE);
+  }
+
+  private void heading() {
+    assembler.beginHeading();
+    final String headingLine = tokenText();
+    nextToken();
+    match(NEWLINE);
+    assembler.endHeading(headingLine);
+  }
+
+  /**
+   * A table row that is followed by a delimiter row is the heading of a new table
+   */
+  private boolean isTableHeadingAhead() {
+    final int savedPosition = position;
+    final int savedType = tokenType;
+    final int savedStart = tokenStart;
+    final int savedEnd = tokenEnd;
+    silent = true;
+    try {
+      while (tokenType == CELLTEXT) {
+        nextToken();
+      }
+      if (tokenType == PIPE) {
+        nextToken();
+      }
+      if (tokenType != NEWLINE) {
+        return false;
+      }
+      nextToken();
+      return tokenType == TABLEDELIMINATORCELL;
+    } finally {
+      silent = false;
+      position = savedPosition;
+      tokenType = savedType;
+      tokenStart = savedStart;
+      tokenEnd = savedEnd;
+    }
+  }
+
+  private boolean isUnescaped(int p) {
+    return p == 0 || text.charAt(p - 1) != '\\';
+  }
+
+  private void list() {
+    assembler.beginLines();
+    while (tokenType == LISTLINE) {
+      assembler.addLine(tokenText());
+      nextToken();
+      matchLineEnd();
+    }
+    assembler.endList();
+  }
+
+  private boolean match(int expectedType) {
+    if (tokenType == expectedType) {
+      nextToken();
+      return true;
+    } else {
+      syntaxError(
+          "mismatched input '" + tokenText() + "' expecting " + tokenName(expectedType));
+      recover();
+      return false;
+    }
+  }
+
+  private int matchCellText(int p) {
+    if (text.charAt(p) != '|' || !isUnescaped(p) || p + 1 >= length
+        || !isWhitespace(text.charAt(p + 1))) {
+      return 0;
+    }
+    int i = p + 2;
+    while (i < length) {
+      final char c = text.charAt(i);
+      if (c == '\\') {
+        if (i + 1 < length && ESCAPABLE.indexOf(text.charAt(i + 1)) != -1) {
+          i += 2;
+        } else {
+          break;
+        }
+      } else if (c == '|') {
+        // pipe preceded by backslash
+        if (text.charAt(i - 1) == '\\') {
+          i++;
+        } else {
+          break;
+        }
+      } else if (c == '`') {
+        final int literalLength = matchLiteral(i);
+        if (literalLength > 0) {
+          i += literalLength;
+        } else {
+          break;
+        }
+      } else if (isWhitespace(c) || isAlphanumeric(c) || PUNCTUATION.indexOf(c) != -1) {
+        i++;
+      } else {
+        break;
+      }
+    }
+    return i - p;
+  }
+
+  private int matchDelimiterCell(int p) {
+    int i = p;
+    if (text.charAt(i) == '|') {
+      if (!isUnescaped(i)) {
+        return 0;
+      }
+      i++;
+    }
+    if (i < length && text.charAt(i) == ' ') {
+      i++;
+    }
+    if (i < length && text.charAt(i) == ':') {
+      i++;
+    }
+    if (i >= length || text.charAt(i) != '-') {
+      return 0;
+    }
+    while (i < length && text.charAt(i) == '-') {
+      i++;
+    }
+    if (i < length && text.charAt(i) == ':') {
+      i++;
+    }
+    if (i < length && text.charAt(i) == ' ') {
+      i++;
+    }
+    return i - p;
+  }
+
+  private int matchHeadingLine(int p) {
+    if (!isUnescaped(p)) {
+      return 0;
+    }
+    int i = p + 1;
+    while (i < length && isLineChar(text.charAt(i))) {
+      i++;
+    }
+    return (i > p + 1) ? i - p : 0;
+  }
+
+  private boolean matchLineEnd() {
+    if (tokenType == NEWLINE) {
+      nextToken();
+      return true;
+    } else if (tokenType == EOF) {
+      return true;
+    } else {
+      syntaxError("extraneous input '" + tokenText() + "' expecting {<EOF>, NEWLINE}");
+      recover();
+      return false;
+    }
+  }
+
+  private int matchListLine(int p) {
+    int i = p;
+    while (i < length && isWhitespace(text.charAt(i))) {
+      i++;
+    }
+    if (i >= length) {
+      return 0;
+    }
+    final char c = text.charAt(i);
+    if (c == '-' || c == '+' || c == '*') {
+      i++;
+    } else if (c >= '1' && c <= '9' && i + 1 < length
+        && (text.charAt(i + 1) == '.' || text.charAt(i + 1) == ')')) {
+      i += 2;
+    } else {
+      return 0;
+    }
+    if (i >= length || !isWhitespace(text.charAt(i))) {
+      return 0;
+    }
+    while (i < length && isLineChar(text.charAt(i))) {
+      i++;
+    }
+    return i - p;
+  }
+
+  private int matchLiteral(int p) {
+    if (!isUnescaped(p)) {
+      return 0;
+    }
+    final int close = nextBacktick(p + 1);
+    if (close == -1 || close == p + 1 || text.charAt(close - 1) == '\\') {
+      return 0;
+    }
+    return close - p + 1;
+  }
+
+  /**
+   * Matches a sequence of line characters or literals
+   *
+   * @return position after the sequence
+   */
+  private int matchLineOrLiterals(int p) {
+    int i = p;
+    while (i < length) {
+      final char c = text.charAt(i);
+      if (isLineChar(c)) {
+        i++;
+      } else if (c == '`') {
+        final int literalLength = matchLiteral(i);
+        if (literalLength > 0) {
+          i += literalLength;
+        } else {
+          break;
+        }
+      } else {
+        break;
+      }
+    }
+    return i;
+  }
+
+  private int matchParagraphLine(int p) {
+    final char c = text.charAt(p);
+    if (c == '#' || c == '>' || c == '|' || c == '\n' || c == '\r') {
+      return 0;
+    }
+    return matchLineOrLiterals(p + 1) - p;
+  }
+
+  private int matchQuoteLine(int p) {
+    if (!isUnescaped(p)) {
+      return 0;
+    }
+    final int end = matchLineOrLiterals(p + 1);
+    return (end > p + 1) ? end - p : 0;
+  }
+
+  private int nextBacktick(int from) {
+    if (backtickSearchFrom != -1 && from >= backtickSearchFrom
+        && (backtickFound == -1 || from <= backtickFound)) {
+      return backtickFound;
+    }
+    int i = from;
+    while (i < length && text.charAt(i) != '`') {
+      i++;
+    }
+    backtickSearchFrom = from;
+    backtickFound = i < length ? i : -1;
+    return backtickFound;
+  }
+
+  private void nextToken() {
+    while (position < length) {
+      int bestType = 0;
+      int bestLength = 0;
+      final char c = text.charAt(position);
+      switch (c) {
+        case '\n':
+          bestType = NEWLINE;
+          bestLength = 1;
+          break;
+        case '\r':
+          if (position + 1 < length && text.charAt(position + 1) == '\n') {
+            bestType = NEWLINE;
+            bestLength = 2;
+          }
+          break;
+        case '`': {
+          bestLength = matchLiteral(position);
+          bestType = LITERAL;
+          final int paragraphLength = matchParagraphLine(position);
+          if (paragraphLength > bestLength) {
+            bestType = PARAGRAPHLINE;
+            bestLength = paragraphLength;
+          }
+          if (bestLength < 3 && position + 2 < length && text.charAt(position + 1) == '`'
+              && text.charAt(position + 2) == '`') {
+            bestType = FENCE;
+            bestLength = 3;
+          }
+          if (bestLength < 1 && isUnescaped(position)) {
+            bestType = BACKTICK;
+            bestLength = 1;
+          }
+        }
+          break;
+        case '#':
+          bestLength = matchHeadingLine(position);
+          bestType = HEADINGLINE;
+          if (bestLength < 1 && isUnescaped(position)) {
+            bestType = HASH;
+            bestLength = 1;
+          }
+          break;
+        case '>':
+          bestLength = matchQuoteLine(position);
+          bestType = QUOTELINE;
+          if (bestLength < 1 && isUnescaped(position)) {
+            bestType = GT;
+            bestLength = 1;
+          }
+          break;
+        case '|': {
+          bestLength = matchDelimiterCell(position);
+          bestType = TABLEDELIMINATORCELL;
+          final int cellLength = matchCellText(position);
+          if (cellLength > bestLength) {
+            bestType = CELLTEXT;
+            bestLength = cellLength;
+          }
+          if (bestLength < 1 && isUnescaped(position)) {
+            bestType = PIPE;
+            bestLength = 1;
+          }
+        }
+          break;
+        default: {
+          // A paragraph line always matches here and is at least as long as a delimiter cell or
+          // whitespace, and a list line can only tie it
+          bestLength = matchListLine(position);
+          bestType = LISTLINE;
+          final int paragraphLength = matchParagraphLine(position);
+          if (paragraphLength > bestLength) {
+            bestType = PARAGRAPHLINE;
+            bestLength = paragraphLength;
+          }
+        }
+      }
+
+      if (bestLength == 0) {
+        if (!silent) {
+          logger.warn("MarkdownScanner token recognition error at position {}", position);
+        }
+        position++;
+      } else {
+        tokenType = bestType;
+        tokenStart = position;
+        tokenEnd = position + bestLength;
+        position = tokenEnd;
+        return;
+      }
+    }
+    tokenType = EOF;
+    tokenStart = length;
+    tokenEnd = length;
+  }
+
+  private void paragraph() {
+    assembler.beginLines();
+    while (tokenType == PARAGRAPHLINE) {
+      assembler.addLine(tokenText());
+      nextToken();
+      matchLineEnd();
+    }
+    assembler.endParagraph();
+  }
+
+  /**
+   * Discard input to the end of the current line
+   */
+  private void recover() {
+    while (tokenType != EOF && tokenType != NEWLINE) {
+      nextToken();
+    }
+    if (tokenType == NEWLINE) {
+      nextToken();
+    }
+  }
+
+  private void syntaxError(String msg) {
+    errors++;
+    // errors are reported in document order, so each character is counted once per document
+    for (; errorScanned < tokenStart; errorScanned++) {
+      if (text.charAt(errorScanned) == '\n') {
+        errorLine++;
+        errorLineStart = errorScanned + 1;
+      }
+    }
+    final int charPositionInLine = tokenStart - errorLineStart;
+    if (errorListener != null) {
+      errorListener.parseError(errorLine, charPositionInLine, msg);
+    }
+  }
+
+  private void table() {
+    assembler.beginTable();
+    assembler.beginTableHeading();
+    tableRow();
+    assembler.endTableHeading();
+
+    if (tokenType != TABLEDELIMINATORCELL) {
+      syntaxError("mismatched input '" + tokenText() + "' expecting "
+          + tokenName(TABLEDELIMINATORCELL));
+      recover();
+    } else {
+      while (tokenType == TABLEDELIMINATORCELL) {
+        nextToken();
+      }
+      if (tokenType == PIPE) {
+        nextToken();
+      }
+      match(NEWLINE);
+    }
+
+    if (tokenType != CELLTEXT) {
+      syntaxError("mismatched input '" + tokenText() + "' expecting " + tokenName(CELLTEXT));
+    }
+    do {
+      tableRow();
+    } while (tokenType == CELLTEXT && !isTableHeadingAhead());
+    assembler.endTable();
+  }
+
+  private void tableRow() {
+    assembler.beginTableRow();
+    while (tokenType == CELLTEXT) {
+      assembler.addCell(text, tokenStart, tokenEnd);
+      nextToken();
+    }
+    if (tokenType == PIPE) {
+      nextToken();
+    }
+    matchLineEnd();
+    assembler.endTableRow();
+  }
+
+  private String tokenText() {
+    return tokenType == EOF ? "<EOF>" : text.subSequence(tokenStart, tokenEnd).toString();
+  }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2020 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.fixprotocol.md.antlr;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.Token;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Differential test of the markdown lexer against golden token streams
+ *
+ * <p>
+ * The goldens in {@code lexer-tokens.txt} were captured from the lexer with semantic predicates
+ * that preceded the cached DFA lexer. A line starting with {@code =} names a document file, and a
+ * line starting with {@code "} holds a document with backslash, newline, carriage return and tab
+ * escaped. The documents are the test resources, tokens that start with an escaped backtick, and a
+ * corpus of 1000 documents generated from escape fragments with seed 20201017. Each document is
+ * followed by its tokens: symbolic type, start and stop index.
+ */
+class LexerGoldenTest {
+
+  private static final Path GOLDEN = Path.of("src/test/resources/lexer-tokens.txt");
+
+  private static String unescape(String line) {
+    final StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < line.length(); i++) {
+      char c = line.charAt(i);
+      if (c == '\\') {
+        i++;
+        switch (line.charAt(i)) {
+          case 'n':
+            c = '\n';
+            break;
+          case 'r':
+            c = '\r';
+            break;
+          case 't':
+            c = '\t';
+            break;
+          default:
+            c = line.charAt(i);
+        }
+      }
+      sb.append(c);
+    }
+    return sb.toString();
+  }
+
+  @Test
+  void tokens() throws IOException {
+    final List<String> lines = Files.readAllLines(GOLDEN, StandardCharsets.UTF_8);
+    int documents = 0;
+    int escapedBackticks = 0;
+    int i = 0;
+    while (i < lines.size()) {
+      final String line = lines.get(i++);
+      final String text;
+      if (line.startsWith("= ")) {
+        text = Files.readString(Path.of(line.substring(2)), StandardCharsets.UTF_8);
+      } else if (line.startsWith("\" ")) {
+        text = unescape(line.substring(2));
+      } else {
+        continue;
+      }
+      final List<String> expected = new ArrayList<>();
+      while (i < lines.size() && !lines.get(i).startsWith("= ")
+          && !lines.get(i).startsWith("\" ")) {
+        expected.add(lines.get(i++));
+      }
+
+      final MarkdownLexer lexer = new MarkdownLexer(CharStreams.fromString(text));
+      lexer.removeErrorListeners();
+      final List<String> actual = new ArrayList<>();
+      Token token;
+      do {
+        token = lexer.nextToken();
+        actual.add(lexer.getVocabulary().getSymbolicName(token.getType()) + " "
+            + token.getStartIndex() + " " + token.getStopIndex());
+        if (token.getStartIndex() > 0 && token.getText().startsWith("`")
+            && text.codePointBefore(text.offsetByCodePoints(0, token.getStartIndex())) == '\\') {
+          escapedBackticks++;
+        }
+      } while (token.getType() != Token.EOF);
+      assertEquals(expected, actual, line);
+      documents++;
+    }
+    assertEquals(1031, documents);
+    assertTrue(escapedBackticks > 500);
+  }
+}
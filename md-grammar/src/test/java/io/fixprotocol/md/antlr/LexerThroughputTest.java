@@ -0,0 +1,94 @@
+/*
+ * Copyright 2020 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.fixprotocol.md.antlr;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.Token;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class LexerThroughputTest {
+
+  private static final int ITERATIONS = 20;
+  private static final int REPETITIONS = 50;
+  private static final int WARM_UP_ITERATIONS = 10;
+
+  private static long lex(String text) {
+    final MarkdownLexer lexer = new MarkdownLexer(CharStreams.fromString(text));
+    long tokens = 0;
+    for (Token token = lexer.nextToken(); token.getType() != Token.EOF; token =
+        lexer.nextToken()) {
+      tokens++;
+    }
+    return tokens;
+  }
+
+  private static List<String> tokens(String text) {
+    final MarkdownLexer lexer = new MarkdownLexer(CharStreams.fromString(text));
+    final List<String> tokens = new ArrayList<>();
+    for (Token token = lexer.nextToken(); token.getType() != Token.EOF; token =
+        lexer.nextToken()) {
+      tokens.add(lexer.getVocabulary().getSymbolicName(token.getType()) + " " + token.getText());
+    }
+    return tokens;
+  }
+
+  @Test
+  void escapedBacktick() {
+    assertEquals(List.of("PARAGRAPHLINE abc\\", "PARAGRAPHLINE `x", "PARAGRAPHLINE `",
+        "NEWLINE \n"), tokens("abc\\`x`\n"));
+    assertEquals(List.of("PARAGRAPHLINE \\", "FENCE ```", "NEWLINE \n"), tokens("\\```\n"));
+    assertEquals(List.of("QUOTELINE > \\", "PARAGRAPHLINE `q` `r", "PARAGRAPHLINE `"),
+        tokens("> \\`q` `r`"));
+    assertEquals(List.of("PARAGRAPHLINE Text `a` b"), tokens("Text `a` b"));
+  }
+
+  @Test
+  void escapedPipe() {
+    assertEquals(List.of("CELLTEXT | a \\\\| b ", "CELLTEXT | c\\|d ", "PIPE |", "NEWLINE \n"),
+        tokens("| a \\\\| b | c\\|d |\n"));
+    assertEquals(List.of("CELLTEXT | \\\\", "PARAGRAPHLINE `x", "PARAGRAPHLINE ` |"),
+        tokens("| \\\\`x` |"));
+  }
+
+  /**
+   * Reports lexer throughput. Run with {@code -Dbenchmark=true}.
+   */
+  @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+  @ParameterizedTest
+  @ValueSource(strings = {"src/test/resources/md2orchestra-proto.md"})
+  void throughput(String fileName) throws IOException {
+    final String text = Files.readString(Path.of(fileName)).repeat(REPETITIONS);
+    for (int i = 0; i < WARM_UP_ITERATIONS; i++) {
+      lex(text);
+    }
+    long tokens = 0;
+    final long startNanos = System.nanoTime();
+    for (int i = 0; i < ITERATIONS; i++) {
+      tokens += lex(text);
+    }
+    final long elapsedNanos = System.nanoTime() - startNanos;
+    System.out.format("Lexer throughput: %d tokens/s, %d chars/s%n",
+        tokens * 1_000_000_000L / elapsedNanos,
+        (long) text.length() * ITERATIONS * 1_000_000_000L / elapsedNanos);
+  }
+}
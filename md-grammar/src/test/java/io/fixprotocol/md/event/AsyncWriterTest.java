@@ -0,0 +1,145 @@
+/*
+ * Copyright 2020 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package io.fixprotocol.md.event;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.jupiter.api.Test;
+
+class AsyncWriterTest {
+
+  /**
+   * Delegate that waits for a latch before each write, and records when it is closed
+   */
+  private static class SlowWriter extends StringWriter {
+    final CountDownLatch go = new CountDownLatch(1);
+    final AtomicBoolean isClosed = new AtomicBoolean();
+
+    @Override
+    public void close() throws IOException {
+      isClosed.set(true);
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) {
+      try {
+        go.await();
+      } catch (final InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      super.write(cbuf, off, len);
+    }
+  }
+
+  @Test
+  void document() throws Exception {
+    final List<Contextual> events = new ArrayList<>();
+    new DocumentParser().parse(Path.of("src/test/resources/md2orchestra-proto.md"), events::add);
+
+    final StringWriter expected = new StringWriter();
+    final StringWriter actual = new StringWriter();
+    try (DocumentWriter syncWriter = new DocumentWriter(expected);
+        DocumentWriter asyncWriter = new DocumentWriter(new AsyncWriter(actual))) {
+      for (int i = 0; i < 20; i++) {
+        for (final Contextual contextual : events) {
+          if (contextual instanceof Context) {
+            syncWriter.write((Context) contextual);
+            asyncWriter.write((Context) contextual);
+          } else if (contextual instanceof DetailTable) {
+            syncWriter.write((DetailTable) contextual);
+            asyncWriter.write((DetailTable) contextual);
+          } else if (contextual instanceof Documentation) {
+            syncWriter.write((Documentation) contextual);
+            asyncWriter.write((Documentation) contextual);
+          }
+        }
+      }
+    }
+    assertTrue(expected.toString().length() > AsyncWriter.CHUNK_SIZE * 2);
+    assertEquals(expected.toString(), actual.toString());
+  }
+
+  @Test
+  void flush() throws IOException {
+    final StringWriter delegate = new StringWriter();
+    try (AsyncWriter writer = new AsyncWriter(delegate)) {
+      writer.write("# Message NewOrderSingle\n\n");
+      writer.flush();
+      assertEquals("# Message NewOrderSingle\n\n", delegate.toString());
+      writer.write('x');
+    }
+    assertEquals("# Message NewOrderSingle\n\nx", delegate.toString());
+  }
+
+  @Test
+  void backpressure() throws Exception {
+    final SlowWriter delegate = new SlowWriter();
+    final AsyncWriter writer = new AsyncWriter(delegate, 2, runnable -> {
+      final Thread thread = new Thread(runnable);
+      thread.setDaemon(true);
+      thread.start();
+    });
+    final char[] chunk = new char[AsyncWriter.CHUNK_SIZE];
+    final CountDownLatch written = new CountDownLatch(1);
+    final Thread producer = new Thread(() -> {
+      try {
+        // more chunks than the pool holds
+        for (int i = 0; i < 4; i++) {
+          writer.write(chunk);
+        }
+        written.countDown();
+        writer.close();
+      } catch (final IOException e) {
+        // reported by assertions below
+      }
+    });
+    producer.start();
+    assertFalse(written.await(200, TimeUnit.MILLISECONDS));
+    delegate.go.countDown();
+    producer.join(10000);
+    assertEquals(0, written.getCount());
+    assertTrue(delegate.isClosed.get());
+    assertEquals(AsyncWriter.CHUNK_SIZE * 4, delegate.getBuffer().length());
+  }
+
+  @Test
+  void failure() throws IOException {
+    final Writer delegate = new StringWriter() {
+      @Override
+      public void flush() {
+        throw new IllegalStateException("disk full");
+      }
+    };
+    final AsyncWriter writer = new AsyncWriter(delegate);
+    writer.write("text");
+    final IllegalStateException e = assertThrows(IllegalStateException.class, writer::flush);
+    assertEquals("disk full", e.getMessage());
+    assertThrows(IllegalStateException.class, () -> writer.write("more"));
+    assertThrows(IllegalStateException.class, writer::close);
+    // closing again has no effect
+    writer.close();
+  }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2020 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package io.fixprotocol.md.event;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class ChannelWriterTest {
+
+  // ASCII, Latin-1, three byte characters, and a supplementary character as a surrogate pair
+  private static final String TEXT =
+      "| Name | Caf\u00e9 | \u20ac10 | \u6ce8\u6587 | \ud83d\ude00 |\n";
+
+  @ParameterizedTest
+  @ValueSource(ints = {4, 5, 7, 64, ChannelWriter.DEFAULT_CAPACITY})
+  void encode(int capacity) throws IOException {
+    final StringBuilder expected = new StringBuilder();
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (ChannelWriter writer = new ChannelWriter(Channels.newChannel(out), capacity)) {
+      for (int i = 0; i < 20; i++) {
+        writer.write(TEXT);
+        writer.write(TEXT.toCharArray(), 2, 10);
+        writer.write('|');
+        expected.append(TEXT).append(TEXT, 2, 12).append('|');
+      }
+      // surrogate pair split across writes
+      writer.write("x\ud83d");
+      writer.write('\ude00');
+      expected.append("x\ud83d\ude00");
+    }
+    assertArrayEquals(expected.toString().getBytes(StandardCharsets.UTF_8), out.toByteArray());
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {"a\ud83db", "a\ude00b", "ab\ud83d"})
+  void malformedSurrogate(String text) throws IOException {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (ChannelWriter writer = new ChannelWriter(Channels.newChannel(out), 8)) {
+      writer.write(text);
+    }
+    assertEquals(text.replaceAll("[\ud800-\udfff]", "?"),
+        new String(out.toByteArray(), StandardCharsets.UTF_8));
+  }
+
+  @Test
+  void documentToPath() throws Exception {
+    final List<Contextual> events = new ArrayList<>();
+    new DocumentParser().parse(Path.of("src/test/resources/md2orchestra-proto.md"), events::add);
+
+    final StringWriter expected = new StringWriter();
+    final Path path = Files.createTempFile("ChannelWriterTest", ".md");
+    try {
+      try (DocumentWriter streamWriter = new DocumentWriter(expected);
+          DocumentWriter channelWriter = new DocumentWriter(path)) {
+        for (final Contextual contextual : events) {
+          if (contextual instanceof Context) {
+            streamWriter.write((Context) contextual);
+            channelWriter.write((Context) contextual);
+          } else if (contextual instanceof DetailTable) {
+            streamWriter.write((DetailTable) contextual);
+            channelWriter.write((DetailTable) contextual);
+          } else if (contextual instanceof Documentation) {
+            streamWriter.write((Documentation) contextual);
+            channelWriter.write((Documentation) contextual);
+          }
+        }
+      }
+      assertEquals(expected.toString(), Files.readString(path, StandardCharsets.UTF_8));
+    } finally {
+      Files.delete(path);
+    }
+  }
+
+  @Test
+  void closed() throws IOException {
+    final ChannelWriter writer =
+        new ChannelWriter(Channels.newChannel(new ByteArrayOutputStream()));
+    writer.close();
+    assertThrows(IOException.class, () -> writer.write("a"));
+    // closing again has no effect
+    writer.close();
+  }
+}
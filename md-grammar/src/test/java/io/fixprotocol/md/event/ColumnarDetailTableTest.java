@@ -0,0 +1,71 @@
+/*
+ * Copyright 2020 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package io.fixprotocol.md.event;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class ColumnarDetailTableTest {
+
+  @Test
+  void columns() {
+    final MutableDetailTable mutableTable = new ContextFactory().createDetailTable();
+    assertTrue(mutableTable instanceof ColumnarDetailTable);
+    final ColumnarDetailTable table = (ColumnarDetailTable) mutableTable;
+
+    final ColumnarDetailTable.Row row1 = table.newRow();
+    row1.addProperty("Name", "Side");
+    row1.addIntProperty("Tag", 54);
+    row1.addProperty("Description", " ");
+    final ColumnarDetailTable.Row row2 = table.newRow();
+    row2.addProperty("tag", "38");
+    row2.addProperty("NAME", "OrderQty");
+    row2.addProperty("Presence", "required");
+
+    assertEquals(3, table.getColumnCount());
+    assertEquals("name", table.getColumnKey(0));
+    assertEquals(1, table.getOrdinal("TAG"));
+    assertEquals(-1, table.getOrdinal("description"));
+    assertEquals(2, table.getOrdinal("presence"));
+
+    assertEquals("Side", row1.getProperty(0));
+    assertEquals("Side", row1.getProperty("name"));
+    assertEquals(Integer.valueOf(54), row1.getIntProperty("Tag"));
+    assertNull(row1.getProperty("presence"));
+    assertNull(row1.getProperty(2));
+    assertEquals("required", row2.getProperty(table.getOrdinal("Presence")));
+
+    final List<String> keys = new ArrayList<>();
+    row2.getProperties().forEach(p -> keys.add(p.getKey()));
+    assertEquals(List.of("name", "tag", "presence"), keys);
+
+    final TableColumn[] columns = table.getTableColumns();
+    assertEquals(3, columns.length);
+    assertEquals("OrderQty".length(), columns[0].getWidth());
+  }
+
+  @Test
+  void stripCell() {
+    final ColumnarDetailTable table = (ColumnarDetailTable) new ContextFactory().createDetailTable();
+    final int ordinal = table.addColumn("Values");
+    final ColumnarDetailTable.Row row = table.newRow();
+    row.addProperty(ordinal, "| a b \t");
+    assertEquals("a b", row.getProperty(ordinal));
+  }
+}
@@ -0,0 +1,718 @@
+/*
+ * Copyright 2020 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package io.fixprotocol.md.event;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import io.fixprotocol.md.event.DocumentParser.Engine;
+import io.fixprotocol.md.event.DocumentParser.ErrorRecovery;
+import io.fixprotocol.md.event.DocumentParser.PredictionStage;
+import io.fixprotocol.md.event.DocumentParser.PredictionStrategy;
+import io.fixprotocol.md.event.DocumentParser.TableEvents;
+
+class DocumentParserTest {
+
+  /**
+   * Renders an event with its parent chain so that event streams can be compared
+   */
+  static String describe(Contextual contextual) {
+    final StringBuilder sb = new StringBuilder();
+    if (contextual instanceof Context) {
+      final Context context = (Context) contextual;
+      sb.append("Context ").append(context.getLevel()).append(' ')
+          .append(Arrays.toString(context.getKeys()));
+    } else if (contextual instanceof Documentation) {
+      final Documentation documentation = (Documentation) contextual;
+      sb.append("Documentation ").append(documentation.getFormat()).append(' ')
+          .append(documentation.getDocumentation());
+    } else if (contextual instanceof DetailTable) {
+      sb.append("DetailTable ").append(((DetailTable) contextual).rows().stream()
+          .map(r -> r.getProperties().toString()).collect(Collectors.joining(",")));
+    } else if (contextual instanceof Detail) {
+      sb.append("Detail ").append(((Detail) contextual).getProperties());
+    } else if (contextual instanceof TableStart) {
+      sb.append("TableStart ").append(((TableStart) contextual).getHeadings());
+    } else if (contextual instanceof TableEnd) {
+      sb.append("TableEnd ").append(((TableEnd) contextual).getRowCount());
+    }
+    Context parent = contextual.getParent();
+    while (parent != null) {
+      sb.append(" < ").append(Arrays.toString(parent.getKeys()));
+      parent = parent.getParent();
+    }
+    return sb.toString();
+  }
+
+  static List<String> parseEvents(DocumentParser parser, String fileName) throws IOException {
+    final List<String> events = new ArrayList<>();
+    try (InputStream inputStream =
+        DocumentParserTest.class.getClassLoader().getResourceAsStream(fileName)) {
+      parser.parse(inputStream, c -> events.add(describe(c)));
+    }
+    return events;
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {"md2orchestra-proto.md", "badmarkdown.md"})
+  void twoStageMatchesLL(String fileName) throws IOException {
+    final List<String> llEvents = parseEvents(
+        DocumentParser.builder().predictionStrategy(PredictionStrategy.LL).build(), fileName);
+    final List<String> twoStageEvents = parseEvents(new DocumentParser(), fileName);
+    assertFalse(llEvents.isEmpty());
+    assertEquals(llEvents, twoStageEvents);
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {"md2orchestra-proto.md", "badmarkdown.md"})
+  void streamingMatchesTree(String fileName) throws IOException {
+    final List<String> treeEvents = parseEvents(new DocumentParser(), fileName);
+    final List<String> streamingEvents =
+        parseEvents(DocumentParser.builder().streaming(true).build(), fileName);
+    assertFalse(treeEvents.isEmpty());
+    assertEquals(treeEvents, streamingEvents);
+  }
+
+  @Test
+  void streamingValidate() throws IOException {
+    final DocumentParser parser = DocumentParser.builder().streaming(true).build();
+    try (InputStream inputStream =
+        getClass().getClassLoader().getResourceAsStream("md2orchestra-proto.md")) {
+      assertTrue(parser.validate(inputStream, null));
+    }
+    final List<String> errors = new ArrayList<>();
+    try (InputStream inputStream =
+        getClass().getClassLoader().getResourceAsStream("badmarkdown.md")) {
+      assertFalse(
+          parser.validate(inputStream, (line, charPositionInLine, msg) -> errors.add(msg)));
+    }
+    assertFalse(errors.isEmpty());
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {"md2orchestra-proto.md", "badmarkdown.md"})
+  void pathMatchesStream(String fileName) throws Exception {
+    final Path path = Path.of(getClass().getClassLoader().getResource(fileName).toURI());
+    for (final Engine engine : Engine.values()) {
+      final DocumentParser parser = DocumentParser.builder().engine(engine).build();
+      final List<String> streamEvents = parseEvents(parser, fileName);
+      final List<String> pathEvents = new ArrayList<>();
+      parser.parse(path, c -> pathEvents.add(describe(c)));
+      assertEquals(streamEvents, pathEvents);
+    }
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {"md2orchestra-proto.md", "badmarkdown.md"})
+  void lazyValuesMatchEager(String fileName) throws Exception {
+    final Path path = Path.of(getClass().getClassLoader().getResource(fileName).toURI());
+    for (final Engine engine : Engine.values()) {
+      final DocumentParser eager = DocumentParser.builder().engine(engine).build();
+      final DocumentParser lazy =
+          DocumentParser.builder().engine(engine).lazyValues(true).build();
+      assertTrue(lazy.isLazyValues());
+      final List<String> eagerEvents = new ArrayList<>();
+      eager.parse(path, c -> eagerEvents.add(describe(c)));
+      final List<String> lazyEvents = new ArrayList<>();
+      lazy.parse(path, c -> lazyEvents.add(describe(c)));
+      assertEquals(eagerEvents, lazyEvents);
+      assertEquals(parseEvents(eager, fileName), parseEvents(lazy, fileName));
+    }
+  }
+
+  @Test
+  void lazyValuesFuzzed() throws IOException {
+    final Random random = new Random(20200718L);
+    final DocumentParser eager = DocumentParser.builder().engine(Engine.SCANNER).build();
+    final DocumentParser lazy =
+        DocumentParser.builder().engine(Engine.SCANNER).lazyValues(true).build();
+    for (int i = 0; i < 500; i++) {
+      final byte[] bytes =
+          ScannerEngineTest.randomDocument(random).getBytes(StandardCharsets.UTF_8);
+      final List<String> eagerEvents = new ArrayList<>();
+      eager.parse(new ByteArrayInputStream(bytes), c -> eagerEvents.add(describe(c)));
+      final List<String> lazyEvents = new ArrayList<>();
+      lazy.parse(new ByteArrayInputStream(bytes), c -> {
+        // read some values by key before rendering all of them
+        if (c instanceof DetailTable) {
+          final DetailTable table = (DetailTable) c;
+          final TableColumn[] columns = table.getTableColumns();
+          if (columns.length > 0) {
+            table.rows().forEach(r -> r.getProperty(columns[0].getKey()));
+          }
+        }
+        lazyEvents.add(describe(c));
+      });
+      assertEquals(eagerEvents, lazyEvents);
+    }
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {"md2orchestra-proto.md", "badmarkdown.md"})
+  void tableEvents(String fileName) throws IOException {
+    for (final Engine engine : Engine.values()) {
+      final List<String> both = parseEvents(DocumentParser.builder().engine(engine).build(),
+          fileName);
+      final List<String> rows = parseEvents(
+          DocumentParser.builder().engine(engine).tableEvents(TableEvents.ROWS).build(), fileName);
+      final List<String> tables = parseEvents(
+          DocumentParser.builder().engine(engine).tableEvents(TableEvents.TABLE).build(),
+          fileName);
+
+      assertEquals(both.stream().filter(e -> !e.startsWith("DetailTable "))
+          .collect(Collectors.toList()),
+          rows.stream().filter(e -> !e.startsWith("TableStart ") && !e.startsWith("TableEnd "))
+              .collect(Collectors.toList()));
+      assertEquals(
+          both.stream().filter(e -> !e.startsWith("Detail ")).collect(Collectors.toList()),
+          tables);
+
+      // each table starts and ends where the whole table was supplied, with the same row count
+      final List<Integer> rowCounts = new ArrayList<>();
+      final List<Integer> detailCounts = new ArrayList<>();
+      int details = 0;
+      for (final String event : rows) {
+        if (event.startsWith("TableStart ")) {
+          details = 0;
+        } else if (event.startsWith("Detail ")) {
+          details++;
+        } else if (event.startsWith("TableEnd ")) {
+          rowCounts.add(Integer.valueOf(event.split(" ")[1]));
+          detailCounts.add(details);
+        }
+      }
+      assertEquals(tables.stream().filter(e -> e.startsWith("DetailTable ")).count(),
+          rowCounts.size());
+      assertEquals(rowCounts, detailCounts);
+    }
+  }
+
+  @Test
+  void pathNotAscii(@TempDir Path dir) throws IOException {
+    final Path path = dir.resolve("unicode.md");
+    Files.writeString(path,
+        "# Caf\u00e9 \ud83d\ude00\n\n| Name | Note |\n|---|---|\n| Caf\u00e9 | \u00fcber |\n",
+        StandardCharsets.UTF_8);
+    for (final Engine engine : Engine.values()) {
+      final DocumentParser parser = DocumentParser.builder().engine(engine).build();
+      final List<String> streamEvents = new ArrayList<>();
+      try (InputStream inputStream = Files.newInputStream(path)) {
+        assertTrue(parser.parse(inputStream, c -> streamEvents.add(describe(c))));
+      }
+      final List<String> pathEvents = new ArrayList<>();
+      assertTrue(parser.parse(path, c -> pathEvents.add(describe(c))));
+      assertEquals(streamEvents, pathEvents);
+      assertTrue(pathEvents.get(0).contains("Caf\u00e9"));
+      assertTrue(parser.validate(path, null));
+    }
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {"md2orchestra-proto.md", "badmarkdown.md"})
+  void parallelMatchesSequential(String fileName) throws IOException {
+    final ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      for (final Engine engine : Engine.values()) {
+        final List<String> sequentialEvents = new ArrayList<>();
+        final boolean sequentialValid;
+        try (InputStream inputStream = getClass().getClassLoader().getResourceAsStream(fileName)) {
+          sequentialValid = DocumentParser.builder().engine(engine).build().parse(inputStream,
+              c -> sequentialEvents.add(describe(c)));
+        }
+        final DocumentParser parser = DocumentParser.builder().engine(engine).parallel(pool).build();
+        final List<String> parallelEvents = new ArrayList<>();
+        final boolean parallelValid;
+        try (InputStream inputStream = getClass().getClassLoader().getResourceAsStream(fileName)) {
+          parallelValid = parser.parse(inputStream, c -> parallelEvents.add(describe(c)));
+        }
+        assertEquals(sequentialValid, parallelValid);
+        if (sequentialValid) {
+          assertEquals(sequentialEvents, parallelEvents);
+        }
+      }
+      final DocumentParser parser = DocumentParser.builder().parallel(pool).build();
+      parseEvents(parser, "md2orchestra-proto.md");
+      assertTrue(parser.getParseCount(PredictionStage.SLL) > 1);
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  void parallelFuzzed() throws IOException {
+    final ForkJoinPool pool = new ForkJoinPool(4);
+    final Random random = new Random(20200717L);
+    try {
+      final DocumentParser sequential =
+          DocumentParser.builder().engine(Engine.SCANNER).build();
+      final DocumentParser parallel =
+          DocumentParser.builder().engine(Engine.SCANNER).parallel(pool).build();
+      for (int i = 0; i < 500; i++) {
+        final byte[] bytes =
+            ScannerEngineTest.randomDocument(random).getBytes(StandardCharsets.UTF_8);
+        final List<String> sequentialEvents = new ArrayList<>();
+        final boolean sequentialValid = sequential.parse(new ByteArrayInputStream(bytes),
+            c -> sequentialEvents.add(describe(c)));
+        final List<String> parallelEvents = new ArrayList<>();
+        final boolean parallelValid = parallel.parse(new ByteArrayInputStream(bytes),
+            c -> parallelEvents.add(describe(c)));
+        assertEquals(sequentialValid, parallelValid);
+        if (sequentialValid) {
+          assertEquals(sequentialEvents, parallelEvents);
+        }
+      }
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  void streamMatchesConsumer() throws Exception {
+    final List<String> expected = parseEvents(new DocumentParser(), "md2orchestra-proto.md");
+    final DocumentParser parser = DocumentParser.builder().handoffCapacity(2).build();
+    try (InputStream inputStream =
+        getClass().getClassLoader().getResourceAsStream("md2orchestra-proto.md");
+        Stream<Contextual> stream = parser.stream(inputStream, null)) {
+      assertEquals(expected,
+          stream.map(DocumentParserTest::describe).collect(Collectors.toList()));
+    }
+
+    final Path path =
+        Path.of(getClass().getClassLoader().getResource("md2orchestra-proto.md").toURI());
+    final List<String> iterated = new ArrayList<>();
+    parser.iterator(path, null).forEachRemaining(c -> iterated.add(describe(c)));
+    assertEquals(expected, iterated);
+  }
+
+  @Test
+  void streamClosedEarly() throws Exception {
+    final ExecutorService executor = Executors.newSingleThreadExecutor();
+    final DocumentParser parser =
+        DocumentParser.builder().executor(executor).handoffCapacity(1).build();
+    try (InputStream inputStream =
+        getClass().getClassLoader().getResourceAsStream("md2orchestra-proto.md")) {
+      try (Stream<Contextual> stream = parser.stream(inputStream, null)) {
+        assertEquals(2, stream.limit(2).count());
+      }
+      executor.shutdown();
+      assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+    }
+  }
+
+  @Test
+  void publisherMatchesConsumer() throws Exception {
+    final List<String> expected = parseEvents(new DocumentParser(), "md2orchestra-proto.md");
+    final Path path =
+        Path.of(getClass().getClassLoader().getResource("md2orchestra-proto.md").toURI());
+    final List<String> published = new ArrayList<>();
+    final CompletableFuture<Void> completion = new CompletableFuture<>();
+    DocumentParser.builder().handoffCapacity(2).build().publisher(path, null)
+        .subscribe(new Flow.Subscriber<Contextual>() {
+          private Flow.Subscription subscription;
+
+          @Override
+          public void onComplete() {
+            completion.complete(null);
+          }
+
+          @Override
+          public void onError(Throwable throwable) {
+            completion.completeExceptionally(throwable);
+          }
+
+          @Override
+          public void onNext(Contextual item) {
+            published.add(describe(item));
+            subscription.request(1);
+          }
+
+          @Override
+          public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(1);
+          }
+        });
+    completion.get(10, TimeUnit.SECONDS);
+    assertEquals(expected, published);
+  }
+
+  @Test
+  void publisherToSlowSubscriber() throws Exception {
+    final Path path =
+        Path.of(getClass().getClassLoader().getResource("md2orchestra-proto.md").toURI());
+    final int threadCount = Thread.activeCount();
+    final Set<Thread> deliveryThreads = ConcurrentHashMap.newKeySet();
+    final AtomicInteger maxThreadCount = new AtomicInteger();
+    final AtomicInteger events = new AtomicInteger();
+    final CompletableFuture<Void> completion = new CompletableFuture<>();
+    DocumentParser.builder().handoffCapacity(1).build().publisher(path, null)
+        .subscribe(new Flow.Subscriber<Contextual>() {
+          private Flow.Subscription subscription;
+
+          @Override
+          public void onComplete() {
+            completion.complete(null);
+          }
+
+          @Override
+          public void onError(Throwable throwable) {
+            completion.completeExceptionally(throwable);
+          }
+
+          @Override
+          public void onNext(Contextual item) {
+            deliveryThreads.add(Thread.currentThread());
+            maxThreadCount.accumulateAndGet(Thread.activeCount(), Math::max);
+            events.incrementAndGet();
+            try {
+              Thread.sleep(1);
+            } catch (final InterruptedException e) {
+              Thread.currentThread().interrupt();
+            }
+            subscription.request(1);
+          }
+
+          @Override
+          public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(1);
+          }
+        });
+    completion.get(10, TimeUnit.SECONDS);
+
+    assertTrue(events.get() > 10);
+    assertEquals(1, deliveryThreads.size());
+    // parse and delivery threads, with slack for threads of other tests that are still ending
+    assertTrue(maxThreadCount.get() <= threadCount + 4,
+        () -> "thread count grew from " + threadCount + " to " + maxThreadCount.get());
+    final Thread deliveryThread = deliveryThreads.iterator().next();
+    deliveryThread.join(5000);
+    assertFalse(deliveryThread.isAlive());
+  }
+
+  @Test
+  void warmUp() throws IOException {
+    for (final Engine engine : Engine.values()) {
+      final DocumentParser parser = DocumentParser.builder().engine(engine).build();
+      assertTrue(parser.validate(new ByteArrayInputStream(
+          DocumentParser.WARM_UP_SAMPLE.getBytes(StandardCharsets.UTF_8)), null));
+    }
+    final DocumentParser parser = new DocumentParser();
+    parser.warmUp();
+    assertEquals(0, parser.getParseCount(PredictionStage.SLL));
+    assertEquals(0, parser.getParseCount(PredictionStage.LL));
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {"md2orchestra-proto.md", "badmarkdown.md"})
+  void sharedAcrossThreads(String fileName) throws Exception {
+    final DocumentParser parser = new DocumentParser();
+    final List<String> expected = parseEvents(parser, fileName);
+    final ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      final List<CompletableFuture<List<String>>> futures = new ArrayList<>();
+      for (int i = 0; i < 16; i++) {
+        futures.add(CompletableFuture.supplyAsync(() -> {
+          try {
+            return parseEvents(parser, fileName);
+          } catch (final IOException e) {
+            throw new RuntimeException(e);
+          }
+        }, executor));
+      }
+      for (final CompletableFuture<List<String>> future : futures) {
+        assertEquals(expected, future.get(30, TimeUnit.SECONDS));
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  void nestedParse() throws IOException {
+    final DocumentParser parser = new DocumentParser();
+    final List<String> expected = parseEvents(parser, "md2orchestra-proto.md");
+    final List<String> nested = new ArrayList<>();
+    final List<String> outer = new ArrayList<>();
+    try (InputStream inputStream =
+        getClass().getClassLoader().getResourceAsStream("md2orchestra-proto.md")) {
+      parser.parse(inputStream, c -> {
+        if (outer.isEmpty()) {
+          try {
+            nested.addAll(parseEvents(parser, "md2orchestra-proto.md"));
+          } catch (final IOException e) {
+            throw new RuntimeException(e);
+          }
+        }
+        outer.add(describe(c));
+      });
+    }
+    assertEquals(expected, nested);
+    assertEquals(expected, outer);
+  }
+
+  @Test
+  void sllStage() throws IOException {
+    final DocumentParser parser = new DocumentParser();
+    try (InputStream inputStream =
+        getClass().getClassLoader().getResourceAsStream("md2orchestra-proto.md")) {
+      assertTrue(parser.parse(inputStream, c -> {}));
+    }
+    assertEquals(1, parser.getParseCount(PredictionStage.SLL));
+    assertEquals(0, parser.getParseCount(PredictionStage.LL));
+  }
+
+  @Test
+  void fallbackToLL() throws IOException {
+    final DocumentParser parser = new DocumentParser();
+    final List<String> errors = new ArrayList<>();
+    try (InputStream inputStream =
+        getClass().getClassLoader().getResourceAsStream("badmarkdown.md")) {
+      assertFalse(parser.parse(inputStream, c -> {},
+          (line, charPositionInLine, msg) -> errors.add(msg)));
+    }
+    assertEquals(0, parser.getParseCount(PredictionStage.SLL));
+    assertEquals(1, parser.getParseCount(PredictionStage.LL));
+    assertFalse(errors.isEmpty());
+  }
+
+  @Test
+  void forceLL() throws IOException {
+    final DocumentParser parser =
+        DocumentParser.builder().predictionStrategy(PredictionStrategy.LL).build();
+    try (InputStream inputStream =
+        getClass().getClassLoader().getResourceAsStream("md2orchestra-proto.md")) {
+      assertTrue(parser.validate(inputStream, null));
+    }
+    assertEquals(0, parser.getParseCount(PredictionStage.SLL));
+    assertEquals(1, parser.getParseCount(PredictionStage.LL));
+  }
+
+  @Test
+  void headingRecovery() throws IOException {
+    final String before = "# Section A\n\n| Name | Tag |\n|---|---|\n| Side | 54 |\n\n";
+    final String broken = "## Section B\n\n| Name | Tag |\n|---|---|\n| Price | 44 \\x |\n"
+        + "| Qty | 38 |\n\nText\n\n";
+    final String after =
+        "## Section C\n\nParagraph\n\n| Name | Tag |\n|---|---|\n| Account | 1 |\n";
+    final DocumentParser parser =
+        DocumentParser.builder().errorRecovery(ErrorRecovery.HEADING).build();
+    final List<String> expected = new ArrayList<>();
+    assertTrue(parser.parse(
+        new ByteArrayInputStream((before + after).getBytes(StandardCharsets.UTF_8)),
+        c -> expected.add(describe(c))));
+
+    final List<String> events = new ArrayList<>();
+    final List<String> errors = new ArrayList<>();
+    assertFalse(parser.parse(
+        new ByteArrayInputStream((before + broken + after).getBytes(StandardCharsets.UTF_8)),
+        c -> events.add(describe(c)), (line, charPositionInLine, msg) -> errors.add(msg)));
+    assertEquals(1, errors.size());
+    events.removeIf(e -> e.contains("[Section, B]"));
+    assertEquals(expected, events);
+  }
+
+  @Test
+  void recoveryLimit() throws IOException {
+    final StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < 5; i++) {
+      sb.append("## Section ").append(i).append("\n\n| Name | Tag |\n|---|---|\n| Price | \\x |\n");
+    }
+    final DocumentParser parser = DocumentParser.builder().errorRecovery(ErrorRecovery.HEADING)
+        .recoveryLimit(2).build();
+    final List<String> events = new ArrayList<>();
+    final List<String> errors = new ArrayList<>();
+    assertFalse(parser.parse(
+        new ByteArrayInputStream(sb.toString().getBytes(StandardCharsets.UTF_8)),
+        c -> events.add(describe(c)), (line, charPositionInLine, msg) -> errors.add(msg)));
+    // two errors are recovered from, and the third ends the parse
+    assertEquals(4, errors.size());
+    assertTrue(errors.get(3).contains("limit"));
+    assertTrue(events.stream().anyMatch(e -> e.startsWith("Context 2 [Section, 2]")));
+    assertFalse(events.stream().anyMatch(e -> e.startsWith("Context 2 [Section, 3]")));
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {"md2orchestra-proto.md", "badmarkdown.md"})
+  void headingRecoveryValidSections(String fileName) throws IOException {
+    final List<String> defaultEvents =
+        parseEvents(DocumentParser.builder().predictionStrategy(PredictionStrategy.LL).build(),
+            fileName);
+    final List<String> headingEvents = parseEvents(DocumentParser.builder()
+        .predictionStrategy(PredictionStrategy.LL).errorRecovery(ErrorRecovery.HEADING).build(),
+        fileName);
+    // every heading is reached
+    assertEquals(defaultEvents.stream().filter(e -> e.startsWith("Context")).count(),
+        headingEvents.stream().filter(e -> e.startsWith("Context")).count());
+  }
+
+  @Test
+  void errorLimit() throws IOException {
+    final StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < 5; i++) {
+      sb.append("## Section ").append(i).append("\n\n| Name | Tag |\n|---|---|\n| Price | \\x |\n");
+    }
+    final byte[] document = sb.toString().getBytes(StandardCharsets.UTF_8);
+    for (final Engine engine : Engine.values()) {
+      for (final boolean streaming : new boolean[] {false, true}) {
+        final DocumentParser parser =
+            DocumentParser.builder().engine(engine).streaming(streaming).errorLimit(2).build();
+        final List<String> errors = new ArrayList<>();
+        assertFalse(parser.validate(new ByteArrayInputStream(document),
+            (line, charPositionInLine, msg) -> errors.add(msg)));
+        assertEquals(2, errors.size(), engine + " streaming " + streaming);
+      }
+    }
+    // parser is reusable after validation is cancelled
+    final DocumentParser parser = DocumentParser.builder().errorLimit(1).build();
+    assertFalse(parser.validate(new ByteArrayInputStream(document), null));
+    assertTrue(parser.validate(Path.of("src/test/resources/md2orchestra-proto.md"), null));
+    assertTrue(parseEvents(parser, "md2orchestra-proto.md").size() > 0);
+  }
+
+  @Test
+  void validateAll(@TempDir Path dir) throws IOException {
+    final Path valid = Path.of("src/test/resources/md2orchestra-proto.md");
+    final Path invalid = Path.of("src/test/resources/badmarkdown.md");
+    final Path missing = dir.resolve("missing.md");
+    final List<Path> paths = new ArrayList<>();
+    for (int i = 0; i < 8; i++) {
+      paths.add(i % 2 == 0 ? valid : invalid);
+    }
+    paths.add(missing);
+    final DocumentParser parser = new DocumentParser();
+    final List<String> expectedErrors = new ArrayList<>();
+    parser.validate(invalid, (line, charPositionInLine, msg) -> expectedErrors
+        .add(line + ":" + charPositionInLine + " " + msg));
+
+    final List<ValidationResult> results = parser.validateAll(paths);
+    assertEquals(paths.size(), results.size());
+    for (int i = 0; i < paths.size(); i++) {
+      final ValidationResult result = results.get(i);
+      assertEquals(paths.get(i), result.getPath());
+      if (paths.get(i) == valid) {
+        assertTrue(result.isValid());
+        assertTrue(result.getDiagnostics().isEmpty());
+      } else if (paths.get(i) == invalid) {
+        assertFalse(result.isValid());
+        assertEquals(expectedErrors, result.getDiagnostics().stream()
+            .map(ValidationResult.Diagnostic::toString).collect(Collectors.toList()));
+      } else {
+        assertFalse(result.isValid());
+        assertTrue(result.getException() != null);
+      }
+    }
+  }
+
+  @Test
+  void statistics() throws IOException {
+    final Path path = Path.of("src/test/resources/md2orchestra-proto.md");
+    final List<DocumentParser> parsers = List.of(new DocumentParser(),
+        DocumentParser.builder().streaming(true).build(),
+        DocumentParser.builder().engine(Engine.SCANNER).build(),
+        DocumentParser.builder().parallel(true).build(),
+        DocumentParser.builder().tableEvents(TableEvents.TABLE).build());
+    for (final DocumentParser parser : parsers) {
+      final List<Contextual> events = new ArrayList<>();
+      final ParseStatistics statistics = new ParseStatistics();
+      assertTrue(parser.parse(path, events::add, null, statistics));
+      assertEquals(events.size(), statistics.getEvents());
+      assertEquals(events.stream().filter(c -> c instanceof Context).count(),
+          statistics.getHeadings());
+      assertEquals(events.stream().filter(c -> c instanceof DetailTable).count(),
+          statistics.getTables());
+      assertEquals(events.stream().filter(c -> c instanceof Detail).count()
+          + events.stream().filter(c -> c instanceof DetailTable)
+              .mapToLong(c -> ((DetailTable) c).rows().size()).sum(),
+          statistics.getRows() * (parser.getTableEvents() == TableEvents.TABLE ? 1 : 2));
+      assertTrue(statistics.getCells() > statistics.getRows());
+      assertEquals(Files.size(path), statistics.getBytes());
+      assertEquals(Files.readString(path).length(), statistics.getChars());
+      assertEquals(parser.getEngine() == Engine.ANTLR && !parser.isParallel(),
+          statistics.getTokens() > 0);
+      assertEquals(!parser.isStreaming() && parser.getEngine() == Engine.ANTLR
+          && !parser.isParallel(), statistics.getWalkNanos() > 0);
+      assertTrue(statistics.getParseNanos() > 0);
+      assertTrue(statistics.toString().contains(" tokens=" + statistics.getTokens() + " "));
+
+      // counters accumulate
+      try (InputStream inputStream = Files.newInputStream(path)) {
+        parser.parse(inputStream, c -> {}, null, statistics);
+      }
+      assertEquals(2 * Files.size(path), statistics.getBytes());
+      assertEquals(2 * events.size(), statistics.getEvents());
+    }
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {"md2orchestra-proto.md", "badmarkdown.md"})
+  void keywordVocabulary(String fileName) throws IOException {
+    final String[] keywords = {"codeset", "component", "fields", "group", "message"};
+    final KeywordVocabulary vocabulary = KeywordVocabulary.of(keywords);
+    // a different instance is not cached, so key contexts are searched
+    final KeywordVocabulary uncached = KeywordVocabulary.of(keywords);
+    for (final DocumentParser parser : List.of(
+        DocumentParser.builder().keywordVocabulary(vocabulary).build(),
+        DocumentParser.builder().keywordVocabulary(vocabulary).engine(Engine.SCANNER).build(),
+        DocumentParser.builder().keywordVocabulary(vocabulary).parallel(true).build())) {
+      final List<Contextual> events = new ArrayList<>();
+      parser.parse(Path.of("src/test/resources", fileName), events::add);
+      int keyed = 0;
+      for (final Contextual contextual : events) {
+        final Context keyContext = contextual.getKeyContext(vocabulary);
+        assertSame(contextual.getKeyContext(uncached), keyContext);
+        if (keyContext != null) {
+          final String keyword = keyContext.getKeyword(vocabulary);
+          assertEquals(keyContext.getKeyword(uncached), keyword);
+          if (keyword != null) {
+            keyed++;
+            assertSame(keywords[Arrays.binarySearch(keywords,
+                keyContext.getKey(0).toLowerCase(Locale.ROOT))], keyword);
+          } else {
+            assertEquals(1, keyContext.getLevel());
+          }
+        }
+      }
+      assertTrue(keyed > 0);
+    }
+  }
+}
@@ -15,11 +15,19 @@
 package io.fixprotocol.md.event;
 
 import static org.junit.jupiter.api.Assertions.*;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.StringWriter;
 import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import io.fixprotocol.md.event.DocumentParser.TableEvents;
+import io.fixprotocol.md.event.DocumentWriter.TableLayout;
+import io.fixprotocol.md.event.DocumentWriter.TableWriter;
 import io.fixprotocol.md.util.AssociativeSet;
 
 class DocumentWriterTest {
@@ -95,4 +103,72 @@ class DocumentWriterTest {
     String output = writer.toString();
     System.out.print(output);
   }
+
+  @Test
+  void compactTable() throws IOException {
+    final TableColumn[] columns = new TableColumn[] {factory.createTableColumn("name", 0),
+        factory.createTableColumn("tag", 0)};
+    try (TableWriter tableWriter = documentWriter.beginTable(columns, TableLayout.COMPACT)) {
+      tableWriter.append("SecurityID", "48");
+      final MutableDetailProperties row = factory.createDetailTable().newRow();
+      row.addProperty("tag", "22");
+      tableWriter.append(row);
+      assertEquals(2, tableWriter.getRowCount());
+    }
+    assertEquals("| Name | Tag |\n|---|---|\n| SecurityID | 48 |\n|  | 22 |\n\n",
+        writer.toString());
+  }
+
+  @Test
+  void paddedTable() throws IOException {
+    final MutableTableColumn tag = factory.createTableColumn("tag", 2);
+    tag.setHeading("Tag");
+    final TableColumn[] columns =
+        new TableColumn[] {factory.createTableColumn("name", 10), tag};
+    try (TableWriter tableWriter = documentWriter.beginTable(columns, TableLayout.PADDED)) {
+      tableWriter.append("SecurityID", "48");
+      // longer than its width hint
+      tableWriter.append("SecurityIDSource", "22");
+    }
+    assertEquals("| Name       | Tag |\n" + "|------------|-----|\n"
+        + "| SecurityID | 48  |\n" + "| SecurityIDSource | 22  |\n\n", writer.toString());
+  }
+
+  @Test
+  void streamParsedRows() throws IOException {
+    final DocumentParser parser = DocumentParser.builder().tableEvents(TableEvents.ROWS).build();
+    final Path path = Path.of("src/test/resources/md2orchestra-proto.md");
+    final List<String> expected = new ArrayList<>();
+    parser.parse(path, c -> {
+      if (c instanceof Detail) {
+        expected.add(((Detail) c).getProperties().toString());
+      }
+    });
+
+    parser.parse(path, c -> {
+      try {
+        if (c instanceof TableStart) {
+          documentWriter.write((TableStart) c);
+        } else if (c instanceof Detail) {
+          documentWriter.write((Detail) c);
+        } else if (c instanceof TableEnd) {
+          documentWriter.write((TableEnd) c);
+        }
+      } catch (final IOException e) {
+        fail(e);
+      }
+    });
+
+    final List<String> actual = new ArrayList<>();
+    parser.parse(new ByteArrayInputStream(writer.toString().getBytes(StandardCharsets.UTF_8)),
+        c -> {
+          if (c instanceof Detail) {
+            actual.add(((Detail) c).getProperties().toString());
+          }
+        });
+    assertFalse(expected.isEmpty());
+    assertEquals(expected, actual);
+    assertThrows(IllegalStateException.class,
+        () -> documentWriter.write((Detail) factory.createDetail()));
+  }
 }
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2020 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package io.fixprotocol.md.event;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class EventMultiplexerTest {
+
+  private static final Path PROTO = Path.of("src/test/resources/md2orchestra-proto.md");
+
+  private static boolean isUnder(Contextual contextual, String keyword) {
+    for (Context context = contextual instanceof Context ? (Context) contextual
+        : contextual.getParent(); context != null; context = context.getParent()) {
+      if (context.getKeys().length > 0 && context.getKeys()[0].equalsIgnoreCase(keyword)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {"md2orchestra-proto.md", "badmarkdown.md"})
+  void singlePass(String fileName) throws IOException {
+    final Path path = Path.of("src/test/resources", fileName);
+    final DocumentParser parser = new DocumentParser();
+    final List<Contextual> expected = new ArrayList<>();
+    parser.parse(path, expected::add);
+
+    final List<Contextual> all = new ArrayList<>();
+    final List<Contextual> codesets = new ArrayList<>();
+    final List<Contextual> asyncAll = Collections.synchronizedList(new ArrayList<>());
+    final List<Contextual> asyncMessages = Collections.synchronizedList(new ArrayList<>());
+    try (EventMultiplexer multiplexer = EventMultiplexer.builder().consumer(all::add)
+        .consumer(codesets::add, EventMultiplexer.keysStartWith("codeset"))
+        .asyncConsumer(asyncAll::add, null, 1)
+        .asyncConsumer(asyncMessages::add, EventMultiplexer.keysStartWith("Message"), 4)
+        .build()) {
+      parser.parse(path, multiplexer);
+    }
+
+    final List<String> expectedEvents = new ArrayList<>();
+    expected.forEach(c -> expectedEvents.add(DocumentParserTest.describe(c)));
+    final List<String> events = new ArrayList<>();
+    all.forEach(c -> events.add(DocumentParserTest.describe(c)));
+    assertEquals(expectedEvents, events);
+    final List<String> asyncEvents = new ArrayList<>();
+    asyncAll.forEach(c -> asyncEvents.add(DocumentParserTest.describe(c)));
+    assertEquals(expectedEvents, asyncEvents);
+
+    final List<Contextual> expectedCodesets = new ArrayList<>();
+    final List<Contextual> expectedMessages = new ArrayList<>();
+    for (final Contextual contextual : all) {
+      if (isUnder(contextual, "Codeset")) {
+        expectedCodesets.add(contextual);
+      }
+      if (isUnder(contextual, "Message")) {
+        expectedMessages.add(contextual);
+      }
+    }
+    assertEquals(expectedCodesets, codesets);
+    assertEquals(expectedMessages, asyncMessages);
+  }
+
+  @Test
+  void keyPath() throws IOException {
+    final List<List<String[]>> keyPaths = new ArrayList<>();
+    try (EventMultiplexer multiplexer = EventMultiplexer.builder().consumer(c -> {}, keyPath -> {
+      keyPaths.add(keyPath);
+      return false;
+    }).build()) {
+      new DocumentParser().parse(PROTO, multiplexer);
+    }
+    // tested once per heading, and once for events before the first heading
+    final List<Contextual> events = new ArrayList<>();
+    new DocumentParser().parse(PROTO, events::add);
+    final long headings = events.stream().filter(c -> c instanceof Context).count();
+    assertTrue(keyPaths.size() <= headings + 1);
+    assertTrue(keyPaths.stream().anyMatch(p -> p.size() == 2
+        && p.get(0)[0].equals("Rules") && p.get(1)[0].equals("Message")));
+  }
+
+  @Test
+  void asyncFailure() throws IOException {
+    final EventMultiplexer multiplexer = EventMultiplexer.builder().consumer(c -> {})
+        .asyncConsumer(c -> {
+          throw new IllegalArgumentException("bad event");
+        }, null, 1).build();
+    try {
+      new DocumentParser().parse(PROTO, multiplexer);
+    } catch (final CancellationException e) {
+      // parser may be stopped by the failed consumer before the end of the document
+    }
+    final IllegalArgumentException e =
+        assertThrows(IllegalArgumentException.class, multiplexer::close);
+    assertEquals("bad event", e.getMessage());
+    // closing again does not wait or throw
+    multiplexer.close();
+  }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2020 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package io.fixprotocol.md.event;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class IncrementalParserTest {
+
+  private static List<String> fullParse(String text) throws IOException {
+    final List<String> events = new ArrayList<>();
+    assertTrue(new DocumentParser().parse(
+        new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)),
+        c -> events.add(DocumentParserTest.describe(c))));
+    return events;
+  }
+
+  private static List<String> incrementalParse(IncrementalParser parser, String text)
+      throws IOException {
+    final List<String> events = new ArrayList<>();
+    assertTrue(parser.parse(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)),
+        c -> events.add(DocumentParserTest.describe(c)), null));
+    return events;
+  }
+
+  private String original;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    try (InputStream inputStream =
+        getClass().getClassLoader().getResourceAsStream("md2orchestra-proto.md")) {
+      original = new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+    }
+  }
+
+  @Test
+  void unchanged() throws IOException {
+    final IncrementalParser parser = new IncrementalParser();
+    assertEquals(fullParse(original), incrementalParse(parser, original));
+    final int sections = parser.getSectionsParsed();
+    assertTrue(sections > 1);
+
+    assertEquals(fullParse(original), incrementalParse(parser, original));
+    assertEquals(0, parser.getSectionsParsed());
+    assertEquals(sections, parser.getSectionsReused());
+  }
+
+  @Test
+  void tableRowChanged() throws IOException {
+    final IncrementalParser parser = new IncrementalParser();
+    incrementalParse(parser, original);
+    final int sections = parser.getSectionsParsed();
+
+    final String edited = original.replaceFirst("\\| Price +\\|", "| Cost |");
+    assertTrue(!edited.equals(original));
+    assertEquals(fullParse(edited), incrementalParse(parser, edited));
+    assertEquals(1, parser.getSectionsParsed());
+    assertEquals(sections - 1, parser.getSectionsReused());
+  }
+
+  @Test
+  void headingInserted() throws IOException {
+    final IncrementalParser parser = new IncrementalParser();
+    incrementalParse(parser, original);
+
+    // a new top level heading becomes the parent of following sections
+    final int secondHeading = original.indexOf("\n## ") + 1;
+    final String edited = original.substring(0, secondHeading) + "# Inserted heading\n\n"
+        + original.substring(secondHeading);
+    assertEquals(fullParse(edited), incrementalParse(parser, edited));
+
+    // and parents revert when it is removed
+    assertEquals(fullParse(original), incrementalParse(parser, original));
+    assertEquals(0, parser.getSectionsParsed());
+  }
+}
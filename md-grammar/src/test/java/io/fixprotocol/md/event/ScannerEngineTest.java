@@ -0,0 +1,200 @@
+/*
+ * Copyright 2020 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package io.fixprotocol.md.event;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import io.fixprotocol.md.event.DocumentParser.Engine;
+
+/**
+ * Differential tests of the scanner engine against the ANTLR parser
+ */
+class ScannerEngineTest {
+
+  private static final String[] FRAGMENTS = {"word", "Name", "123", "a_b", "x.y", "`code`",
+      "`multi\nline`", "\\|", "\\`", "\\#", "#", ">", "-", "--", ":-:", "*", "1.", "é", "😀", "~",
+      "\t", "  ", "|", "`", "\\", "\r\n", "<tag>", "{json}", "[ref]"};
+
+  private static class Result {
+    final List<String> errors = new ArrayList<>();
+    final List<String> events = new ArrayList<>();
+    boolean valid;
+  }
+
+  /**
+   * Asserts that both engines supply the same events and errors, whether or not a document is valid
+   *
+   * @return {@code true} if the document is valid
+   */
+  private static boolean assertSameEvents(String text) throws IOException {
+    final Result antlr = parse(Engine.ANTLR, text);
+    final Result scanner = parse(Engine.SCANNER, text);
+    assertEquals(antlr.valid, scanner.valid, text);
+    assertEquals(antlr.errors, scanner.errors, text);
+    assertEquals(antlr.events, scanner.events, text);
+    return antlr.valid;
+  }
+
+  private static Result parse(Engine engine, String text) throws IOException {
+    final Result result = new Result();
+    final DocumentParser parser = DocumentParser.builder().engine(engine).build();
+    result.valid = parser.parse(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)),
+        c -> result.events.add(DocumentParserTest.describe(c)),
+        (line, charPositionInLine, msg) -> result.errors
+            .add(line + ":" + charPositionInLine + " " + msg));
+    return result;
+  }
+
+  static String randomDocument(Random random) {
+    final StringBuilder sb = new StringBuilder();
+    final int blocks = 1 + random.nextInt(12);
+    for (int b = 0; b < blocks; b++) {
+      switch (random.nextInt(9)) {
+        case 0:
+        case 1:
+          sb.append("#".repeat(1 + random.nextInt(4))).append(' ').append(randomText(random, 3))
+              .append('\n');
+          break;
+        case 2:
+          for (int i = random.nextInt(3); i >= 0; i--) {
+            sb.append(randomText(random, 5)).append('\n');
+          }
+          break;
+        case 3:
+          for (int i = random.nextInt(3); i >= 0; i--) {
+            sb.append(random.nextBoolean() ? "- " : "1. ").append(randomText(random, 3))
+                .append('\n');
+          }
+          break;
+        case 4:
+          for (int i = random.nextInt(2); i >= 0; i--) {
+            sb.append("> ").append(randomText(random, 3)).append('\n');
+          }
+          break;
+        case 5:
+          sb.append("```").append(random.nextBoolean() ? "json" : "").append('\n')
+              .append(randomText(random, 3)).append("\n```\n");
+          break;
+        case 6:
+        case 7:
+          appendTable(random, sb);
+          break;
+        default:
+          sb.append(randomFragment(random));
+      }
+      if (random.nextInt(3) == 0) {
+        sb.append('\n');
+      }
+    }
+    if (random.nextInt(4) == 0 && sb.length() > 0) {
+      // drop the final newline
+      sb.setLength(sb.length() - 1);
+    }
+    return sb.toString();
+  }
+
+  private static void appendTable(Random random, StringBuilder sb) {
+    final int columns = 1 + random.nextInt(4);
+    sb.append(tableRow(random, columns, true));
+    for (int c = 0; c < columns; c++) {
+      sb.append(random.nextInt(4) == 0 ? "|:---:" : "|------");
+    }
+    sb.append(random.nextBoolean() ? "|\n" : "\n");
+    for (int r = random.nextInt(4); r >= 0; r--) {
+      sb.append(tableRow(random, columns - 1 + random.nextInt(3), false));
+    }
+  }
+
+  private static String tableRow(Random random, int columns, boolean heading) {
+    final StringBuilder sb = new StringBuilder();
+    for (int c = 0; c < columns; c++) {
+      sb.append("| ");
+      if (heading || random.nextInt(5) != 0) {
+        sb.append(randomText(random, 2));
+      }
+      sb.append(' ');
+    }
+    sb.append(random.nextBoolean() ? "|\n" : "\n");
+    return sb.toString();
+  }
+
+  private static String randomFragment(Random random) {
+    return FRAGMENTS[random.nextInt(FRAGMENTS.length)];
+  }
+
+  private static String randomText(Random random, int maxWords) {
+    final StringBuilder sb = new StringBuilder("text");
+    for (int i = random.nextInt(maxWords); i > 0; i--) {
+      sb.append(' ');
+      // mostly plain words, occasionally a hazardous fragment
+      sb.append(random.nextInt(4) == 0 ? randomFragment(random) : FRAGMENTS[random.nextInt(4)]);
+    }
+    return sb.toString();
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {"src/test/resources/md2orchestra-proto.md",
+      "src/test/resources/badmarkdown.md",
+      "../md2orchestra/src/test/resources/md2orchestra-proto.md",
+      "../md2orchestra/src/test/resources/md2orchestra-proto-p1.md",
+      "../md2orchestra/src/test/resources/md2orchestra-proto-p2.md",
+      "../md2interfaces/src/test/resources/SampleInterfaces.md"})
+  void resources(String fileName) throws IOException {
+    final String text = Files.readString(Path.of(fileName), StandardCharsets.UTF_8);
+    assertFalse(parse(Engine.ANTLR, text).events.isEmpty());
+    assertSameEvents(text);
+  }
+
+  @Test
+  void fuzzed() throws IOException {
+    final Random random = new Random(20200716L);
+    int validDocuments = 0;
+    for (int i = 0; i < 1000; i++) {
+      final String text = randomDocument(random);
+      if (assertSameEvents(text)) {
+        validDocuments++;
+      }
+    }
+    assertTrue(validDocuments > 100);
+  }
+
+  @Test
+  void consecutiveTables() throws IOException {
+    final String text =
+        "| a | b |\n|---|---|\n| 1 | 2 |\n| x | y |\n|---|---|\n| 3 | 4 |\n";
+    final Result antlr = parse(Engine.ANTLR, text);
+    final Result scanner = parse(Engine.SCANNER, text);
+    assertTrue(antlr.valid);
+    assertTrue(scanner.valid);
+    assertEquals(antlr.events, scanner.events);
+  }
+
+  @Test
+  void emptyDocument() throws IOException {
+    assertFalse(parse(Engine.SCANNER, "").valid);
+  }
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2020 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package io.fixprotocol.md.event;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import io.fixprotocol.md.event.DocumentParser.Engine;
+
+class SectionIndexTest {
+
+  private static final Path PROTO = Path.of("src/test/resources/md2orchestra-proto.md");
+
+  /**
+   * Events of a full parse that belong to a section or are headings of its enclosing sections
+   */
+  private static List<String> expectedEvents(DocumentParser parser, Path path, SectionIndex index,
+      SectionIndex.Entry section) throws IOException {
+    final List<Contextual> events = new ArrayList<>();
+    parser.parse(path, events::add);
+    final List<String> expected = new ArrayList<>();
+    int heading = -1;
+    for (final Contextual contextual : events) {
+      if (contextual instanceof Context) {
+        heading++;
+      }
+      final SectionIndex.Entry entry = heading >= 0 ? index.getEntries().get(heading) : null;
+      if (entry != null && (section.contains(entry)
+          || (contextual instanceof Context && entry.contains(section)))) {
+        expected.add(DocumentParserTest.describe(contextual));
+      }
+    }
+    return expected;
+  }
+
+  @Test
+  void allSections() throws IOException {
+    final SectionIndex index = SectionIndex.build(PROTO);
+    assertEquals(8, index.getEntries().size());
+    for (final Engine engine : Engine.values()) {
+      final DocumentParser parser = DocumentParser.builder().engine(engine).build();
+      for (final SectionIndex.Entry section : index.getEntries()) {
+        final List<String> events = new ArrayList<>();
+        assertTrue(parser.parse(PROTO, index, List.of(section),
+            c -> events.add(DocumentParserTest.describe(c)), null));
+        assertEquals(expectedEvents(parser, PROTO, index, section), events, section.toString());
+      }
+    }
+  }
+
+  @Test
+  void find() throws IOException {
+    final SectionIndex index = SectionIndex.build(PROTO);
+    final List<SectionIndex.Entry> messages = index.find("message");
+    assertEquals(2, messages.size());
+    final SectionIndex.Entry entry = index.find("Message", "NewOrderSingle").get(0);
+    assertEquals(2, entry.getLevel());
+    assertEquals(List.of("Rules of Engagement", "Message NewOrderSingle type 'D'"),
+        entry.getPath());
+    assertEquals(entry,
+        index.getEntry("rules of engagement", "message NewOrderSingle type 'D'"));
+    assertNull(index.getEntry("Message NewOrderSingle type 'D'"));
+
+    final SectionIndex.Entry codeset = index.find("Codeset", "Sides").get(0);
+    assertEquals("Group", codeset.getParent().getKeys()[0]);
+    assertTrue(codeset.getParent().contains(codeset));
+    assertFalse(entry.contains(codeset));
+  }
+
+  @Test
+  void selectedSections() throws IOException {
+    final SectionIndex index = SectionIndex.build(PROTO);
+    final DocumentParser parser = new DocumentParser();
+    final SectionIndex.Entry group = index.find("Group").get(0);
+    final SectionIndex.Entry codeset = index.find("Codeset").get(0);
+    final SectionIndex.Entry message = index.find("Message", "NewOrderSingle").get(0);
+
+    final List<String> events = new ArrayList<>();
+    assertTrue(parser.parse(PROTO, index, List.of(codeset, group, message),
+        c -> events.add(DocumentParserTest.describe(c)), null));
+    final List<String> expected = new ArrayList<>(expectedEvents(parser, PROTO, index, message));
+    // enclosing heading is supplied once
+    final List<String> groupEvents = expectedEvents(parser, PROTO, index, group);
+    expected.addAll(groupEvents.subList(1, groupEvents.size()));
+    assertEquals(expected, events);
+  }
+
+  @Test
+  void notAscii(@TempDir Path dir) throws IOException {
+    final Path path = dir.resolve("unicode.md");
+    Files.writeString(path, "# Caf\u00e9 \ud83d\ude00\n\n\u00fcber alles\n\n"
+        + "## Table \u00e9\n\n| Name | Note |\n|---|---|\n| Caf\u00e9 | \u00fcber |\n",
+        StandardCharsets.UTF_8);
+    final SectionIndex index = SectionIndex.build(path);
+    final SectionIndex.Entry table = index.find("Table").get(0);
+    final byte[] bytes = Files.readAllBytes(path);
+    assertEquals("## Table \u00e9",
+        new String(bytes, (int) table.getStart(), 11, StandardCharsets.UTF_8));
+    assertEquals(bytes.length, table.getEnd());
+
+    final List<String> events = new ArrayList<>();
+    assertTrue(new DocumentParser().parse(path, index, List.of(table),
+        c -> events.add(DocumentParserTest.describe(c)), null));
+    // headings, a row, and the table
+    assertEquals(4, events.size());
+    assertTrue(events.get(3).contains("\u00fcber"));
+  }
+
+  @Test
+  void persist(@TempDir Path dir) throws IOException {
+    final Path path = dir.resolve("proto.md");
+    Files.copy(PROTO, path);
+    final SectionIndex index = SectionIndex.build(path);
+    final Path indexPath = dir.resolve("proto.idx");
+    index.write(indexPath);
+    final SectionIndex read = SectionIndex.read(indexPath);
+    assertTrue(read.isCurrent(path));
+    assertEquals(index.getEntries().size(), read.getEntries().size());
+    for (int i = 0; i < index.getEntries().size(); i++) {
+      final SectionIndex.Entry expected = index.getEntries().get(i);
+      final SectionIndex.Entry actual = read.getEntries().get(i);
+      assertEquals(expected.toString(), actual.toString());
+      assertArrayEquals(expected.getKeys(), actual.getKeys());
+    }
+
+    final SectionIndex.Entry section = read.find("Component").get(0);
+    final DocumentParser parser = new DocumentParser();
+    final List<String> events = new ArrayList<>();
+    assertTrue(parser.parse(path, read, List.of(section),
+        c -> events.add(DocumentParserTest.describe(c)), null));
+    assertEquals(expectedEvents(parser, path, index, section), events);
+
+    Files.setLastModifiedTime(path, FileTime.fromMillis(0));
+    assertFalse(read.isCurrent(path));
+    assertThrows(IOException.class,
+        () -> parser.parse(path, read, List.of(section), c -> {}, null));
+    assertThrows(IOException.class, () -> SectionIndex.read(path));
+  }
+}
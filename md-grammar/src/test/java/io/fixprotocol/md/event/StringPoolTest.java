@@ -0,0 +1,113 @@
+/*
+ * Copyright 2020 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package io.fixprotocol.md.event;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map.Entry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import io.fixprotocol.md.event.DocumentParser.Engine;
+
+class StringPoolTest {
+
+  private static final int REPETITIONS = 500;
+
+  private static long usedHeap() {
+    final Runtime runtime = Runtime.getRuntime();
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+    }
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+
+  /**
+   * Reports heap retained by the events of a parse. Run with {@code -Dbenchmark=true}.
+   */
+  @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+  @Test
+  void retainedHeap() throws IOException {
+    final byte[] document =
+        Files.readString(Path.of("src/test/resources/md2orchestra-proto.md")).repeat(REPETITIONS)
+            .getBytes(StandardCharsets.UTF_8);
+    for (final Engine engine : Engine.values()) {
+      final DocumentParser parser = DocumentParser.builder().engine(engine).build();
+      // the shared DFA of the ANTLR engine grows on its first parse
+      parser.parse(new ByteArrayInputStream(document), c -> {});
+      final long before = usedHeap();
+      final List<Contextual> events = new ArrayList<>();
+      parser.parse(new ByteArrayInputStream(document), events::add);
+      // values are materialized as a consumer would read them
+      events.forEach(c -> {
+        if (c instanceof DetailProperties) {
+          ((DetailProperties) c).getProperties().forEach(Entry::getValue);
+        }
+      });
+      final long retained = usedHeap() - before;
+      System.out.format("Heap retained by %d events of %s engine: %d bytes%n", events.size(),
+          engine, retained);
+    }
+  }
+
+  @Test
+  void sharedKeysAndValues() throws IOException {
+    final String text = "## Fields\n\n| Name | Presence | Notes |\n|---|---|---|\n"
+        + "| Side | required | Buy or sell |\n" + "| Price | required | Buy or sell |\n";
+    final Locale locale = Locale.getDefault();
+    // dotted and dotless i differ from the root locale
+    Locale.setDefault(Locale.forLanguageTag("tr"));
+    try {
+      for (final Engine engine : Engine.values()) {
+        final List<Contextual> events = new ArrayList<>();
+        DocumentParser.builder().engine(engine).build()
+            .parse(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)), events::add);
+        final List<Detail> details = new ArrayList<>();
+        DetailTable table = null;
+        for (final Contextual contextual : events) {
+          if (contextual instanceof Detail) {
+            details.add((Detail) contextual);
+          } else if (contextual instanceof DetailTable) {
+            table = (DetailTable) contextual;
+          }
+        }
+        assertEquals(2, details.size());
+        assertNotNull(table);
+        final Entry<String, String> first = details.get(0).getProperties().iterator().next();
+        final Entry<String, String> second = details.get(1).getProperties().iterator().next();
+        assertEquals("name", first.getKey());
+        assertSame(first.getKey(), second.getKey());
+        assertEquals("required", details.get(0).getProperty("PRESENCE"));
+        assertSame(details.get(0).getProperty("presence"), details.get(1).getProperty("Presence"));
+        assertSame(details.get(0).getProperty("notes"), details.get(1).getProperty("notes"));
+
+        final List<DetailProperties> rows = new ArrayList<>(table.rows());
+        assertEquals("Side", rows.get(0).getProperty("NAME"));
+        assertSame(rows.get(0).getProperty("presence"), rows.get(1).getProperty("presence"));
+        assertSame(details.get(0).getProperty("presence"), rows.get(0).getProperty("presence"));
+      }
+    } finally {
+      Locale.setDefault(locale);
+    }
+  }
+}
@@ -17,8 +17,10 @@ package io.fixprotocol.md2interfaces;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Locale;
 import java.util.function.Consumer;
 import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBElement;
@@ -50,8 +52,11 @@ import io.fixprotocol.md.event.Contextual;
 import io.fixprotocol.md.event.DetailProperties;
 import io.fixprotocol.md.event.DetailTable;
 import io.fixprotocol.md.event.DocumentParser;
+import io.fixprotocol.md.event.DocumentParser.TableEvents;
 import io.fixprotocol.md.event.Documentation;
+import io.fixprotocol.md.event.KeywordVocabulary;
 import io.fixprotocol.md.event.MarkdownUtil;
+import io.fixprotocol.md.event.ParseStatistics;
 import io.fixprotocol.orchestra.event.EventListener;
 import io.fixprotocol.orchestra.event.EventListenerFactory;
 import io.fixprotocol.orchestra.event.TeeEventListener;
@@ -71,8 +76,9 @@ public class InterfacesBuilder implements Consumer<Contextual> {
   private static final int KEY_POSITION = 0;
   private static final int NAME_POSITION = 1;
 
-  private final String[] contextKeys =
-      new String[] {IDENTIFIERS_KEYWORD, INTERFACE_KEYWORD, PROTOCOLS_KEYWORD, SESSION_KEYWORD};
+  // headings are classified by these keywords as they are parsed
+  private static final KeywordVocabulary contextKeys = KeywordVocabulary.of(IDENTIFIERS_KEYWORD,
+      INTERFACE_KEYWORD, PROTOCOLS_KEYWORD, SESSION_KEYWORD);
 
   private TeeEventListener eventLogger;
   private final EventListenerFactory factory = new EventListenerFactory();
@@ -85,13 +91,15 @@ public class InterfacesBuilder implements Consumer<Contextual> {
 
   @Override
   public void accept(Contextual contextual) {
-    final Context keyContext = getKeyContext(contextual);
-    final String type = keyContext.getKey(KEY_POSITION);
-    if (type == null) {
+    final Context keyContext = contextual.getKeyContext(contextKeys);
+    final String key = keyContext.getKey(KEY_POSITION);
+    final String keyword = keyContext.getKeyword(contextKeys);
+    if (key == null) {
       logger.warn("InterfacesBuilder received element with unknown context of class {}",
           contextual.getClass());
     } else
-      switch (type.toLowerCase()) {
+      // a keyword is already lower case; only a key outside the vocabulary is converted
+      switch (keyword != null ? keyword : key.toLowerCase(Locale.ROOT)) {
         case INTERFACE_KEYWORD:
           addInterface(contextual, keyContext);
           break;
@@ -108,7 +116,7 @@ public class InterfacesBuilder implements Consumer<Contextual> {
           if (keyContext.getLevel() == 1) {
             addMetadata(contextual, keyContext);
           } else {
-            logger.warn("InterfacesBuilder received unknown context type {}", type);
+            logger.warn("InterfacesBuilder received unknown context type {}", key);
           }
       }
   }
@@ -120,10 +128,24 @@ public class InterfacesBuilder implements Consumer<Contextual> {
    * @throws IOException if an IO error occurs
    */
   public void appendInput(InputStream inputStream) throws IOException {
-    final DocumentParser parser = new DocumentParser();
+    final DocumentParser parser = newParser();
     parser.parse(inputStream, this);
   }
 
+  /**
+   * Append input to a interfaces file
+   *
+   * @param path a markdown file
+   * @return statistics of the parse
+   * @throws IOException if an IO error occurs
+   */
+  public ParseStatistics appendInput(Path path) throws IOException {
+    final DocumentParser parser = newParser();
+    final ParseStatistics statistics = new ParseStatistics();
+    parser.parse(path, this, null, statistics);
+    return statistics;
+  }
+
   public void write(OutputStream os) throws Exception {
     final JAXBContext jaxbContext = JAXBContext.newInstance(Interfaces.class);
     final Marshaller jaxbMarshaller = jaxbContext.createMarshaller();
@@ -435,21 +457,9 @@ public class InterfacesBuilder implements Consumer<Contextual> {
     return null;
   }
 
-  private Context getKeyContext(Contextual contextual) {
-    Context context = null;
-    if (contextual instanceof Context) {
-      context = (Context) contextual;
-    } else {
-      context = contextual.getParent();
-    }
-    while (context != null) {
-      final String key = context.getKey(KEY_POSITION);
-      if ((Arrays.binarySearch(contextKeys, key.toLowerCase()) >= 0) || (context.getLevel() == 1)) {
-        break;
-      } else {
-        context = context.getParent();
-      }
-    }
-    return context;
+  private DocumentParser newParser() {
+    // interfaces are built from whole tables, so rows are not supplied separately
+    return DocumentParser.builder().tableEvents(TableEvents.TABLE).keywordVocabulary(contextKeys)
+        .build();
   }
 }
@@ -15,12 +15,11 @@
 package io.fixprotocol.md2interfaces;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
@@ -33,6 +32,7 @@ import org.apache.commons.cli.Options;
 import org.apache.commons.cli.ParseException;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import io.fixprotocol.md.event.ParseStatistics;
 
 public class Md2Interfaces {
 
@@ -186,8 +186,8 @@ public class Md2Interfaces {
   private void appendInput(String filePath, InterfacesBuilder interfacesBuilder)
       throws IOException {
     logger.info("Md2Interfaces opening file {}", filePath);
-    final InputStream inputStream = new FileInputStream(filePath);
-    interfacesBuilder.appendInput(inputStream);
+    final ParseStatistics statistics = interfacesBuilder.appendInput(Path.of(filePath));
+    logger.info("Md2Interfaces parsed file={} {}", filePath, statistics);
   }
 
 }
@@ -0,0 +1,620 @@
+/*
+ * Copyright 2020 FIX Protocol Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.fixprotocol.md2orchestra;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.math.BigInteger;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import io.fixprotocol._2020.orchestra.repository.ActorType;
+import io.fixprotocol._2020.orchestra.repository.CodeSetType;
+import io.fixprotocol._2020.orchestra.repository.ComponentType;
+import io.fixprotocol._2020.orchestra.repository.Datatype;
+import io.fixprotocol._2020.orchestra.repository.FieldType;
+import io.fixprotocol._2020.orchestra.repository.FlowType;
+import io.fixprotocol._2020.orchestra.repository.GroupType;
+import io.fixprotocol._2020.orchestra.repository.MessageType;
+import io.fixprotocol.orchestra.event.EventListener;
+
+/**
+ * A reference repository whose elements are unmarshalled when they are first found
+ *
+ * A pre-scan of the XML records the name, id, scenario and byte extent of each actor, flow,
+ * codeset, component, datatype, field, group and message without creating any objects of the
+ * model. A find method unmarshals only the element found, and keeps it in a cache of bounded size,
+ * so time and heap scale with the elements that are used rather than with the size of the
+ * reference. An element evicted from the cache is unmarshalled again when it is next found, so
+ * callers should copy rather than modify the elements found.
+ *
+ * The pre-scan reads tags directly because a StAX reader does not report the byte offset of an
+ * element. It assumes well-formed XML in an ASCII-compatible encoding; an element is validated only
+ * when it is unmarshalled through StAX.
+ *
+ * Only find methods are supported. A lazy repository cannot be added to or marshalled.
+ *
+ * @author Don Mendelson
+ *
+ */
+final class LazyRepositoryAdapter extends RepositoryAdapter {
+
+  /**
+   * Position and keys of an element in the XML
+   */
+  private static final class Extent {
+    int end;
+    final BigInteger id;
+    final String name;
+    // start tag of a wrapper element that declares the namespaces in scope
+    final byte[] open;
+    final String scenario;
+    final int start;
+
+    Extent(int start, String name, BigInteger id, String scenario, byte[] open) {
+      this.start = start;
+      this.name = name;
+      this.id = id;
+      this.scenario = scenario;
+      this.open = open;
+    }
+
+    BigInteger getId() {
+      return id;
+    }
+
+    String getName() {
+      return name;
+    }
+
+    String getScenario() {
+      return scenario;
+    }
+  }
+
+  private enum Kind {
+    ACTOR("actors", "actor", ActorType.class, false, false),
+    CODESET("codeSets", "codeSet", CodeSetType.class, false, true),
+    COMPONENT("components", "component", ComponentType.class, true, true),
+    DATATYPE("datatypes", "datatype", Datatype.class, false, false),
+    FIELD("fields", "field", FieldType.class, true, true),
+    FLOW("actors", "flow", FlowType.class, false, false),
+    GROUP("groups", "group", GroupType.class, true, true),
+    MESSAGE("messages", "message", MessageType.class, false, true);
+
+    private static final Map<String, Kind> byPath = new HashMap<>();
+
+    static {
+      for (final Kind kind : values()) {
+        byPath.put(kind.section + "/" + kind.element, kind);
+      }
+    }
+
+    static Kind of(String section, String element) {
+      return byPath.get(section + "/" + element);
+    }
+
+    final String element;
+    final boolean hasId;
+    final boolean hasScenario;
+    final String section;
+    final Class<?> type;
+
+    Kind(String section, String element, Class<?> type, boolean hasId, boolean hasScenario) {
+      this.section = section;
+      this.element = element;
+      this.type = type;
+      this.hasId = hasId;
+      this.hasScenario = hasScenario;
+    }
+  }
+
+  /**
+   * A start tag, with attributes only if they were requested
+   */
+  private static final class StartTag {
+    final Map<String, String> attributes = new HashMap<>();
+    boolean isEmpty;
+    String localName;
+    // raw bytes of namespace declarations by attribute name
+    final Map<String, byte[]> namespaces = new LinkedHashMap<>();
+    // position after '>'
+    int next;
+  }
+
+  /**
+   * Default number of unmarshalled elements to keep
+   */
+  static final int DEFAULT_CACHE_CAPACITY = 1024;
+
+  private static final byte[] CDATA_END = "]]>".getBytes(StandardCharsets.US_ASCII);
+  private static final byte[] CDATA_START = "<![CDATA[".getBytes(StandardCharsets.US_ASCII);
+  private static final byte[] CLOSE = "</fragment>".getBytes(StandardCharsets.US_ASCII);
+  private static final byte[] COMMENT_END = "-->".getBytes(StandardCharsets.US_ASCII);
+  private static final byte[] COMMENT_START = "<!--".getBytes(StandardCharsets.US_ASCII);
+  private static final String DEFAULT_SCENARIO = "base";
+  private static final byte[] PI_END = "?>".getBytes(StandardCharsets.US_ASCII);
+  private static final byte[] PI_START = "<?".getBytes(StandardCharsets.US_ASCII);
+  private static final byte[] UTF8_BOM = {(byte) 0xef, (byte) 0xbb, (byte) 0xbf};
+
+  private static int indexOf(byte[] bytes, byte target, int from) {
+    for (int i = from; i < bytes.length; i++) {
+      if (bytes[i] == target) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private static int indexOf(byte[] bytes, byte[] target, int from) {
+    final int last = bytes.length - target.length;
+    outer: for (int i = from; i <= last; i++) {
+      for (int j = 0; j < target.length; j++) {
+        if (bytes[i + j] != target[j]) {
+          continue outer;
+        }
+      }
+      return i;
+    }
+    return -1;
+  }
+
+  private static boolean isNameEnd(byte b) {
+    return b == '>' || b == '/' || b == '=' || isWhitespace(b);
+  }
+
+  private static boolean isWhitespace(byte b) {
+    return b == ' ' || b == '\n' || b == '\r' || b == '\t';
+  }
+
+  private static boolean startsWith(byte[] bytes, int pos, byte[] prefix) {
+    if (pos + prefix.length > bytes.length) {
+      return false;
+    }
+    for (int i = 0; i < prefix.length; i++) {
+      if (bytes[pos + i] != prefix[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static String unescape(String value) {
+    int amp = value.indexOf('&');
+    if (amp < 0) {
+      return value;
+    }
+    final StringBuilder sb = new StringBuilder(value.length());
+    int from = 0;
+    while (amp >= 0) {
+      final int semi = value.indexOf(';', amp);
+      if (semi < 0) {
+        break;
+      }
+      sb.append(value, from, amp);
+      final String entity = value.substring(amp + 1, semi);
+      switch (entity) {
+        case "amp":
+          sb.append('&');
+          break;
+        case "lt":
+          sb.append('<');
+          break;
+        case "gt":
+          sb.append('>');
+          break;
+        case "quot":
+          sb.append('"');
+          break;
+        case "apos":
+          sb.append('\'');
+          break;
+        default:
+          if (entity.startsWith("#x")) {
+            sb.appendCodePoint(Integer.parseInt(entity.substring(2), 16));
+          } else if (entity.startsWith("#")) {
+            sb.appendCodePoint(Integer.parseInt(entity.substring(1)));
+          } else {
+            sb.append(value, amp, semi + 1);
+          }
+      }
+      from = semi + 1;
+      amp = value.indexOf('&', from);
+    }
+    sb.append(value, from, value.length());
+    return sb.toString();
+  }
+
+  private final Map<Extent, Object> cache;
+  private Charset charset = StandardCharsets.UTF_8;
+  private final EventListener eventLogger;
+  private final Map<Kind, ElementIndex<Extent>> indexes = new EnumMap<>(Kind.class);
+  private final XMLInputFactory inputFactory;
+  private Unmarshaller unmarshaller = null;
+  private byte[] xml = new byte[0];
+
+  /**
+   * @param eventLogger reports elements that cannot be unmarshalled
+   * @param cacheCapacity maximum number of unmarshalled elements to keep
+   */
+  LazyRepositoryAdapter(EventListener eventLogger, int cacheCapacity) {
+    super(eventLogger);
+    this.eventLogger = eventLogger;
+    this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Extent, Object> eldest) {
+        return size() > cacheCapacity;
+      }
+    };
+    for (final Kind kind : Kind.values()) {
+      indexes.put(kind,
+          new ElementIndex<>(Extent::getName, Extent::getId, Extent::getScenario));
+    }
+    inputFactory = XMLInputFactory.newFactory();
+    inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+  }
+
+  @Override
+  ActorType findActorByName(String name) {
+    return findByName(Kind.ACTOR, name, null);
+  }
+
+  @Override
+  CodeSetType findCodesetByName(String name, String scenario) {
+    return findByName(Kind.CODESET, name, scenario);
+  }
+
+  @Override
+  ComponentType findComponentByName(String name, String scenario) {
+    return findByName(Kind.COMPONENT, name, scenario);
+  }
+
+  @Override
+  ComponentType findComponentByTag(int tag, String scenario) {
+    return findById(Kind.COMPONENT, tag, scenario);
+  }
+
+  @Override
+  Datatype findDatatypeByName(String name) {
+    return findByName(Kind.DATATYPE, name, null);
+  }
+
+  @Override
+  FieldType findFieldByName(String name, String scenario) {
+    return findByName(Kind.FIELD, name, scenario);
+  }
+
+  @Override
+  FieldType findFieldByTag(int tag, String scenario) {
+    return findById(Kind.FIELD, tag, scenario);
+  }
+
+  @Override
+  FlowType findFlowByName(String name) {
+    return findByName(Kind.FLOW, name, null);
+  }
+
+  @Override
+  GroupType findGroupByName(String name, String scenario) {
+    return findByName(Kind.GROUP, name, scenario);
+  }
+
+  @Override
+  GroupType findGroupByTag(int tag, String scenario) {
+    return findById(Kind.GROUP, tag, scenario);
+  }
+
+  @Override
+  MessageType findMessageByName(String name, String scenario) {
+    return findByName(Kind.MESSAGE, name, scenario);
+  }
+
+  /**
+   * Number of unmarshalled elements currently kept
+   */
+  int getCacheSize() {
+    return cache.size();
+  }
+
+  /**
+   * Index the elements of an Orchestra file without unmarshalling them
+   *
+   * @param xml contents of an Orchestra file, retained until elements are found
+   * @throws XMLStreamException if the XML is not well-formed or its encoding is not supported
+   */
+  void scan(byte[] xml) throws XMLStreamException {
+    this.xml = xml;
+    cache.clear();
+    for (final ElementIndex<Extent> index : indexes.values()) {
+      index.clear();
+    }
+    int pos = prolog();
+
+    final Map<String, byte[]> namespaces = new LinkedHashMap<>();
+    byte[] open = null;
+    String section = null;
+    Extent current = null;
+    int depth = 0;
+    while ((pos = indexOf(xml, (byte) '<', pos)) >= 0) {
+      if (startsWith(xml, pos, COMMENT_START)) {
+        pos = skipPast(pos, COMMENT_END);
+      } else if (startsWith(xml, pos, CDATA_START)) {
+        pos = skipPast(pos, CDATA_END);
+      } else if (startsWith(xml, pos, PI_START)) {
+        pos = skipPast(pos, PI_END);
+      } else if (pos + 1 < xml.length && xml[pos + 1] == '!') {
+        pos = skipDeclaration(pos);
+      } else if (pos + 1 < xml.length && xml[pos + 1] == '/') {
+        pos = endOfTag(pos) + 1;
+        depth--;
+        if (depth < 0) {
+          throw new XMLStreamException("Unexpected end tag at offset " + pos);
+        } else if (depth == 2 && current != null) {
+          current.end = pos;
+          current = null;
+        }
+      } else {
+        depth++;
+        final StartTag tag = parseStartTag(pos, depth <= 3);
+        if (depth == 1) {
+          namespaces.putAll(tag.namespaces);
+        } else if (depth == 2) {
+          section = tag.localName;
+          final Map<String, byte[]> inScope = new LinkedHashMap<>(namespaces);
+          inScope.putAll(tag.namespaces);
+          open = wrapper(inScope);
+        } else if (depth == 3) {
+          final Kind kind = Kind.of(section, tag.localName);
+          if (kind != null) {
+            current = index(kind, tag, pos, open);
+          }
+        }
+        if (tag.isEmpty) {
+          depth--;
+          if (depth == 2 && current != null) {
+            current.end = tag.next;
+            current = null;
+          }
+        }
+        pos = tag.next;
+      }
+    }
+    if (depth != 0) {
+      throw new XMLStreamException("Unexpected end of document");
+    }
+  }
+
+  private int endOfTag(int pos) throws XMLStreamException {
+    byte quote = 0;
+    for (int i = pos + 1; i < xml.length; i++) {
+      final byte b = xml[i];
+      if (quote != 0) {
+        if (b == quote) {
+          quote = 0;
+        }
+      } else if (b == '"' || b == '\'') {
+        quote = b;
+      } else if (b == '>') {
+        return i;
+      }
+    }
+    throw new XMLStreamException("Unterminated tag at offset " + pos);
+  }
+
+  @SuppressWarnings("unchecked")
+  private <T> T findById(Kind kind, int id, String scenario) {
+    return (T) load(kind, indexes.get(kind).findById(id, scenario));
+  }
+
+  @SuppressWarnings("unchecked")
+  private <T> T findByName(Kind kind, String name, String scenario) {
+    return (T) load(kind, indexes.get(kind).findByName(name, scenario));
+  }
+
+  private Extent index(Kind kind, StartTag tag, int pos, byte[] open) {
+    BigInteger id = null;
+    if (kind.hasId) {
+      final String value = tag.attributes.get("id");
+      if (value != null) {
+        try {
+          id = new BigInteger(value.trim());
+        } catch (final NumberFormatException e) {
+          // not found by id, as if it failed to unmarshal
+        }
+      }
+    }
+    String scenario = null;
+    if (kind.hasScenario) {
+      scenario = tag.attributes.getOrDefault("scenario", DEFAULT_SCENARIO);
+    }
+    final Extent extent = new Extent(pos, tag.attributes.get("name"), id, scenario, open);
+    indexes.get(kind).add(extent);
+    return extent;
+  }
+
+  private Object load(Kind kind, Extent extent) {
+    if (extent == null) {
+      return null;
+    }
+    Object element = cache.get(extent);
+    if (element == null) {
+      try {
+        element = unmarshal(extent, kind.type);
+        cache.put(extent, element);
+      } catch (final JAXBException | XMLStreamException e) {
+        eventLogger.error(
+            "RepositoryAdapter failed to read reference element; name={0} offset={1, number, ##0}",
+            extent.name, extent.start);
+      }
+    }
+    return element;
+  }
+
+  private StartTag parseStartTag(int pos, boolean withAttributes) throws XMLStreamException {
+    final StartTag tag = new StartTag();
+    final int gt = endOfTag(pos);
+    tag.next = gt + 1;
+    tag.isEmpty = xml[gt - 1] == '/';
+    int i = pos + 1;
+    final int nameStart = i;
+    while (i < gt && !isNameEnd(xml[i])) {
+      i++;
+    }
+    final String qname = new String(xml, nameStart, i - nameStart, charset);
+    tag.localName = qname.substring(qname.indexOf(':') + 1);
+    if (!withAttributes) {
+      return tag;
+    }
+    for (;;) {
+      while (i < gt && isWhitespace(xml[i])) {
+        i++;
+      }
+      if (i >= gt || xml[i] == '/') {
+        return tag;
+      }
+      final int attributeStart = i;
+      while (i < gt && !isNameEnd(xml[i])) {
+        i++;
+      }
+      final String name = new String(xml, attributeStart, i - attributeStart, charset);
+      while (i < gt && xml[i] != '"' && xml[i] != '\'') {
+        i++;
+      }
+      if (i >= gt) {
+        throw new XMLStreamException("Malformed attribute at offset " + attributeStart);
+      }
+      final byte quote = xml[i];
+      final int valueStart = ++i;
+      while (xml[i] != quote) {
+        i++;
+      }
+      final int valueEnd = i++;
+      if (name.equals("xmlns") || name.startsWith("xmlns:")) {
+        final byte[] declaration = new byte[i - attributeStart];
+        System.arraycopy(xml, attributeStart, declaration, 0, declaration.length);
+        tag.namespaces.put(name, declaration);
+      } else {
+        final String value = new String(xml, valueStart, valueEnd - valueStart, charset);
+        tag.attributes.put(name.substring(name.indexOf(':') + 1), unescape(value));
+      }
+    }
+  }
+
+  /**
+   * Determine the encoding from a byte order mark or XML declaration
+   *
+   * @return position after a byte order mark
+   */
+  private int prolog() throws XMLStreamException {
+    if (startsWith(xml, 0, UTF8_BOM)) {
+      charset = StandardCharsets.UTF_8;
+      return UTF8_BOM.length;
+    }
+    // UTF-16 and UTF-32 require a byte order mark if not declared
+    if (xml.length >= 2 && (xml[0] == 0 || xml[1] == 0 || (xml[0] & 0xfe) == 0xfe)) {
+      throw new XMLStreamException("Lazy reference requires an ASCII-compatible encoding");
+    }
+    charset = StandardCharsets.UTF_8;
+    if (startsWith(xml, 0, PI_START)) {
+      final int end = indexOf(xml, PI_END, 0);
+      if (end > 0) {
+        final String declaration = new String(xml, 0, end, StandardCharsets.US_ASCII);
+        final int encodingPos = declaration.indexOf("encoding");
+        if (encodingPos > 0) {
+          final String rest = declaration.substring(encodingPos);
+          final int quote = Math.max(rest.indexOf('"'), rest.indexOf('\''));
+          final int endQuote = rest.indexOf(rest.charAt(quote), quote + 1);
+          final String name = rest.substring(quote + 1, endQuote);
+          try {
+            charset = Charset.forName(name);
+          } catch (final IllegalArgumentException e) {
+            throw new XMLStreamException("Unsupported encoding " + name);
+          }
+          if (!Arrays.equals("<".getBytes(charset), new byte[] {'<'})) {
+            throw new XMLStreamException("Lazy reference requires an ASCII-compatible encoding");
+          }
+        }
+      }
+    }
+    return 0;
+  }
+
+  private int skipDeclaration(int pos) throws XMLStreamException {
+    // a document type declaration may have an internal subset in brackets
+    int brackets = 0;
+    for (int i = pos + 2; i < xml.length; i++) {
+      final byte b = xml[i];
+      if (b == '[') {
+        brackets++;
+      } else if (b == ']') {
+        brackets--;
+      } else if (b == '>' && brackets == 0) {
+        return i + 1;
+      }
+    }
+    throw new XMLStreamException("Unterminated declaration at offset " + pos);
+  }
+
+  private int skipPast(int pos, byte[] terminator) throws XMLStreamException {
+    final int end = indexOf(xml, terminator, pos);
+    if (end < 0) {
+      throw new XMLStreamException("Unterminated markup at offset " + pos);
+    }
+    return end + terminator.length;
+  }
+
+  private Object unmarshal(Extent extent, Class<?> type) throws JAXBException, XMLStreamException {
+    if (unmarshaller == null) {
+      unmarshaller = jaxbContext().createUnmarshaller();
+    }
+    final InputStream in = new SequenceInputStream(new ByteArrayInputStream(extent.open),
+        new SequenceInputStream(
+            new ByteArrayInputStream(xml, extent.start, extent.end - extent.start),
+            new ByteArrayInputStream(CLOSE)));
+    final XMLStreamReader reader = inputFactory.createXMLStreamReader(in, charset.name());
+    try {
+      // wrapper, then element
+      reader.nextTag();
+      reader.nextTag();
+      return unmarshaller.unmarshal(reader, type).getValue();
+    } finally {
+      reader.close();
+    }
+  }
+
+  private byte[] wrapper(Map<String, byte[]> namespaces) {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    out.writeBytes("<fragment".getBytes(StandardCharsets.US_ASCII));
+    for (final byte[] declaration : namespaces.values()) {
+      out.write(' ');
+      out.writeBytes(declaration);
+    }
+    out.write('>');
+    return out.toByteArray();
+  }
+
+}
@@ -41,6 +41,7 @@ import org.apache.commons.cli.Options;
 import org.apache.commons.cli.ParseException;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import io.fixprotocol.md.event.ParseStatistics;
 
 /**
  * Translates markdown to an Orchestra file
@@ -54,7 +55,9 @@ public class Md2Orchestra {
     public String eventFilename;
     public String paragraphDelimiter = RepositoryBuilder.DEFAULT_PARAGRAPH_DELIMITER;
     private List<String> inputFilePatterns = new ArrayList<>();
+    private boolean isLazyReference = false;
     private String outputFilename;
+    private String referenceCacheDirectory;
     private String referenceFile;
 
 
@@ -78,6 +81,19 @@ public class Md2Orchestra {
       return this;
     }
 
+    /**
+     * Unmarshal elements of the reference file only when they are used
+     *
+     * A reference snapshot cache is not used in lazy mode.
+     *
+     * @param isLazyReference {@code true} for lazy mode
+     * @return this Builder
+     */
+    public Builder lazyReference(boolean isLazyReference) {
+      this.isLazyReference = isLazyReference;
+      return this;
+    }
+
     public Builder outputFile(String outputFilename) {
       this.outputFilename = outputFilename;
       return this;
@@ -94,6 +110,17 @@ public class Md2Orchestra {
       return this;
     }
 
+    /**
+     * Directory of reference snapshots, so that an unchanged reference file is not parsed again
+     *
+     * @param referenceCacheDirectory path of a directory, created if it does not exist
+     * @return this Builder
+     */
+    public Builder referenceCacheDirectory(String referenceCacheDirectory) {
+      this.referenceCacheDirectory = referenceCacheDirectory;
+      return this;
+    }
+
     public Builder referenceFile(String referenceFile) {
       this.referenceFile = referenceFile;
       return this;
@@ -114,7 +141,9 @@ public class Md2Orchestra {
    * <pre>
   usage: Md2Orchestra [options] &lt;input-file&gt;...
   -?,--help              display usage
+     --cache &lt;arg&gt;       directory of reference snapshot cache
   -e,--eventlog &lt;arg&gt;    path of JSON event file
+     --lazy              load reference elements on demand
   -o,--output &lt;arg&gt;      path of output Orchestra file (required)
      --paragraph &lt;arg&gt;   paragraph delimiter for tables
   -r,--reference &lt;arg&gt;   path of reference Orchestra file
@@ -145,6 +174,10 @@ public class Md2Orchestra {
         Option.builder("?").numberOfArgs(0).desc("display usage").longOpt("help").build());
     options.addOption(Option.builder().desc("paragraph delimiter for tables").longOpt("paragraph")
         .numberOfArgs(1).build());
+    options.addOption(Option.builder().desc("directory of reference snapshot cache")
+        .longOpt("cache").numberOfArgs(1).build());
+    options.addOption(Option.builder().desc("load reference elements on demand").longOpt("lazy")
+        .numberOfArgs(0).build());
 
     final DefaultParser parser = new DefaultParser();
     CommandLine cmd;
@@ -166,6 +199,14 @@ public class Md2Orchestra {
         builder.referenceFile = cmd.getOptionValue("r");
       }
 
+      if (cmd.hasOption("cache")) {
+        builder.referenceCacheDirectory(cmd.getOptionValue("cache"));
+      }
+
+      if (cmd.hasOption("lazy")) {
+        builder.lazyReference(true);
+      }
+
       if (cmd.hasOption("e")) {
         builder.eventFilename = cmd.getOptionValue("e");
       }
@@ -188,15 +229,19 @@ public class Md2Orchestra {
 
   private final String eventFilename;
   private final List<String> inputFilePatterns;
+  private final boolean isLazyReference;
   private final Logger logger = LogManager.getLogger(getClass());
   private final String outputFilename;
   private final String paragraphDelimiter;
+  private final String referenceCacheDirectory;
   private final String referenceFilename;
 
   private Md2Orchestra(Builder builder) {
     this.inputFilePatterns = builder.inputFilePatterns;
     this.outputFilename = builder.outputFilename;
     this.referenceFilename = builder.referenceFile;
+    this.referenceCacheDirectory = builder.referenceCacheDirectory;
+    this.isLazyReference = builder.isLazyReference;
     this.eventFilename = builder.eventFilename;
     this.paragraphDelimiter = builder.paragraphDelimiter;
   }
@@ -255,8 +300,22 @@ public class Md2Orchestra {
       final FileSystem fileSystem = FileSystems.getDefault();
       final String separator = fileSystem.getSeparator();
 
-      final RepositoryBuilder outputRepositoryBuilder =
-          RepositoryBuilder.instance(referenceStream, jsonOutputStream, paragraphDelimiter);
+      final RepositoryBuilder outputRepositoryBuilder;
+      try {
+        if (isLazyReference) {
+          outputRepositoryBuilder = RepositoryBuilder.lazyInstance(referenceStream,
+              jsonOutputStream, paragraphDelimiter);
+        } else {
+          outputRepositoryBuilder = RepositoryBuilder.instance(referenceStream, jsonOutputStream,
+              paragraphDelimiter,
+              referenceCacheDirectory != null ? Path.of(referenceCacheDirectory) : null);
+        }
+      } finally {
+        // reference is fully read when the builder is created
+        if (referenceStream != null) {
+          referenceStream.close();
+        }
+      }
       for (final String inputFilePattern : inputFilePatterns) {
         int lastSeparatorPos = inputFilePattern.lastIndexOf(separator);
         // Handle Windows case for portability of '/' separator 
@@ -313,8 +372,8 @@ public class Md2Orchestra {
               private void appendInput(Path filePath, RepositoryBuilder outputRepositoryBuilder)
                   throws IOException {
                 logger.info("Md2Orchestra opening file {}", filePath.toString());
-                final InputStream inputStream = new FileInputStream(filePath.toFile());
-                outputRepositoryBuilder.appendInput(inputStream);
+                final ParseStatistics statistics = outputRepositoryBuilder.appendInput(filePath);
+                logger.info("Md2Orchestra parsed file={} {}", filePath, statistics);
               }
             });
       }
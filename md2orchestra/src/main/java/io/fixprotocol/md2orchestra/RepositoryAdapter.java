@@ -15,8 +15,15 @@ package io.fixprotocol.md2orchestra;
 
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.file.Path;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
 import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBElement;
 import javax.xml.bind.JAXBException;
@@ -61,8 +68,137 @@ import io.fixprotocol.orchestra.event.EventListener;
  */
 class RepositoryAdapter {
 
+  /**
+   * Finds elements of one type by (name, scenario) and by (id, scenario) in constant time
+   *
+   * As with a scan of the element list, the first element added with a key is found. Elements must
+   * not change their keys once added.
+   */
+  static final class ElementIndex<T> {
+    private final Map<IdKey, T> byId = new HashMap<>();
+    private final Map<NameKey, T> byName = new HashMap<>();
+    private final Function<T, BigInteger> idOf;
+    private final Function<T, String> nameOf;
+    private final Function<T, String> scenarioOf;
+
+    /**
+     * @param nameOf name of an element
+     * @param idOf id of an element, or {@code null} if elements are not found by id
+     * @param scenarioOf scenario of an element, or {@code null} if elements have no scenario
+     */
+    ElementIndex(Function<T, String> nameOf, Function<T, BigInteger> idOf,
+        Function<T, String> scenarioOf) {
+      this.nameOf = nameOf;
+      this.idOf = idOf;
+      this.scenarioOf = scenarioOf;
+    }
+
+    void add(T element) {
+      final String scenario = scenarioOf != null ? scenarioOf.apply(element) : null;
+      final String name = nameOf.apply(element);
+      if (name != null) {
+        byName.putIfAbsent(new NameKey(name, scenario), element);
+      }
+      if (idOf != null) {
+        final BigInteger id = idOf.apply(element);
+        if (id != null) {
+          byId.putIfAbsent(new IdKey(id.intValue(), scenario), element);
+        }
+      }
+    }
+
+    void addAll(List<? extends T> elements) {
+      for (final T element : elements) {
+        add(element);
+      }
+    }
+
+    void clear() {
+      byId.clear();
+      byName.clear();
+    }
+
+    T findById(int id, String scenario) {
+      return byId.get(new IdKey(id, scenario));
+    }
+
+    T findByName(String name, String scenario) {
+      return name != null ? byName.get(new NameKey(name, scenario)) : null;
+    }
+  }
+
+  private static final class IdKey {
+    private final int id;
+    private final String scenario;
+
+    IdKey(int id, String scenario) {
+      this.id = id;
+      this.scenario = scenario;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof IdKey)) {
+        return false;
+      }
+      final IdKey other = (IdKey) obj;
+      return id == other.id && Objects.equals(scenario, other.scenario);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * id + Objects.hashCode(scenario);
+    }
+  }
+
+  private static final class NameKey {
+    private final String name;
+    private final String scenario;
+
+    NameKey(String name, String scenario) {
+      this.name = name;
+      this.scenario = scenario;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof NameKey)) {
+        return false;
+      }
+      final NameKey other = (NameKey) obj;
+      return name.equals(other.name) && Objects.equals(scenario, other.scenario);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * name.hashCode() + Objects.hashCode(scenario);
+    }
+  }
+
+  private final ElementIndex<ActorType> actorIndex =
+      new ElementIndex<>(ActorType::getName, null, null);
+  private final ElementIndex<CodeSetType> codesetIndex =
+      new ElementIndex<>(CodeSetType::getName, null, CodeSetType::getScenario);
+  private final ElementIndex<ComponentType> componentIndex =
+      new ElementIndex<>(ComponentType::getName, ComponentType::getId, ComponentType::getScenario);
+  private final ElementIndex<Datatype> datatypeIndex =
+      new ElementIndex<>(Datatype::getName, null, null);
   private final EventListener eventLogger;
-  
+  private final ElementIndex<FieldType> fieldIndex =
+      new ElementIndex<>(FieldType::getName, FieldType::getId, FieldType::getScenario);
+  private final ElementIndex<FlowType> flowIndex =
+      new ElementIndex<>(FlowType::getName, null, null);
+  private final ElementIndex<GroupType> groupIndex =
+      new ElementIndex<>(GroupType::getName, GroupType::getId, GroupType::getScenario);
+  private final ElementIndex<MessageType> messageIndex =
+      new ElementIndex<>(MessageType::getName, null, MessageType::getScenario);
+
   /**
    * Provide deterministic XML namespace prefixes
    *
@@ -99,10 +235,20 @@ class RepositoryAdapter {
       "publisher", "references", "relation", "replaces", "requires", "rights", "rightsHolder",
       "source", "spatial", "subject", "tableOfContents", "temporal", "title", "type", "valid"};
 
+  // costly to create, and thread-safe, so shared by all instances
+  private static JAXBContext jaxbContext = null;
+
   static String substitute(String markdown, String token, String replacement) {
     return markdown.replace(token, replacement);
   }
 
+  static synchronized JAXBContext jaxbContext() throws JAXBException {
+    if (jaxbContext == null) {
+      jaxbContext = JAXBContext.newInstance(Repository.class);
+    }
+    return jaxbContext;
+  }
+
   private Repository repository;
 
   void addActor(final ActorType actor) {
@@ -112,6 +258,7 @@ class RepositoryAdapter {
       repository.setActors(actors);
     }
     actors.getActorOrFlow().add(actor);
+    actorIndex.add(actor);
   }
 
   void addAppinfo(String markdown, String purpose, Annotation annotation) {
@@ -133,14 +280,17 @@ class RepositoryAdapter {
 
   void addCodeset(final CodeSetType codeset) {
     repository.getCodeSets().getCodeSet().add(codeset);
+    codesetIndex.add(codeset);
   }
 
   void addComponent(final ComponentType component) {
     repository.getComponents().getComponent().add(component);
+    componentIndex.add(component);
   }
 
   void addDatatype(io.fixprotocol._2020.orchestra.repository.Datatype datatype) {
     repository.getDatatypes().getDatatype().add(datatype);
+    datatypeIndex.add(datatype);
   }
 
   /**
@@ -185,6 +335,7 @@ class RepositoryAdapter {
 
   void addField(FieldType field) {
     repository.getFields().getField().add(field);
+    fieldIndex.add(field);
   }
 
   void addFlow(final FlowType flow) {
@@ -194,43 +345,51 @@ class RepositoryAdapter {
       repository.setActors(actors);
     }
     actors.getActorOrFlow().add(flow);
+    flowIndex.add(flow);
   }
 
   void addGroup(final GroupType group) {
     repository.getGroups().getGroup().add(group);
+    groupIndex.add(group);
   }
 
   void addMessage(MessageType message) {
     repository.getMessages().getMessage().add(message);
+    messageIndex.add(message);
   }
 
   CodeSetType copyCodeset(CodeSetType source) {
     final CodeSetType codeset = (CodeSetType) source.clone();
     repository.getCodeSets().getCodeSet().add(codeset);
+    codesetIndex.add(codeset);
     return codeset;
   }
 
   ComponentType copyComponent(ComponentType source) {
     final ComponentType component = (ComponentType) source.clone();
     repository.getComponents().getComponent().add(component);
+    componentIndex.add(component);
     return component;
   }
 
   Datatype copyDatatype(Datatype source) {
     final Datatype datatype = (Datatype) source.clone();
     repository.getDatatypes().getDatatype().add(datatype);
+    datatypeIndex.add(datatype);
     return datatype;
   }
 
   FieldType copyField(FieldType source) {
     final FieldType field = (FieldType) source.clone();
     repository.getFields().getField().add(field);
+    fieldIndex.add(field);
     return field;
   }
 
   GroupType copyGroup(GroupType source) {
     final GroupType group = (GroupType) source.clone();
     repository.getGroups().getGroup().add(group);
+    groupIndex.add(group);
     return group;
   }
 
@@ -243,131 +402,53 @@ class RepositoryAdapter {
     repository.setMessages(new Messages());
     repository.setComponents(new Components());
     repository.setGroups(new Groups());
+    index();
   }
 
   ActorType findActorByName(String name) {
-    final Actors actors = repository.getActors();
-    if (actors != null) {
-      final List<Object> objects = actors.getActorOrFlow();
-      for (final Object object : objects) {
-        if (object instanceof ActorType) {
-          final ActorType actor = (ActorType) object;
-          if (actor.getName().equals(name)) {
-            return actor;
-          }
-        }
-      }
-    }
-    return null;
+    return actorIndex.findByName(name, null);
   }
 
   CodeSetType findCodesetByName(String name, String scenario) {
-    final List<CodeSetType> codesets = repository.getCodeSets().getCodeSet();
-    for (final CodeSetType codeset : codesets) {
-      if (codeset.getName().equals(name) && codeset.getScenario().equals(scenario)) {
-        return codeset;
-      }
-    }
-    return null;
+    return codesetIndex.findByName(name, scenario);
   }
 
   ComponentType findComponentByName(String name, String scenario) {
-    final List<ComponentType> components = repository.getComponents().getComponent();
-    for (final ComponentType component : components) {
-      if (component.getName().equals(name) && component.getScenario().equals(scenario)) {
-        return component;
-      }
-    }
-    return null;
+    return componentIndex.findByName(name, scenario);
   }
 
   ComponentType findComponentByTag(int tag, String scenario) {
-    final List<ComponentType> components = repository.getComponents().getComponent();
-    for (final ComponentType component : components) {
-      if (component.getId().intValue() == tag && component.getScenario().equals(scenario)) {
-        return component;
-      }
-    }
-    return null;
+    return componentIndex.findById(tag, scenario);
   }
 
   io.fixprotocol._2020.orchestra.repository.Datatype findDatatypeByName(String name) {
-    final List<io.fixprotocol._2020.orchestra.repository.Datatype> datatypes =
-        repository.getDatatypes().getDatatype();
-    for (final io.fixprotocol._2020.orchestra.repository.Datatype datatype : datatypes) {
-      if (datatype.getName().equals(name)) {
-        return datatype;
-      }
-    }
-    return null;
+    return datatypeIndex.findByName(name, null);
   }
 
   FieldType findFieldByName(String name, String scenario) {
-    final List<FieldType> fields = repository.getFields().getField();
-    for (final FieldType field : fields) {
-      if (field.getName().equals(name) && field.getScenario().equals(scenario)) {
-        return field;
-      }
-    }
-    return null;
+    return fieldIndex.findByName(name, scenario);
   }
 
   FieldType findFieldByTag(int tag, String scenario) {
-    final List<FieldType> fields = repository.getFields().getField();
-    for (final FieldType field : fields) {
-      if (field.getId().intValue() == tag && field.getScenario().equals(scenario)) {
-        return field;
-      }
-    }
-    return null;
+    return fieldIndex.findById(tag, scenario);
   }
 
 
   FlowType findFlowByName(String name) {
-    final Actors actors = repository.getActors();
-    if (actors != null) {
-      final List<Object> objects = actors.getActorOrFlow();
-      for (final Object object : objects) {
-        if (object instanceof FlowType) {
-          final FlowType flow = (FlowType) object;
-          if (flow.getName().equals(name)) {
-            return flow;
-          }
-        }
-      }
-    }
-    return null;
+    return flowIndex.findByName(name, null);
   }
 
 
   GroupType findGroupByName(String name, String scenario) {
-    final List<GroupType> components = repository.getGroups().getGroup();
-    for (final GroupType component : components) {
-      if (component.getName().equals(name) && component.getScenario().equals(scenario)) {
-        return component;
-      }
-    }
-    return null;
+    return groupIndex.findByName(name, scenario);
   }
 
   GroupType findGroupByTag(int tag, String scenario) {
-    final List<GroupType> components = repository.getGroups().getGroup();
-    for (final GroupType component : components) {
-      if (component.getId().intValue() == tag && component.getScenario().equals(scenario)) {
-        return component;
-      }
-    }
-    return null;
+    return groupIndex.findById(tag, scenario);
   }
 
   MessageType findMessageByName(String name, String scenario) {
-    final List<MessageType> messages = repository.getMessages().getMessage();
-    for (final MessageType message : messages) {
-      if (name.equals(message.getName()) && message.getScenario().equals(scenario)) {
-        return message;
-      }
-    }
-    return null;
+    return messageIndex.findByName(name, scenario);
   }
 
   StateMachineType findStatemachineByName(ActorType actor, String name) {
@@ -384,8 +465,7 @@ class RepositoryAdapter {
   }
 
   void marshal(OutputStream os) throws JAXBException {
-    final JAXBContext jaxbContext = JAXBContext.newInstance(Repository.class);
-    final Marshaller jaxbMarshaller = jaxbContext.createMarshaller();
+    final Marshaller jaxbMarshaller = jaxbContext().createMarshaller();
     jaxbMarshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);
     // warning: this is implementation specific !!!
     try {
@@ -425,13 +505,76 @@ class RepositoryAdapter {
     this.eventLogger = eventLogger;
   }
 
+  /**
+   * Read a repository from a snapshot written by {@link #writeSnapshot(Path)}
+   *
+   * @param path snapshot file
+   * @throws IOException if the snapshot cannot be read, or was not written for this Orchestra model
+   */
+  void readSnapshot(Path path) throws IOException {
+    this.repository = RepositorySnapshot.read(path);
+    index();
+  }
+
   void unmarshal(InputStream is) throws JAXBException {
-    final JAXBContext jaxbContext = JAXBContext.newInstance(Repository.class);
-    final Unmarshaller jaxbUnmarshaller = jaxbContext.createUnmarshaller();
+    final Unmarshaller jaxbUnmarshaller = jaxbContext().createUnmarshaller();
     // this.repository = (Repository) jaxbUnmarshaller.unmarshal(is);
     final Object obj = jaxbUnmarshaller.unmarshal(is);
     if (obj instanceof Repository) {
       this.repository = (Repository) obj;
+      index();
+    }
+  }
+
+  /**
+   * Write the repository as a compact binary snapshot
+   *
+   * @param path snapshot file
+   * @throws IOException if the snapshot cannot be written
+   */
+  void writeSnapshot(Path path) throws IOException {
+    RepositorySnapshot.write(repository, path);
+  }
+
+  /**
+   * Rebuild indexes from the elements of the repository
+   */
+  private void index() {
+    actorIndex.clear();
+    codesetIndex.clear();
+    componentIndex.clear();
+    datatypeIndex.clear();
+    fieldIndex.clear();
+    flowIndex.clear();
+    groupIndex.clear();
+    messageIndex.clear();
+    final Actors actors = repository.getActors();
+    if (actors != null) {
+      for (final Object object : actors.getActorOrFlow()) {
+        if (object instanceof ActorType) {
+          actorIndex.add((ActorType) object);
+        } else if (object instanceof FlowType) {
+          flowIndex.add((FlowType) object);
+        }
+      }
+    }
+    if (repository.getCodeSets() != null) {
+      codesetIndex.addAll(repository.getCodeSets().getCodeSet());
+    }
+    if (repository.getComponents() != null) {
+      componentIndex.addAll(repository.getComponents().getComponent());
+    }
+    if (repository.getDatatypes() != null) {
+      datatypeIndex.addAll(repository.getDatatypes().getDatatype());
+    }
+    if (repository.getFields() != null) {
+      fieldIndex.addAll(repository.getFields().getField());
+    }
+    if (repository.getGroups() != null) {
+      groupIndex.addAll(repository.getGroups().getGroup());
+    }
+    if (repository.getMessages() != null) {
+      messageIndex.addAll(repository.getMessages().getMessage());
     }
   }
 }
@@ -13,16 +13,19 @@
  */
 package io.fixprotocol.md2orchestra;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map.Entry;
 import java.util.NoSuchElementException;
 import java.util.Objects;
@@ -33,6 +36,7 @@ import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import javax.xml.bind.JAXBException;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import io.fixprotocol._2020.orchestra.repository.ActorType;
@@ -65,6 +69,8 @@ import io.fixprotocol.md.event.DetailProperties;
 import io.fixprotocol.md.event.DetailTable;
 import io.fixprotocol.md.event.DocumentParser;
 import io.fixprotocol.md.event.Documentation;
+import io.fixprotocol.md.event.KeywordVocabulary;
+import io.fixprotocol.md.event.ParseStatistics;
 import io.fixprotocol.md.util.AssociativeSet;
 import io.fixprotocol.orchestra.event.EventListener;
 import io.fixprotocol.orchestra.event.EventListenerFactory;
@@ -353,6 +359,11 @@ public class RepositoryBuilder {
   public static final String VARIABLES_KEYWORD = "variables";
   public static final String WHEN_KEYWORD = "when";
 
+  // headings are classified by these keywords as they are parsed
+  private static final KeywordVocabulary contextKeys =
+      KeywordVocabulary.of(ACTOR_KEYWORD, CODESET_KEYWORD, COMPONENT_KEYWORD, DATATYPES_KEYWORD,
+          FIELDS_KEYWORD, FLOW_KEYWORD, GROUP_KEYWORD, MESSAGE_KEYWORD, STATEMACHINE_KEYWORD);
+
   // the form code=name with optional space before and after =
   private static final Pattern codePattern = Pattern.compile("(\\S+) *= *([^ \"]+|\".+\")");
 
@@ -388,13 +399,67 @@ public class RepositoryBuilder {
    */
   public static RepositoryBuilder instance(InputStream referenceStream,
       OutputStream jsonOutputStream, String paragraphDelimiterInTables) throws Exception {
+    return instance(referenceStream, jsonOutputStream, paragraphDelimiterInTables, null);
+  }
+
+  /**
+   * Create an instance of RepositoryBuilder
+   *
+   * A reference is loaded from a binary snapshot in the cache directory if one was written for the
+   * same content. Otherwise, its XML is parsed and a snapshot is written for later runs.
+   *
+   * @param referenceStream an InputStream from an Orchestra file used as a reference. May be
+   *        {@code null}.
+   * @param jsonOutputStream output stream with JSON errors or warnings
+   * @param paragraphDelimiterInTables token to represent a paragraph break in markdown tables
+   * @param referenceCacheDirectory directory of reference snapshots. May be {@code null} to parse
+   *        the reference without caching.
+   * @return an instance of RepositoryBuilder
+   * @throws Exception if streams cannot be read or written, or a reference cannot be parsed
+   */
+  public static RepositoryBuilder instance(InputStream referenceStream,
+      OutputStream jsonOutputStream, String paragraphDelimiterInTables,
+      Path referenceCacheDirectory) throws Exception {
     final RepositoryBuilder outputRepositoryBuilder =
         new RepositoryBuilder(jsonOutputStream, paragraphDelimiterInTables);
 
     if (referenceStream != null) {
       final RepositoryAdapter referenceRepository =
           new RepositoryAdapter(outputRepositoryBuilder.eventLogger);
-      referenceRepository.unmarshal(referenceStream);
+      if (referenceCacheDirectory != null) {
+        outputRepositoryBuilder.loadReference(referenceRepository, referenceStream.readAllBytes(),
+            referenceCacheDirectory);
+      } else {
+        referenceRepository.unmarshal(referenceStream);
+      }
+      outputRepositoryBuilder.setReference(referenceRepository);
+    }
+    return outputRepositoryBuilder;
+  }
+
+  /**
+   * Create an instance of RepositoryBuilder with a lazy reference
+   *
+   * Elements of the reference are indexed by a pre-scan, and unmarshalled only when they are
+   * found, so that time and heap scale with the elements used by markdown input rather than with
+   * the size of the reference.
+   *
+   * @param referenceStream an InputStream from an Orchestra file used as a reference. May be
+   *        {@code null}.
+   * @param jsonOutputStream output stream with JSON errors or warnings
+   * @param paragraphDelimiterInTables token to represent a paragraph break in markdown tables
+   * @return an instance of RepositoryBuilder
+   * @throws Exception if streams cannot be read or written, or a reference is not well-formed
+   */
+  public static RepositoryBuilder lazyInstance(InputStream referenceStream,
+      OutputStream jsonOutputStream, String paragraphDelimiterInTables) throws Exception {
+    final RepositoryBuilder outputRepositoryBuilder =
+        new RepositoryBuilder(jsonOutputStream, paragraphDelimiterInTables);
+
+    if (referenceStream != null) {
+      final LazyRepositoryAdapter referenceRepository = new LazyRepositoryAdapter(
+          outputRepositoryBuilder.eventLogger, LazyRepositoryAdapter.DEFAULT_CACHE_CAPACITY);
+      referenceRepository.scan(referenceStream.readAllBytes());
       outputRepositoryBuilder.setReference(referenceRepository);
     }
     return outputRepositoryBuilder;
@@ -417,26 +482,25 @@ public class RepositoryBuilder {
 
   private final Queue<ElementBuilder> buildSteps = new LinkedList<>();
 
-  private final String[] contextKeys =
-      new String[] {ACTOR_KEYWORD, CODESET_KEYWORD, COMPONENT_KEYWORD, DATATYPES_KEYWORD,
-          FIELDS_KEYWORD, FLOW_KEYWORD, GROUP_KEYWORD, MESSAGE_KEYWORD, STATEMACHINE_KEYWORD};
   private TeeEventListener eventLogger;
   private final Logger logger = LogManager.getLogger(getClass());
   private final IdGenerator idGenerator = new IdGenerator(5000, 39999);
   private final AssociativeSet headings = new AssociativeSet();
 
   private final Consumer<Contextual> markdownConsumer = contextual -> {
-    final Context keyContext = getKeyContext(contextual);
+    final Context keyContext = contextual.getKeyContext(contextKeys);
     if (keyContext == null) {
       eventLogger.warn("Element with unknown context; perhaps missing heading");
       return;
     }
-    final String type = keyContext.getKey(KEY_POSITION);
-    if (type == null) {
+    final String key = keyContext.getKey(KEY_POSITION);
+    final String keyword = keyContext.getKeyword(contextKeys);
+    if (key == null) {
       eventLogger.warn("RepositoryBuilder received element with unknown context of class {0}",
           contextual.getClass());
     } else
-      switch (type.toLowerCase()) {
+      // a keyword is already lower case; only a key outside the vocabulary is converted
+      switch (keyword != null ? keyword : key.toLowerCase(Locale.ROOT)) {
         case ACTOR_KEYWORD:
           addActor(contextual, keyContext);
           break;
@@ -474,7 +538,7 @@ public class RepositoryBuilder {
           if (keyContext.getLevel() == 1) {
             addMetadata(contextual, keyContext);
           } else {
-            eventLogger.warn("RepositoryBuilder received unknown context type {}", type);
+            eventLogger.warn("RepositoryBuilder received unknown context type {}", key);
           }
       }
   };
@@ -509,10 +573,24 @@ public class RepositoryBuilder {
    * @throws IOException if an IO error occurs
    */
   public void appendInput(InputStream inputStream) throws IOException {
-    final DocumentParser parser = new DocumentParser();
+    final DocumentParser parser = newParser();
     parser.parse(inputStream, markdownConsumer);
   }
 
+  /**
+   * Append input to a repository
+   *
+   * @param path a markdown file
+   * @return statistics of the parse
+   * @throws IOException if an IO error occurs
+   */
+  public ParseStatistics appendInput(Path path) throws IOException {
+    final DocumentParser parser = newParser();
+    final ParseStatistics statistics = new ParseStatistics();
+    parser.parse(path, markdownConsumer, null, statistics);
+    return statistics;
+  }
+
   /**
    * Finalize the repository and write it
    *
@@ -1454,22 +1532,31 @@ public class RepositoryBuilder {
     }
   }
 
-  private Context getKeyContext(Contextual contextual) {
-    Context context = null;
-    if (contextual instanceof Context) {
-      context = (Context) contextual;
-    } else {
-      context = contextual.getParent();
-    }
-    while (context != null) {
-      final String key = context.getKey(KEY_POSITION);
-      if ((Arrays.binarySearch(contextKeys, key.toLowerCase()) >= 0) || (context.getLevel() == 1)) {
-        break;
-      } else {
-        context = context.getParent();
+  private void loadReference(RepositoryAdapter referenceRepository, byte[] xml,
+      Path cacheDirectory) throws JAXBException {
+    final Path snapshot = RepositorySnapshot.pathOf(cacheDirectory, xml);
+    if (Files.isReadable(snapshot)) {
+      try {
+        referenceRepository.readSnapshot(snapshot);
+        logger.info("RepositoryBuilder loaded reference snapshot {}", snapshot);
+        return;
+      } catch (final IOException | RuntimeException e) {
+        logger.warn("RepositoryBuilder ignored reference snapshot {}; {}", snapshot,
+            e.getMessage());
       }
     }
-    return context;
+    referenceRepository.unmarshal(new ByteArrayInputStream(xml));
+    try {
+      referenceRepository.writeSnapshot(snapshot);
+      logger.info("RepositoryBuilder wrote reference snapshot {}", snapshot);
+    } catch (final IOException e) {
+      logger.warn("RepositoryBuilder failed to write reference snapshot {}; {}", snapshot,
+          e.getMessage());
+    }
+  }
+
+  private DocumentParser newParser() {
+    return DocumentParser.builder().keywordVocabulary(contextKeys).build();
   }
 
   private MessageType getOrAddMessage(String name, String scenario, int tag, String msgType) {
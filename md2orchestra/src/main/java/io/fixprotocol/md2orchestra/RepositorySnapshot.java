@@ -0,0 +1,511 @@
+/*
+ * Copyright 2020 FIX Protocol Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.fixprotocol.md2orchestra;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.xml.bind.JAXBElement;
+import javax.xml.datatype.DatatypeConfigurationException;
+import javax.xml.datatype.DatatypeFactory;
+import javax.xml.datatype.Duration;
+import javax.xml.namespace.QName;
+import io.fixprotocol._2020.orchestra.repository.Repository;
+
+/**
+ * Compact binary form of an Orchestra repository, so that a reference can be loaded without
+ * parsing XML
+ *
+ * Elements are written depth first by reflection on their fields. A class is described once by its
+ * name and field names, and later referred to by index; likewise a string is written once. A
+ * snapshot is read only if its format version and the fields of every class match the running
+ * Orchestra model, so a snapshot written with another version of the model is rejected rather than
+ * misread. Only classes of the Orchestra model and Dublin Core packages are instantiated.
+ *
+ * Snapshots are named by a SHA-256 hash of the XML they were created from.
+ *
+ * @author Don Mendelson
+ *
+ */
+final class RepositorySnapshot {
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+  private static final String[] MODEL_PACKAGES =
+      {"io.fixprotocol._2020.orchestra.repository.", "org.purl.dc."};
+  private static final int FORMAT_VERSION = 1;
+  // "TBLS"
+  private static final int MAGIC = 0x54424c53;
+  private static final String SUFFIX = ".snapshot";
+
+  // value tags
+  private static final byte NULL = 0;
+  private static final byte STRING = 1;
+  private static final byte BIG_INTEGER = 2;
+  private static final byte BOOLEAN = 3;
+  private static final byte SHORT = 4;
+  private static final byte INTEGER = 5;
+  private static final byte LONG = 6;
+  private static final byte ENUM = 7;
+  private static final byte LIST = 8;
+  private static final byte MAP = 9;
+  private static final byte QNAME = 10;
+  private static final byte ELEMENT = 11;
+  private static final byte DURATION = 12;
+  private static final byte OBJECT = 13;
+
+  private static final Map<Class<?>, Field[]> fieldsByClass = new ConcurrentHashMap<>();
+
+  /**
+   * Name a snapshot by the content of a reference file
+   *
+   * @param cacheDirectory directory of snapshots
+   * @param xml content of an Orchestra file
+   * @return path of the snapshot of the file
+   */
+  static Path pathOf(Path cacheDirectory, byte[] xml) {
+    try {
+      final byte[] hash = MessageDigest.getInstance("SHA-256").digest(xml);
+      final StringBuilder name = new StringBuilder(hash.length * 2 + SUFFIX.length());
+      for (final byte b : hash) {
+        name.append(Character.forDigit((b >> 4) & 0xf, 16))
+            .append(Character.forDigit(b & 0xf, 16));
+      }
+      return cacheDirectory.resolve(name.append(SUFFIX).toString());
+    } catch (final NoSuchAlgorithmException e) {
+      // every Java platform supports SHA-256
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Read a snapshot
+   *
+   * The file is read into memory, so that every length it contains can be checked against the
+   * bytes that remain before anything is allocated.
+   *
+   * @param path snapshot file
+   * @return a repository
+   * @throws IOException if the file cannot be read, is damaged, or was not written for this
+   *         Orchestra model
+   */
+  static Repository read(Path path) throws IOException {
+    try (DataInputStream in =
+        new DataInputStream(new ByteArrayInputStream(Files.readAllBytes(path)))) {
+      if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+        throw new IOException("Not a repository snapshot of format " + FORMAT_VERSION);
+      }
+      final Object value = new Reader(in).readValue();
+      if (!(value instanceof Repository)) {
+        throw new IOException("Snapshot does not contain a repository");
+      }
+      return (Repository) value;
+    }
+  }
+
+  /**
+   * Write a snapshot
+   *
+   * The snapshot is written to a temporary file that replaces {@code path} when complete, so a
+   * concurrent reader never sees a partial snapshot.
+   *
+   * @param repository a repository
+   * @param path snapshot file
+   * @throws IOException if the file cannot be written, or the repository contains a value that a
+   *         snapshot cannot represent
+   */
+  static void write(Repository repository, Path path) throws IOException {
+    final Path directory = path.toAbsolutePath().getParent();
+    Files.createDirectories(directory);
+    final Path temp = Files.createTempFile(directory, "reference", ".tmp");
+    try {
+      try (DataOutputStream out = new DataOutputStream(
+          new BufferedOutputStream(Files.newOutputStream(temp), BUFFER_SIZE))) {
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        new Writer(out).writeValue(repository);
+      }
+      try {
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE);
+      } catch (final AtomicMoveNotSupportedException e) {
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+      }
+    } finally {
+      Files.deleteIfExists(temp);
+    }
+  }
+
+  /**
+   * @return instance fields of a model class, superclass fields first
+   */
+  private static Field[] fieldsOf(Class<?> cls) {
+    return fieldsByClass.computeIfAbsent(cls, c -> {
+      final List<Class<?>> hierarchy = new ArrayList<>();
+      for (Class<?> k = c; k != null && k != Object.class; k = k.getSuperclass()) {
+        hierarchy.add(0, k);
+      }
+      final List<Field> fields = new ArrayList<>();
+      for (final Class<?> k : hierarchy) {
+        for (final Field field : k.getDeclaredFields()) {
+          final int modifiers = field.getModifiers();
+          if (!Modifier.isStatic(modifiers) && !Modifier.isTransient(modifiers)) {
+            field.setAccessible(true);
+            fields.add(field);
+          }
+        }
+      }
+      return fields.toArray(new Field[0]);
+    });
+  }
+
+  private static boolean isModelClass(String className) {
+    for (final String modelPackage : MODEL_PACKAGES) {
+      if (className.startsWith(modelPackage)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static final class Reader {
+    private final List<Class<?>> classes = new ArrayList<>();
+    private DatatypeFactory datatypeFactory = null;
+    private final DataInputStream in;
+    private final List<String> strings = new ArrayList<>();
+
+    Reader(DataInputStream in) {
+      this.in = in;
+    }
+
+    Object readValue() throws IOException {
+      final byte tag = in.readByte();
+      switch (tag) {
+        case NULL:
+          return null;
+        case STRING:
+          return readString();
+        case BIG_INTEGER:
+          final byte[] magnitude = new byte[readLength()];
+          in.readFully(magnitude);
+          return new BigInteger(magnitude);
+        case BOOLEAN:
+          return in.readBoolean();
+        case SHORT:
+          return in.readShort();
+        case INTEGER:
+          return in.readInt();
+        case LONG:
+          return in.readLong();
+        case ENUM:
+          return readEnum();
+        case LIST:
+          final int size = readLength();
+          final List<Object> list = new ArrayList<>(size);
+          for (int i = 0; i < size; i++) {
+            list.add(readValue());
+          }
+          return list;
+        case MAP:
+          final int entries = readLength();
+          final Map<Object, Object> map = new HashMap<>();
+          for (int i = 0; i < entries; i++) {
+            map.put(readValue(), readValue());
+          }
+          return map;
+        case QNAME:
+          return new QName(readString(), readString(), readString());
+        case ELEMENT:
+          return readElement();
+        case DURATION:
+          return datatypeFactory().newDuration(readString());
+        case OBJECT:
+          return readObject();
+        default:
+          throw new IOException("Unknown snapshot value tag " + tag);
+      }
+    }
+
+    private Class<?> readClass() throws IOException {
+      final int index = readVarInt();
+      if (index >= 0 && index < classes.size()) {
+        return classes.get(index);
+      } else if (index != classes.size()) {
+        throw new IOException("Invalid snapshot class index " + index);
+      }
+      final String className = readString();
+      if (!isModelClass(className)) {
+        throw new IOException("Snapshot class not in Orchestra model; " + className);
+      }
+      final Class<?> cls;
+      try {
+        cls = Class.forName(className, false, Repository.class.getClassLoader());
+      } catch (final ClassNotFoundException e) {
+        throw new IOException("Snapshot class not found; " + className, e);
+      }
+      if (!cls.isEnum()) {
+        final Field[] fields = fieldsOf(cls);
+        final int fieldCount = readVarInt();
+        if (fieldCount != fields.length) {
+          throw new IOException("Snapshot fields do not match class " + className);
+        }
+        for (final Field field : fields) {
+          if (!field.getName().equals(readString())) {
+            throw new IOException("Snapshot fields do not match class " + className);
+          }
+        }
+      }
+      classes.add(cls);
+      return cls;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Object readElement() throws IOException {
+      final QName name = (QName) readValue();
+      final Class declaredType = readClass();
+      final Object value = readValue();
+      final boolean nil = in.readBoolean();
+      final JAXBElement element = new JAXBElement(name, declaredType, value);
+      element.setNil(nil);
+      return element;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Object readEnum() throws IOException {
+      final Class cls = readClass();
+      final String name = readString();
+      try {
+        return Enum.valueOf(cls, name);
+      } catch (final IllegalArgumentException e) {
+        throw new IOException("Snapshot enum constant not found; " + name, e);
+      }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object readObject() throws IOException {
+      final Class<?> cls = readClass();
+      try {
+        final Object object = cls.getDeclaredConstructor().newInstance();
+        for (final Field field : fieldsOf(cls)) {
+          final Object value = readValue();
+          final Object initial = field.get(object);
+          if (initial instanceof Map && value instanceof Map) {
+            // wildcard attributes are held in a final map
+            ((Map<Object, Object>) initial).putAll((Map<Object, Object>) value);
+          } else if (value != null) {
+            field.set(object, value);
+          }
+        }
+        return object;
+      } catch (final ReflectiveOperationException | IllegalArgumentException e) {
+        throw new IOException("Snapshot class cannot be instantiated; " + cls.getName(), e);
+      }
+    }
+
+    private String readString() throws IOException {
+      final int index = readVarInt();
+      if (index >= 0 && index < strings.size()) {
+        return strings.get(index);
+      } else if (index != strings.size()) {
+        throw new IOException("Invalid snapshot string index " + index);
+      }
+      final byte[] bytes = new byte[readLength()];
+      in.readFully(bytes);
+      final String string = new String(bytes, StandardCharsets.UTF_8);
+      strings.add(string);
+      return string;
+    }
+
+    /**
+     * Reads a count of bytes or values. Each takes at least one byte, so a count cannot exceed
+     * the bytes that remain.
+     */
+    private int readLength() throws IOException {
+      final int length = readVarInt();
+      if (length < 0 || length > in.available()) {
+        throw new IOException("Invalid snapshot length " + length);
+      }
+      return length;
+    }
+
+    private int readVarInt() throws IOException {
+      int value = 0;
+      for (int shift = 0; shift < 32; shift += 7) {
+        final byte b = in.readByte();
+        value |= (b & 0x7f) << shift;
+        if (b >= 0) {
+          return value;
+        }
+      }
+      throw new IOException("Malformed snapshot integer");
+    }
+
+    private DatatypeFactory datatypeFactory() throws IOException {
+      if (datatypeFactory == null) {
+        try {
+          datatypeFactory = DatatypeFactory.newInstance();
+        } catch (final DatatypeConfigurationException e) {
+          throw new IOException(e);
+        }
+      }
+      return datatypeFactory;
+    }
+  }
+
+  private static final class Writer {
+    private final Map<Class<?>, Integer> classes = new HashMap<>();
+    private final DataOutputStream out;
+    private final Map<String, Integer> strings = new HashMap<>();
+
+    Writer(DataOutputStream out) {
+      this.out = out;
+    }
+
+    void writeValue(Object value) throws IOException {
+      if (value == null) {
+        out.writeByte(NULL);
+      } else if (value instanceof String) {
+        out.writeByte(STRING);
+        writeString((String) value);
+      } else if (value instanceof BigInteger) {
+        out.writeByte(BIG_INTEGER);
+        final byte[] magnitude = ((BigInteger) value).toByteArray();
+        writeVarInt(magnitude.length);
+        out.write(magnitude);
+      } else if (value instanceof Boolean) {
+        out.writeByte(BOOLEAN);
+        out.writeBoolean((Boolean) value);
+      } else if (value instanceof Short) {
+        out.writeByte(SHORT);
+        out.writeShort((Short) value);
+      } else if (value instanceof Integer) {
+        out.writeByte(INTEGER);
+        out.writeInt((Integer) value);
+      } else if (value instanceof Long) {
+        out.writeByte(LONG);
+        out.writeLong((Long) value);
+      } else if (value instanceof Enum) {
+        out.writeByte(ENUM);
+        writeClass(((Enum<?>) value).getDeclaringClass());
+        writeString(((Enum<?>) value).name());
+      } else if (value instanceof List) {
+        final List<?> list = (List<?>) value;
+        out.writeByte(LIST);
+        writeVarInt(list.size());
+        for (final Object element : list) {
+          writeValue(element);
+        }
+      } else if (value instanceof Map) {
+        final Map<?, ?> map = (Map<?, ?>) value;
+        out.writeByte(MAP);
+        writeVarInt(map.size());
+        for (final Map.Entry<?, ?> entry : map.entrySet()) {
+          writeValue(entry.getKey());
+          writeValue(entry.getValue());
+        }
+      } else if (value instanceof QName) {
+        final QName qname = (QName) value;
+        out.writeByte(QNAME);
+        writeString(qname.getNamespaceURI());
+        writeString(qname.getLocalPart());
+        writeString(qname.getPrefix());
+      } else if (value instanceof JAXBElement) {
+        final JAXBElement<?> element = (JAXBElement<?>) value;
+        out.writeByte(ELEMENT);
+        writeValue(element.getName());
+        writeClass(element.getDeclaredType());
+        writeValue(element.getValue());
+        out.writeBoolean(element.isNil());
+      } else if (value instanceof Duration) {
+        out.writeByte(DURATION);
+        writeString(value.toString());
+      } else if (isModelClass(value.getClass().getName())) {
+        out.writeByte(OBJECT);
+        writeClass(value.getClass());
+        try {
+          for (final Field field : fieldsOf(value.getClass())) {
+            writeValue(field.get(value));
+          }
+        } catch (final IllegalAccessException e) {
+          throw new IOException("Snapshot cannot access " + value.getClass().getName(), e);
+        }
+      } else {
+        throw new IOException("Snapshot cannot represent " + value.getClass().getName());
+      }
+    }
+
+    private void writeClass(Class<?> cls) throws IOException {
+      if (!isModelClass(cls.getName())) {
+        throw new IOException("Snapshot cannot represent " + cls.getName());
+      }
+      final Integer index = classes.get(cls);
+      if (index != null) {
+        writeVarInt(index);
+      } else {
+        writeVarInt(classes.size());
+        classes.put(cls, classes.size());
+        writeString(cls.getName());
+        if (!cls.isEnum()) {
+          final Field[] fields = fieldsOf(cls);
+          writeVarInt(fields.length);
+          for (final Field field : fields) {
+            writeString(field.getName());
+          }
+        }
+      }
+    }
+
+    private void writeString(String string) throws IOException {
+      final Integer index = strings.get(string);
+      if (index != null) {
+        writeVarInt(index);
+      } else {
+        writeVarInt(strings.size());
+        strings.put(string, strings.size());
+        final byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(bytes.length);
+        out.write(bytes);
+      }
+    }
+
+    private void writeVarInt(int value) throws IOException {
+      int v = value;
+      while ((v & ~0x7f) != 0) {
+        out.writeByte((v & 0x7f) | 0x80);
+        v >>>= 7;
+      }
+      out.writeByte(v);
+    }
+  }
+
+  private RepositorySnapshot() {
+
+  }
+}
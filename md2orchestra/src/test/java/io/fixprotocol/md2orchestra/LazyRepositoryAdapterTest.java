@@ -0,0 +1,207 @@
+package io.fixprotocol.md2orchestra;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import javax.xml.stream.XMLStreamException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import io.fixprotocol._2020.orchestra.repository.FieldType;
+
+class LazyRepositoryAdapterTest {
+
+  private static final Logger logger = LogManager.getLogger(LazyRepositoryAdapterTest.class);
+
+  private static final String XML = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+      + "<!-- <o:fields><o:field id=\"1\" name=\"Commented\"/></o:fields> -->\n"
+      + "<o:repository xmlns:o=\"http://fixprotocol.io/2020/orchestra/repository\""
+      + " name=\"test\" version=\"1.0\">\n"
+      + "  <o:datatypes><o:datatype name=\"int\"/></o:datatypes>\n"
+      + "  <o:codeSets>\n"
+      + "    <o:codeSet name=\"SideCodeSet\" id=\"54\" type=\"char\">\n"
+      + "      <o:code name=\"Buy\" id=\"1\" value=\"1\"/>\n"
+      + "    </o:codeSet>\n"
+      + "  </o:codeSets>\n"
+      + "  <o:fields>\n"
+      + "    <o:field id=\"11\" name=\"ClOrdID\" type=\"String\"/>\n"
+      + "    <o:field id=\"54\" name=\"Side\" type=\"SideCodeSet\">\n"
+      + "      <o:annotation><o:documentation>Caf\u00e9 &lt;x&gt; <![CDATA[</o:field>]]>"
+      + "</o:documentation></o:annotation>\n"
+      + "    </o:field>\n"
+      + "    <o:field type=\"String\" scenario=\"test\" name=\"ClOrdID\"\n"
+      + "      id=\"11\" added=\"a>b\"></o:field>\n"
+      + "  </o:fields>\n"
+      + "  <o:components>\n"
+      + "    <o:component name=\"Instrument\" id=\"1003\">\n"
+      + "      <o:fieldRef id=\"11\"/>\n"
+      + "    </o:component>\n"
+      + "  </o:components>\n"
+      + "</o:repository>\n";
+
+  private static String componentMarkdown(int fields) {
+    final StringBuilder markdown = new StringBuilder(
+        "## Component Big\n\n| Name | Tag | Presence |\n|---|---:|---|\n");
+    for (int i = 0; i < fields; i++) {
+      markdown.append("| Field").append(i).append(" | ").append(10000 + i)
+          .append(" | optional |\n");
+    }
+    return markdown.toString();
+  }
+
+  private static LazyRepositoryAdapter lazyAdapter(byte[] xml, int cacheCapacity)
+      throws Exception {
+    final LazyRepositoryAdapter adapter = new LazyRepositoryAdapter(
+        RepositoryBuilder.createEventListener(logger, null), cacheCapacity);
+    adapter.scan(xml);
+    return adapter;
+  }
+
+  private static byte[] referenceRepository(int fields) throws Exception {
+    final RepositoryAdapter adapter =
+        new RepositoryAdapter(RepositoryBuilder.createEventListener(logger, null));
+    adapter.createRepository();
+    for (int i = 0; i < fields; i++) {
+      final FieldType field = new FieldType();
+      field.setId(BigInteger.valueOf(10000 + i));
+      field.setName("Field" + i);
+      field.setType("int");
+      adapter.addField(field);
+    }
+    final ByteArrayOutputStream xmlStream = new ByteArrayOutputStream();
+    adapter.marshal(xmlStream);
+    return xmlStream.toByteArray();
+  }
+
+  @Test
+  void find() throws Exception {
+    final LazyRepositoryAdapter adapter = lazyAdapter(XML.getBytes(StandardCharsets.UTF_8),
+        LazyRepositoryAdapter.DEFAULT_CACHE_CAPACITY);
+    assertEquals(0, adapter.getCacheSize());
+
+    final FieldType side = adapter.findFieldByTag(54, "base");
+    assertEquals("Side", side.getName());
+    assertSame(side, adapter.findFieldByName("Side", "base"));
+    assertEquals(1, adapter.getCacheSize());
+    assertEquals("String", adapter.findFieldByTag(11, "base").getType());
+    assertEquals("test", adapter.findFieldByName("ClOrdID", "test").getScenario());
+    assertNull(adapter.findFieldByName("Commented", "base"));
+    assertNull(adapter.findFieldByTag(54, "test"));
+
+    assertEquals(1003, adapter.findComponentByName("Instrument", "base").getId().intValue());
+    assertEquals(1, adapter.findComponentByTag(1003, "base").getComponentRefOrGroupRefOrFieldRef()
+        .size());
+    assertEquals("Buy",
+        adapter.findCodesetByName("SideCodeSet", "base").getCode().get(0).getName());
+    assertNotNull(adapter.findDatatypeByName("int"));
+    assertNull(adapter.findMessageByName("NewOrderSingle", "base"));
+    assertNull(adapter.findGroupByTag(453, "base"));
+  }
+
+  @Test
+  void evict() throws Exception {
+    final LazyRepositoryAdapter adapter = lazyAdapter(referenceRepository(10), 2);
+    final FieldType first = adapter.findFieldByTag(10000, "base");
+    adapter.findFieldByTag(10001, "base");
+    adapter.findFieldByTag(10002, "base");
+    assertEquals(2, adapter.getCacheSize());
+    final FieldType again = adapter.findFieldByTag(10000, "base");
+    assertNotSame(first, again);
+    assertEquals(first.getName(), again.getName());
+    assertEquals(2, adapter.getCacheSize());
+  }
+
+  @Test
+  void malformed() {
+    assertThrows(XMLStreamException.class, () -> lazyAdapter(
+        "<o:repository><o:fields><o:field".getBytes(StandardCharsets.UTF_8), 2));
+    assertThrows(XMLStreamException.class, () -> lazyAdapter(
+        "<o:repository><o:fields></o:fields>".getBytes(StandardCharsets.UTF_8), 2));
+    assertThrows(XMLStreamException.class,
+        () -> lazyAdapter("<repository/>".getBytes(StandardCharsets.UTF_16), 2));
+  }
+
+  @Test
+  void sameOutput() throws Exception {
+    final RepositoryBuilder referenceBuilder =
+        new RepositoryBuilder(new ByteArrayOutputStream(8096));
+    try (InputStream inputStream =
+        new FileInputStream("src/test/resources/md2orchestra-proto.md")) {
+      referenceBuilder.appendInput(inputStream);
+    }
+    final ByteArrayOutputStream referenceStream = new ByteArrayOutputStream(8096);
+    referenceBuilder.write(referenceStream);
+    final byte[] reference = referenceStream.toByteArray();
+
+    final String markdown = "## Message NewOrderSingle type 'D'\n\n"
+        + "| Name | Tag | Presence |\n"
+        + "|------|----:|----------|\n"
+        + "| ClOrdID | 11 | required |\n"
+        + "| Side | | required |\n"
+        + "| OrdType | | |\n"
+        + "| Unknown | | |\n"
+        + "| Instrument | c | |\n"
+        + "| Parties | g | |\n";
+
+    final ByteArrayOutputStream eagerEvents = new ByteArrayOutputStream(8096);
+    final RepositoryBuilder eager =
+        RepositoryBuilder.instance(new ByteArrayInputStream(reference), eagerEvents);
+    eager.appendInput(new ByteArrayInputStream(markdown.getBytes(StandardCharsets.UTF_8)));
+    final ByteArrayOutputStream eagerXml = new ByteArrayOutputStream(8096);
+    eager.write(eagerXml);
+
+    final ByteArrayOutputStream lazyEvents = new ByteArrayOutputStream(8096);
+    final RepositoryBuilder lazy = RepositoryBuilder.lazyInstance(
+        new ByteArrayInputStream(reference), lazyEvents,
+        RepositoryBuilder.DEFAULT_PARAGRAPH_DELIMITER);
+    lazy.appendInput(new ByteArrayInputStream(markdown.getBytes(StandardCharsets.UTF_8)));
+    final ByteArrayOutputStream lazyXml = new ByteArrayOutputStream(8096);
+    lazy.write(lazyXml);
+
+    final String xml = eagerXml.toString(StandardCharsets.UTF_8);
+    assertTrue(xml.contains("OrdTypeCodeset"));
+    assertTrue(xml.contains("The `Instrument` component block"));
+    assertEquals(xml, lazyXml.toString(StandardCharsets.UTF_8));
+    assertEquals(eagerEvents.toString(StandardCharsets.UTF_8),
+        lazyEvents.toString(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Compares conversion of markdown that uses a small part of a large reference
+   */
+  @Test
+  @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+  void partialUse() throws Exception {
+    final byte[] reference = referenceRepository(50000);
+    final byte[] markdown = componentMarkdown(200).getBytes(StandardCharsets.UTF_8);
+    for (int i = 0; i < 3; i++) {
+      final long eagerNanos = convert(reference, markdown, false);
+      final long lazyNanos = convert(reference, markdown, true);
+      System.out.format("Converted with eager reference in %d ms, lazy reference in %d ms%n",
+          eagerNanos / 1000000, lazyNanos / 1000000);
+    }
+  }
+
+  private long convert(byte[] reference, byte[] markdown, boolean isLazy) throws Exception {
+    final long start = System.nanoTime();
+    final RepositoryBuilder builder = isLazy
+        ? RepositoryBuilder.lazyInstance(new ByteArrayInputStream(reference),
+            new ByteArrayOutputStream(8096), RepositoryBuilder.DEFAULT_PARAGRAPH_DELIMITER)
+        : RepositoryBuilder.instance(new ByteArrayInputStream(reference),
+            new ByteArrayOutputStream(8096));
+    builder.appendInput(new ByteArrayInputStream(markdown));
+    builder.write(new ByteArrayOutputStream());
+    return System.nanoTime() - start;
+  }
+}
@@ -0,0 +1,141 @@
+package io.fixprotocol.md2orchestra;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import io.fixprotocol._2020.orchestra.repository.ComponentType;
+import io.fixprotocol._2020.orchestra.repository.FieldType;
+
+class RepositoryAdapterTest {
+
+  private static final Logger logger = LogManager.getLogger(RepositoryAdapterTest.class);
+
+  private static FieldType field(int tag, String name, String scenario) {
+    final FieldType field = new FieldType();
+    field.setId(BigInteger.valueOf(tag));
+    field.setName(name);
+    field.setType("int");
+    if (scenario != null) {
+      field.setScenario(scenario);
+    }
+    return field;
+  }
+
+  private static byte[] referenceRepository(int fields) throws Exception {
+    final RepositoryAdapter adapter =
+        new RepositoryAdapter(RepositoryBuilder.createEventListener(logger, null));
+    adapter.createRepository();
+    for (int i = 0; i < fields; i++) {
+      adapter.addField(field(10000 + i, "Field" + i, null));
+    }
+    final ByteArrayOutputStream xmlStream = new ByteArrayOutputStream();
+    adapter.marshal(xmlStream);
+    return xmlStream.toByteArray();
+  }
+
+  private static String componentMarkdown(int fields) {
+    final StringBuilder markdown = new StringBuilder(
+        "## Component Big\n\n| Name | Tag | Presence |\n|---|---:|---|\n");
+    for (int i = 0; i < fields; i++) {
+      markdown.append("| Field").append(i).append(" | ").append(10000 + i)
+          .append(" | optional |\n");
+    }
+    return markdown.toString();
+  }
+
+  private RepositoryAdapter adapter;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    adapter = new RepositoryAdapter(RepositoryBuilder.createEventListener(logger, null));
+    adapter.createRepository();
+  }
+
+  @Test
+  void findAddedAndCopied() throws Exception {
+    final FieldType base = field(48, "SecurityID", null);
+    adapter.addField(base);
+    adapter.addField(field(48, "SecurityID", "test"));
+    // a later duplicate is not found, as with a scan
+    adapter.addField(field(48, "SecurityID", null));
+    assertSame(base, adapter.findFieldByTag(48, "base"));
+    assertSame(base, adapter.findFieldByName("SecurityID", "base"));
+    assertEquals("test", adapter.findFieldByTag(48, "test").getScenario());
+    assertNull(adapter.findFieldByTag(48, "other"));
+    assertNull(adapter.findFieldByName(null, "base"));
+
+    final ComponentType source = new ComponentType();
+    source.setId(BigInteger.valueOf(1003));
+    source.setName("Instrument");
+    final ComponentType copy = adapter.copyComponent(source);
+    assertSame(copy, adapter.findComponentByTag(1003, "base"));
+    assertSame(copy, adapter.findComponentByName("Instrument", "base"));
+  }
+
+  @Test
+  void findUnmarshalled() throws Exception {
+    final RepositoryAdapter reference =
+        new RepositoryAdapter(RepositoryBuilder.createEventListener(logger, null));
+    reference.unmarshal(new ByteArrayInputStream(referenceRepository(100)));
+    assertEquals("Field42", reference.findFieldByTag(10042, "base").getName());
+    assertEquals(10042, reference.findFieldByName("Field42", "base").getId().intValue());
+    assertNull(reference.findComponentByName("Big", "base"));
+  }
+
+  /**
+   * Conversion time should grow linearly with the number of fields, so four times the fields
+   * should take about four times as long. A scan per lookup would take about 16 times as long.
+   */
+  @Test
+  void scaling() throws Exception {
+    final int fields = 2000;
+    convert(fields);
+    final long smallNanos = fastestConversion(fields);
+    final long largeNanos = fastestConversion(fields * 4);
+    final double ratio = (double) largeNanos / smallNanos;
+    final String result =
+        String.format("Converted %d fields in %d ms, %d fields in %d ms, ratio %.1f", fields,
+            smallNanos / 1000000, fields * 4, largeNanos / 1000000, ratio);
+    logger.info(result);
+    // twice the ratio of sizes, to allow for timing noise
+    assertTrue(ratio <= 8.0, result);
+  }
+
+  // the fastest of a few runs is least disturbed by garbage collection and other tests
+  private long fastestConversion(int fields) throws Exception {
+    long fastest = Long.MAX_VALUE;
+    for (int i = 0; i < 3; i++) {
+      fastest = Math.min(fastest, convert(fields));
+    }
+    return fastest;
+  }
+
+  private long convert(int fields) throws Exception {
+    final byte[] reference = referenceRepository(fields);
+    final byte[] markdown = componentMarkdown(fields).getBytes(StandardCharsets.UTF_8);
+    final long start = System.nanoTime();
+    final RepositoryBuilder builder = RepositoryBuilder.instance(
+        new ByteArrayInputStream(reference), new ByteArrayOutputStream(8096));
+    builder.appendInput(new ByteArrayInputStream(markdown));
+    final ByteArrayOutputStream xmlStream = new ByteArrayOutputStream();
+    builder.write(xmlStream);
+    builder.closeEventLogger();
+    final long nanos = System.nanoTime() - start;
+
+    final RepositoryAdapter output =
+        new RepositoryAdapter(RepositoryBuilder.createEventListener(logger, null));
+    output.unmarshal(new ByteArrayInputStream(xmlStream.toByteArray()));
+    assertNotNull(output.findFieldByTag(10000 + fields - 1, "base"));
+    return nanos;
+  }
+}
@@ -0,0 +1,121 @@
+package io.fixprotocol.md2orchestra;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import io.fixprotocol._2020.orchestra.repository.Repository;
+
+class RepositorySnapshotTest {
+
+  private static final Logger logger = LogManager.getLogger(RepositorySnapshotTest.class);
+
+  @TempDir
+  Path cacheDirectory;
+
+  private byte[] xml;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    final RepositoryBuilder builder = new RepositoryBuilder(new ByteArrayOutputStream(8096));
+    try (InputStream inputStream =
+        new FileInputStream("src/test/resources/md2orchestra-proto.md")) {
+      builder.appendInput(inputStream);
+    }
+    final ByteArrayOutputStream xmlStream = new ByteArrayOutputStream(8096);
+    builder.write(xmlStream);
+    builder.closeEventLogger();
+    xml = xmlStream.toByteArray();
+  }
+
+  @Test
+  void roundTrip() throws Exception {
+    final RepositoryAdapter original = newAdapter();
+    original.unmarshal(new ByteArrayInputStream(xml));
+    final Path path = RepositorySnapshot.pathOf(cacheDirectory, xml);
+    original.writeSnapshot(path);
+
+    final RepositoryAdapter restored = newAdapter();
+    restored.readSnapshot(path);
+    assertEquals(marshal(original), marshal(restored));
+    assertNotNull(restored.findFieldByName("ClOrdID", "base"));
+    assertEquals("ClOrdID", restored.findFieldByTag(11, "base").getName());
+    assertNotNull(restored.findMessageByName("NewOrderSingle", "base"));
+  }
+
+  @Test
+  void cached() throws Exception {
+    final Path path = RepositorySnapshot.pathOf(cacheDirectory, xml);
+    RepositoryBuilder.instance(new ByteArrayInputStream(xml), new ByteArrayOutputStream(8096),
+        RepositoryBuilder.DEFAULT_PARAGRAPH_DELIMITER, cacheDirectory);
+    assertTrue(Files.isRegularFile(path));
+
+    // a damaged snapshot is ignored and replaced
+    Files.write(path, new byte[] {1, 2, 3});
+    assertThrows(IOException.class, () -> newAdapter().readSnapshot(path));
+    RepositoryBuilder.instance(new ByteArrayInputStream(xml), new ByteArrayOutputStream(8096),
+        RepositoryBuilder.DEFAULT_PARAGRAPH_DELIMITER, cacheDirectory);
+    newAdapter().readSnapshot(path);
+  }
+
+  @Test
+  void corruptedLength() throws Exception {
+    final Path path = RepositorySnapshot.pathOf(cacheDirectory, xml);
+    RepositoryBuilder.instance(new ByteArrayInputStream(xml), new ByteArrayOutputStream(8096),
+        RepositoryBuilder.DEFAULT_PARAGRAPH_DELIMITER, cacheDirectory);
+    final byte[] snapshot = Files.readAllBytes(path);
+    // header, then the repository object, its class index and the length of its class name
+    final int lengthOffset = 11;
+    assertEquals(Repository.class.getName().length(), snapshot[lengthOffset]);
+
+    // varints of -1 and Integer.MAX_VALUE
+    for (final byte last : new byte[] {0x0f, 0x07}) {
+      final byte[] corrupted = snapshot.clone();
+      corrupted[lengthOffset] = (byte) 0xff;
+      corrupted[lengthOffset + 1] = (byte) 0xff;
+      corrupted[lengthOffset + 2] = (byte) 0xff;
+      corrupted[lengthOffset + 3] = (byte) 0xff;
+      corrupted[lengthOffset + 4] = last;
+      Files.write(path, corrupted);
+      assertThrows(IOException.class, () -> newAdapter().readSnapshot(path));
+      // the reference is loaded from XML and the snapshot replaced
+      RepositoryBuilder.instance(new ByteArrayInputStream(xml), new ByteArrayOutputStream(8096),
+          RepositoryBuilder.DEFAULT_PARAGRAPH_DELIMITER, cacheDirectory);
+      newAdapter().readSnapshot(path);
+    }
+  }
+
+  @Test
+  void keyedByContent() {
+    final byte[] other = new String(xml, StandardCharsets.UTF_8).replace("NewOrderSingle", "New")
+        .getBytes(StandardCharsets.UTF_8);
+    assertEquals(RepositorySnapshot.pathOf(cacheDirectory, xml),
+        RepositorySnapshot.pathOf(cacheDirectory, xml.clone()));
+    assertNotEquals(RepositorySnapshot.pathOf(cacheDirectory, xml),
+        RepositorySnapshot.pathOf(cacheDirectory, other));
+  }
+
+  private static RepositoryAdapter newAdapter() throws Exception {
+    return new RepositoryAdapter(RepositoryBuilder.createEventListener(logger, null));
+  }
+
+  private static String marshal(RepositoryAdapter adapter) throws Exception {
+    final ByteArrayOutputStream xmlStream = new ByteArrayOutputStream(8096);
+    adapter.marshal(xmlStream);
+    return xmlStream.toString(StandardCharsets.UTF_8);
+  }
+}
@@ -3,7 +3,7 @@ package io.fixprotocol.orchestra2md;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -128,7 +128,7 @@ public class MarkdownGenerator {
         .map(MarkdownUtil::plainTextToMarkdown).collect(Collectors.joining(paragraphDelimiter));
   }
 
-  public void generate(InputStream inputStream, OutputStreamWriter outputWriter,
+  public void generate(InputStream inputStream, Writer outputWriter,
       EventListener eventLogger) throws Exception {
     this.eventLogger = eventLogger;
     try (eventLogger; final DocumentWriter documentWriter = new DocumentWriter(outputWriter)) {
@@ -150,7 +150,7 @@ public class MarkdownGenerator {
     }
   }
 
-  public void generate(InputStream inputStream, OutputStreamWriter outputWriter,
+  public void generate(InputStream inputStream, Writer outputWriter,
       OutputStream jsonOutputStream) throws Exception {
     Objects.requireNonNull(inputStream, "Input stream is missing");
     Objects.requireNonNull(outputWriter, "Output writer is missing");
@@ -19,8 +19,8 @@ import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.io.OutputStreamWriter;
-import java.nio.charset.StandardCharsets;
+import java.io.Writer;
+import java.nio.file.Path;
 import java.util.Objects;
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.DefaultParser;
@@ -30,6 +30,8 @@ import org.apache.commons.cli.Options;
 import org.apache.commons.cli.ParseException;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import io.fixprotocol.md.event.AsyncWriter;
+import io.fixprotocol.md.event.ChannelWriter;
 
 public class Orchestra2md {
 
@@ -203,8 +205,7 @@ public class Orchestra2md {
     }
 
     try (InputStream inputStream = new FileInputStream(inputFilename);
-        OutputStreamWriter outputWriter =
-            new OutputStreamWriter(new FileOutputStream(outputFilename), StandardCharsets.UTF_8)) {
+        Writer outputWriter = new AsyncWriter(new ChannelWriter(Path.of(outputFilename)))) {
 
       OutputStream eventStream = null;
       if (eventFilename != null) {